@@ -0,0 +1,70 @@
+package de.vorb.properties;
+
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import de.vorb.properties.event.PropertiesUpdate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of computing the updated keys of a reload, by comparing {@link Properties} and by comparing snapshots
+ * structurally.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DifferenceBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int keyCount;
+
+    @Param({ "1", "100" })
+    public int changedKeyCount;
+
+    private Properties oldProperties;
+    private Properties newProperties;
+
+    private Snapshot oldSnapshot;
+    private Snapshot newSnapshot;
+
+    @Setup
+    public void setUp() {
+        oldProperties = new Properties();
+        newProperties = new Properties();
+
+        for (int i = 0; i < keyCount; i++) {
+            oldProperties.setProperty("key" + i, "value" + i);
+            newProperties.setProperty("key" + i, i < changedKeyCount ? "changed" + i : "value" + i);
+        }
+
+        oldSnapshot = new Snapshot(0, oldProperties);
+        newSnapshot = oldSnapshot.next(
+                oldSnapshot.getEntries().withEntriesOf(PropertyTable.fromProperties(newProperties)));
+    }
+
+    @Benchmark
+    public Set<String> propertiesDifference() {
+        return PropertiesUpdate.replacedProperties(oldProperties, newProperties).getUpdatedPropertyKeys();
+    }
+
+    @Benchmark
+    public PropertiesDifference snapshotDifference() {
+        return oldSnapshot.differenceTo(newSnapshot);
+    }
+
+}
@@ -0,0 +1,90 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Cost of a typed lookup of a property for every standard value type, with concurrent readers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetPropertyBenchmark {
+
+    private static final ImmutableMap<String, String> VALUES = ImmutableMap.<String, String> builder()
+            .put("STRING", "value")
+            .put("INT", "12345")
+            .put("LONG", "1234567890123")
+            .put("DOUBLE", "3.14159")
+            .put("BOOLEAN", "yes")
+            .put("INTEGER", "123456789012345678901234567890")
+            .put("DECIMAL", "12345.6789")
+            .put("HEXADECIMAL", "0xCAFEBABE")
+            .build();
+
+    @Param({ "STRING", "INT", "LONG", "DOUBLE", "BOOLEAN", "INTEGER", "DECIMAL", "HEXADECIMAL" })
+    public String type;
+
+    private ConstantPropertyProvider provider;
+    private ValueType<?> valueType;
+    private String key;
+    private String value;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        final Properties properties = new Properties();
+        VALUES.forEach((type, value) -> properties.setProperty("key." + type, value));
+
+        provider = ConstantPropertyProvider.fromProperties(properties);
+        valueType = (ValueType<?>) StandardValueTypes.class.getField(type).get(null);
+        key = "key." + type;
+        value = VALUES.get(type);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<?> getProperty1Thread() {
+        return provider.getProperty(key, valueType);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<?> getProperty8Threads() {
+        return provider.getProperty(key, valueType);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Optional<?> getProperty64Threads() {
+        return provider.getProperty(key, valueType);
+    }
+
+    /**
+     * Parses the value without the cache of the snapshot.
+     */
+    @Benchmark
+    @Threads(1)
+    public Optional<?> parseValue() {
+        return valueType.parseValue(value);
+    }
+
+}
@@ -0,0 +1,68 @@
+package de.vorb.properties;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import de.vorb.properties.event.PropertiesUpdate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of selecting the interested listeners of an update and calling them synchronously. The listeners are spread
+ * over 16 key prefixes and the update changes one key of every prefix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerFanOutBenchmark {
+
+    private static final int PREFIX_COUNT = 16;
+
+    @Param({ "1", "16", "256", "4096" })
+    public int listenerCount;
+
+    private ListenerTrie listeners;
+    private ListenerDispatcher dispatcher;
+    private PropertiesUpdate update;
+
+    private long handledUpdates;
+
+    @Setup
+    public void setUp() {
+        listeners = new ListenerTrie();
+        dispatcher = new ListenerDispatcher(null, 1, TimeUnit.SECONDS);
+
+        for (int i = 0; i < listenerCount; i++) {
+            listeners.addPrefixListener("component" + i % PREFIX_COUNT + ".", updateEvent -> handledUpdates++);
+        }
+
+        final Properties oldProperties = new Properties();
+        final Properties newProperties = new Properties();
+        for (int i = 0; i < PREFIX_COUNT; i++) {
+            oldProperties.setProperty("component" + i + ".key", "old");
+            newProperties.setProperty("component" + i + ".key", "new");
+        }
+
+        update = PropertiesUpdate.replacedProperties(oldProperties, newProperties);
+    }
+
+    @Benchmark
+    public long fanOut() {
+        dispatcher.dispatch(update, listeners);
+        return handledUpdates;
+    }
+
+}
@@ -0,0 +1,91 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a reload of a changed property file by a {@link FileWatchingPropertyProvider}: reading, parsing, publishing
+ * the new snapshot and computing the difference to the previous one. The file alternates between two versions that
+ * differ in every tenth value, so every reload sees a changed file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ReloadBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int keyCount;
+
+    @Param({ "false", "true" })
+    public boolean isParallel;
+
+    private Path directory;
+    private Path propertyFile;
+    private final byte[][] versions = new byte[2][];
+    private int invocationCount;
+
+    private FileWatchingPropertyProvider provider;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("reload-benchmark");
+        propertyFile = directory.resolve("reload-benchmark.properties");
+
+        final StringBuilder current = new StringBuilder();
+        final StringBuilder previous = new StringBuilder("# previous version\n");
+        for (int i = 0; i < keyCount; i++) {
+            final String key = "component" + i % 100 + ".key" + i;
+            current.append(key).append(" = value ").append(i).append('\n');
+            previous.append(key).append(" = ").append(i % 10 == 0 ? "old value" : "value " + i).append('\n');
+        }
+        versions[0] = previous.toString().getBytes(StandardCharsets.UTF_8);
+        versions[1] = current.toString().getBytes(StandardCharsets.UTF_8);
+
+        Files.write(propertyFile, versions[0]);
+
+        // the file is only reloaded by the benchmark
+        provider = FileWatchingPropertyProvider.builder(propertyFile)
+                .parallelParsingThreshold(isParallel ? 0 : Long.MAX_VALUE)
+                .pollingWatch(1, 1, TimeUnit.DAYS)
+                .build();
+    }
+
+    @Setup(Level.Invocation)
+    public void changeFile() throws IOException {
+        invocationCount++;
+        Files.write(propertyFile, versions[invocationCount % 2]);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        provider.close();
+        Files.deleteIfExists(propertyFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public boolean reload() {
+        return provider.reload();
+    }
+
+}
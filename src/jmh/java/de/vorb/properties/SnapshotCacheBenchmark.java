@@ -0,0 +1,92 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the initial entries of a provider on startup, by opening the snapshot cache, by decoding all of its entries
+ * and by reading and parsing the property file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotCacheBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int keyCount;
+
+    private Path directory;
+    private Path propertyFile;
+    private SnapshotCache snapshotCache;
+    private FileFingerprint fingerprint;
+
+    private final PropertiesParser parser = new PropertiesParser(StandardCharsets.UTF_8);
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-cache-benchmark");
+        propertyFile = directory.resolve("snapshot-cache-benchmark.properties");
+
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < keyCount; i++) {
+            content.append("component").append(i % 100).append(".key").append(i).append(" = value ").append(i)
+                    .append('\n');
+        }
+        Files.write(propertyFile, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        final BasicFileAttributes attributes = Files.readAttributes(propertyFile, BasicFileAttributes.class);
+        fingerprint = FileFingerprint.of(attributes, PropertiesParser.readFile(propertyFile), 0);
+
+        snapshotCache = SnapshotCache.forPropertyFile(directory, propertyFile, StandardCharsets.UTF_8,
+                StringPool.shared());
+        snapshotCache.write(fingerprint, parse());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotCache.getCacheFile());
+        Files.deleteIfExists(propertyFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public CachedEntries readCache() {
+        return snapshotCache.read(fingerprint);
+    }
+
+    @Benchmark
+    public PersistentPropertyMap decodeCache() {
+        return snapshotCache.read(fingerprint).toPropertyMap();
+    }
+
+    @Benchmark
+    public PersistentPropertyMap parse() throws IOException {
+        final ByteBuffer content = PropertiesParser.readFile(propertyFile);
+        final PropertyTable.Builder table = PropertyTable.builder();
+        parser.parse(content, table::put);
+
+        return PersistentPropertyMap.EMPTY.withEntriesOf(table.build());
+    }
+
+}
@@ -0,0 +1,191 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import de.vorb.properties.event.PropertiesUpdate;
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Base class of the {@link ObservablePropertyProvider}s, which publishes their snapshots and informs their
+ * {@link PropertiesUpdateListener}s and {@link PropertyHandle}s of the updates.
+ * <p>
+ * The current snapshot is only replaced while holding the lock of the provider and is volatile, so readers always see a
+ * completely initialized snapshot.
+ */
+abstract class AbstractObservablePropertyProvider implements ObservablePropertyProvider {
+
+    private volatile Snapshot snapshot;
+
+    private final ListenerTrie propertiesUpdateListeners = new ListenerTrie();
+    private final ListenerDispatcher listenerDispatcher;
+    private final PropertyHandleRegistry propertyHandles = new PropertyHandleRegistry();
+
+    /**
+     * Receives the measurements of the provider or is {@link MetricsSink#NONE}.
+     */
+    final MetricsSink metrics;
+
+    /**
+     * @param builder
+     *            settings of the provider
+     * @param metrics
+     *            receives the measurements of the dispatch of the updates, or {@link MetricsSink#NONE}
+     */
+    AbstractObservablePropertyProvider(BaseBuilder<?> builder, MetricsSink metrics) {
+        this.metrics = metrics;
+        this.listenerDispatcher = new ListenerDispatcher(builder.listenerExecutor, builder.slowListenerThresholdNanos,
+                TimeUnit.NANOSECONDS, metrics);
+    }
+
+    /**
+     * Publishes a new snapshot without informing the listeners. Only called while holding the lock of the provider.
+     *
+     * @param newSnapshot
+     *            the new snapshot
+     */
+    final void setSnapshot(Snapshot newSnapshot) {
+        snapshot = newSnapshot;
+    }
+
+    /**
+     * Informs the handles and listeners of the keys that differ between two snapshots.
+     *
+     * @param oldSnapshot
+     *            previously published snapshot
+     * @param newSnapshot
+     *            newly published snapshot
+     */
+    final void notifyUpdateListeners(Snapshot oldSnapshot, Snapshot newSnapshot) {
+        final boolean hasListeners = !propertiesUpdateListeners.isEmpty() || !propertyHandles.isEmpty();
+
+        // the difference is only computed for the metrics if nobody is listening
+        if (!hasListeners && metrics == MetricsSink.NONE) {
+            return;
+        }
+
+        // the difference is computed structurally, so the properties are only created if a listener needs them
+        final PropertiesUpdate updateEvent = new SnapshotUpdate(oldSnapshot, newSnapshot);
+        final Set<String> updatedPropertyKeys = updateEvent.getUpdatedPropertyKeys();
+
+        metrics.recordDiffSize(updatedPropertyKeys.size());
+
+        if (updatedPropertyKeys.isEmpty() || !hasListeners) {
+            return;
+        }
+
+        propertyHandles.update(newSnapshot, updatedPropertyKeys);
+        listenerDispatcher.dispatch(updateEvent, propertiesUpdateListeners);
+    }
+
+    @Override
+    public void addPropertiesUpdateListener(PropertiesUpdateListener listener) {
+        propertiesUpdateListeners.addPrefixListener("", listener);
+    }
+
+    @Override
+    public void addPropertiesUpdateListener(String keyPrefix, PropertiesUpdateListener listener) {
+        propertiesUpdateListeners.addPrefixListener(Preconditions.checkNotNull(keyPrefix, "keyPrefix"), listener);
+    }
+
+    @Override
+    public void addPropertiesUpdateListenerForKey(String key, PropertiesUpdateListener listener) {
+        propertiesUpdateListeners.addKeyListener(Preconditions.checkNotNull(key, "key"), listener);
+    }
+
+    @Override
+    public void removePropertiesUpdateListener(PropertiesUpdateListener listener) {
+        propertiesUpdateListeners.remove(listener);
+        listenerDispatcher.remove(listener);
+    }
+
+    @Override
+    public <T> PropertyHandle<T> handle(String key, ValueType<T> type, T defaultValue) {
+        return propertyHandles.register(this::snapshot, key, type, defaultValue);
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public Properties getProperties() {
+        return snapshot.getProperties();
+    }
+
+    @Override
+    public <T> Optional<T> getProperty(String key, ValueType<T> type) {
+        return snapshot.getProperty(key, type);
+    }
+
+    @Override
+    public <T> T getPropertyOrDefaultValue(String key, T defaultValue, ValueType<T> type) {
+        return getProperty(key, type).orElse(defaultValue);
+    }
+
+    /**
+     * Settings that all {@link ObservablePropertyProvider}s share.
+     *
+     * @param <B>
+     *            type of the concrete builder
+     */
+    abstract static class BaseBuilder<B extends BaseBuilder<B>> {
+
+        Executor listenerExecutor;
+        AccessProfiler accessProfiler;
+        long slowListenerThresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+                FileWatchingPropertyProvider.Builder.DEFAULT_SLOW_LISTENER_THRESHOLD_MILLIS);
+
+        /**
+         * @return this builder
+         */
+        abstract B self();
+
+        /**
+         * Dispatches updates to listeners asynchronously on the given executor instead of the thread that updates the
+         * properties. Every listener receives its updates in order. Updates that queue up for a listener that is still
+         * busy are coalesced into a single update, so the listener only sees the latest properties.
+         *
+         * @param listenerExecutor
+         *            executor that calls the listeners
+         * @return this builder
+         */
+        public B listenerExecutor(Executor listenerExecutor) {
+            this.listenerExecutor = Preconditions.checkNotNull(listenerExecutor, "listenerExecutor");
+            return self();
+        }
+
+        /**
+         * @param slowListenerThreshold
+         *            time after which a listener that is still handling an update is reported as slow
+         * @param unit
+         *            unit of {@code slowListenerThreshold}
+         * @return this builder
+         */
+        public B slowListenerThreshold(long slowListenerThreshold, TimeUnit unit) {
+            Preconditions.checkArgument(slowListenerThreshold >= 0, "Negative slow listener threshold");
+
+            this.slowListenerThresholdNanos = unit.toNanos(slowListenerThreshold);
+            return self();
+        }
+
+        /**
+         * Counts the typed reads of all snapshots of the provider per key.
+         *
+         * @param accessProfiler
+         *            profiler of the reads
+         * @return this builder
+         */
+        public B accessProfiler(AccessProfiler accessProfiler) {
+            this.accessProfiler = Preconditions.checkNotNull(accessProfiler, "accessProfiler");
+            return self();
+        }
+    }
+
+}
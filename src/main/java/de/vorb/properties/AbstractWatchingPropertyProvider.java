@@ -0,0 +1,149 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Base class of the providers that read property files and watch them for changes.
+ */
+abstract class AbstractWatchingPropertyProvider extends AbstractObservablePropertyProvider {
+
+    /**
+     * @param builder
+     *            settings of the provider
+     * @param metrics
+     *            receives the measurements of the dispatch of the updates, or {@link MetricsSink#NONE}
+     */
+    AbstractWatchingPropertyProvider(WatchingBuilder<?> builder, MetricsSink metrics) {
+        super(builder, metrics);
+    }
+
+    /**
+     * @param builder
+     *            settings of the provider
+     * @return the polling engine if polling has been requested, otherwise the shared watch services
+     */
+    final WatchEngine createWatchEngine(WatchingBuilder<?> builder) {
+        final WatchEngine pollingEngine = PollingWatchEngine.shared().withIntervals(builder.minPollingIntervalNanos,
+                builder.maxPollingIntervalNanos, TimeUnit.NANOSECONDS);
+
+        return builder.isPolling ? pollingEngine
+                : WatchServiceMultiplexer.shared().asWatchEngine(this::createWatchService, pollingEngine);
+    }
+
+    /**
+     * Creates the watch service of the file system of {@code path}. Since watch services are shared between all
+     * providers, this is only called if no other provider watches a file on the same file system.
+     *
+     * @param path
+     *            watched directory
+     * @return new watch service
+     * @throws IOException
+     *             if the watch service cannot be created
+     */
+    protected WatchService createWatchService(Path path) throws IOException {
+        return path.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Settings that all providers of watched property files share.
+     *
+     * @param <B>
+     *            type of the concrete builder
+     */
+    abstract static class WatchingBuilder<B extends WatchingBuilder<B>> extends BaseBuilder<B> {
+
+        Properties defaults = new Properties();
+        Charset charset = StandardCharsets.UTF_8;
+        long quietPeriodNanos = TimeUnit.MILLISECONDS.toNanos(
+                FileWatchingPropertyProvider.Builder.DEFAULT_QUIET_PERIOD_MILLIS);
+        long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(
+                FileWatchingPropertyProvider.Builder.DEFAULT_MAX_DELAY_MILLIS);
+        boolean isPolling;
+        long minPollingIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                FileWatchingPropertyProvider.Builder.DEFAULT_MIN_POLLING_INTERVAL_MILLIS);
+        long maxPollingIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                FileWatchingPropertyProvider.Builder.DEFAULT_MAX_POLLING_INTERVAL_MILLIS);
+
+        /**
+         * @param defaults
+         *            default properties, which are copied when the provider is built
+         * @return this builder
+         */
+        public B defaults(Properties defaults) {
+            this.defaults = Preconditions.checkNotNull(defaults, "defaults");
+            return self();
+        }
+
+        /**
+         * @param charset
+         *            encoding of the property files, either UTF-8 (the default) or ISO-8859-1
+         * @return this builder
+         */
+        public B charset(Charset charset) {
+            Preconditions.checkArgument(
+                    StandardCharsets.UTF_8.equals(charset) || StandardCharsets.ISO_8859_1.equals(charset),
+                    "Unsupported charset %s", charset);
+
+            this.charset = charset;
+            return self();
+        }
+
+        /**
+         * Configures how bursts of file system events are coalesced. Changed property files are read once no event has
+         * been received for {@code quietPeriod}, but no later than {@code maxDelay} after the first event of a burst.
+         *
+         * @param quietPeriod
+         *            time without events after which the files are read
+         * @param maxDelay
+         *            maximum time between the first event of a burst and the reload, at least {@code quietPeriod}
+         * @param unit
+         *            unit of {@code quietPeriod} and {@code maxDelay}
+         * @return this builder
+         */
+        public B debounce(long quietPeriod, long maxDelay, TimeUnit unit) {
+            Preconditions.checkArgument(quietPeriod >= 0, "Negative quiet period");
+            Preconditions.checkArgument(maxDelay >= quietPeriod, "Maximum delay is shorter than the quiet period");
+
+            this.quietPeriodNanos = unit.toNanos(quietPeriod);
+            this.maxDelayNanos = unit.toNanos(maxDelay);
+            return self();
+        }
+
+        /**
+         * Detects changes of the property files by polling their modification time, size and file key instead of
+         * listening to the events of a {@link WatchService}, whose events might be late or missing on network mounts and
+         * overlay file systems. The files are checked at {@code minInterval} after a change, and the interval doubles
+         * up to {@code maxInterval} while they are unchanged.
+         * <p>
+         * Files whose file system does not support watch services are polled with the default intervals even without
+         * this setting.
+         *
+         * @param minInterval
+         *            interval after a change of a file
+         * @param maxInterval
+         *            interval after a long time without changes, at least {@code minInterval}
+         * @param unit
+         *            unit of {@code minInterval} and {@code maxInterval}
+         * @return this builder
+         */
+        public B pollingWatch(long minInterval, long maxInterval, TimeUnit unit) {
+            Preconditions.checkArgument(minInterval > 0, "Polling interval must be positive");
+            Preconditions.checkArgument(maxInterval >= minInterval,
+                    "Maximum polling interval is shorter than the minimum polling interval");
+
+            this.isPolling = true;
+            this.minPollingIntervalNanos = unit.toNanos(minInterval);
+            this.maxPollingIntervalNanos = unit.toNanos(maxInterval);
+            return self();
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package de.vorb.properties;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Counts typed reads per property key, which shows the keys that are read on hot paths and the keys that are never
+ * read at all.
+ * <p>
+ * A profiler is attached to a provider when it is built and counts all typed reads of every snapshot of that provider
+ * and every {@link PropertyHandle#get()} of its handles. Only reads of defined keys are counted, and values that are
+ * parsed by the library itself, e.g. to update handles, are not counted. The accessors of a {@link ConfigBinding} read
+ * a backing array, so instead of their calls, every bind and rebind counts one read per bound key. Reads are counted
+ * in {@link LongAdder}s, so concurrent readers of the same key do not contend. A sampling profiler only counts every
+ * n-th read on average and scales the counts accordingly, which reduces the overhead for very hot keys, but might report
+ * rarely read keys as unread.
+ */
+public final class AccessProfiler {
+
+    private final int samplingInterval;
+    private final ConcurrentMap<String, LongAdder> readCounts = new ConcurrentHashMap<>();
+
+    private AccessProfiler(int samplingInterval) {
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * @return new profiler that counts every read
+     */
+    public static AccessProfiler create() {
+        return new AccessProfiler(1);
+    }
+
+    /**
+     * @param samplingInterval
+     *            average number of reads per counted read
+     * @return new profiler that counts randomly sampled reads
+     */
+    public static AccessProfiler sampled(int samplingInterval) {
+        Preconditions.checkArgument(samplingInterval > 0, "Sampling interval must be positive");
+
+        return new AccessProfiler(samplingInterval);
+    }
+
+    /**
+     * @param key
+     *            key of a property that has been read
+     */
+    void recordRead(String key) {
+        if (samplingInterval > 1 && ThreadLocalRandom.current().nextInt(samplingInterval) != 0) {
+            return;
+        }
+
+        LongAdder readCount = readCounts.get(key);
+        if (readCount == null) {
+            readCount = readCounts.computeIfAbsent(key, k -> new LongAdder());
+        }
+
+        readCount.add(samplingInterval);
+    }
+
+    /**
+     * @param key
+     *            key of a property
+     * @return (estimated) number of reads of the property
+     */
+    public long getReadCount(String key) {
+        final LongAdder readCount = readCounts.get(key);
+        return readCount == null ? 0 : readCount.sum();
+    }
+
+    /**
+     * @param limit
+     *            maximum number of returned keys
+     * @return the most frequently read keys with their (estimated) number of reads in descending order
+     */
+    public Map<String, Long> getHotKeys(int limit) {
+        Preconditions.checkArgument(limit >= 0, "Negative limit");
+
+        final Map<String, Long> hotKeys = new LinkedHashMap<>();
+
+        readCounts.entrySet().stream()
+                .map(entry -> new KeyReadCount(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong((KeyReadCount entry) -> entry.readCount).reversed()
+                        .thenComparing(entry -> entry.key))
+                .limit(limit)
+                .forEachOrdered(entry -> hotKeys.put(entry.key, entry.readCount));
+
+        return hotKeys;
+    }
+
+    /**
+     * @param snapshot
+     *            snapshot whose keys are checked
+     * @return sorted keys of the snapshot, including defaults, that have never been read
+     */
+    public Set<String> getUnreadKeys(Snapshot snapshot) {
+        final Set<String> unreadKeys = new TreeSet<>();
+
+        snapshot.forEachEntry((key, value) -> {
+            if (!readCounts.containsKey(key)) {
+                unreadKeys.add(key);
+            }
+        });
+
+        return unreadKeys;
+    }
+
+    /**
+     * Forgets all counted reads.
+     */
+    public void reset() {
+        readCounts.clear();
+    }
+
+    private static final class KeyReadCount {
+        private final String key;
+        private final long readCount;
+
+        private KeyReadCount(String key, long readCount) {
+            this.key = key;
+            this.readCount = readCount;
+        }
+    }
+
+}
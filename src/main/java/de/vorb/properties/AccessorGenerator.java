@@ -0,0 +1,356 @@
+package de.vorb.properties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Generates implementations of configuration interfaces whose accessors read their values from a backing array.
+ * <p>
+ * The generated class has a private final field <code>values</code> of type <code>AtomicReference&lt;Object[]&gt;</code>,
+ * which is passed to its only constructor. The accessor with index <code>i</code> returns <code>values.get()[i]</code>,
+ * which is unboxed for primitive return types. The values can therefore only be replaced by the owner of the reference,
+ * although the class is defined in another class loader and cannot see any package-private type of this package. The
+ * accessors are straight-line code without reflection or proxy dispatch, so the JIT compiler can inline them like any
+ * other getter. Since they contain no branches, the class file needs no stack map frames.
+ */
+final class AccessorGenerator {
+
+    private static final String VALUES_FIELD = "values";
+
+    private static final String REFERENCE_CLASS = "java/util/concurrent/atomic/AtomicReference";
+    private static final String REFERENCE_DESCRIPTOR = "L" + REFERENCE_CLASS + ";";
+    private static final String CONSTRUCTOR_DESCRIPTOR = "(" + REFERENCE_DESCRIPTOR + ")V";
+    private static final String VALUES_ARRAY_CLASS = "[Ljava/lang/Object;";
+
+    private static final int JAVA_8_CLASS_FILE_VERSION = 52;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int SIPUSH = 0x11;
+    private static final int AALOAD = 0x32;
+    private static final int IRETURN = 0xac;
+    private static final int LRETURN = 0xad;
+    private static final int FRETURN = 0xae;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int CHECKCAST = 0xc0;
+
+    private static final Map<Class<?>, Class<?>> BOXES = ImmutableMap.<Class<?>, Class<?>> builder()
+            .put(boolean.class, Boolean.class)
+            .put(byte.class, Byte.class)
+            .put(char.class, Character.class)
+            .put(short.class, Short.class)
+            .put(int.class, Integer.class)
+            .put(long.class, Long.class)
+            .put(float.class, Float.class)
+            .put(double.class, Double.class)
+            .build();
+
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    private AccessorGenerator() {
+    }
+
+    /**
+     * Generates and loads an implementation of a public interface. Every call defines a new class, so callers should
+     * generate the implementation of an interface only once.
+     *
+     * @param type
+     *            public interface whose abstract methods are all given as accessors
+     * @param accessors
+     *            methods without parameters in the order of their values in the backing array
+     * @return the generated class, whose public constructor takes the <code>AtomicReference&lt;Object[]&gt;</code> of
+     *         the backing array
+     */
+    static Class<?> generate(Class<?> type, List<Method> accessors) {
+        Preconditions.checkArgument(type.isInterface() && Modifier.isPublic(type.getModifiers()),
+                "%s is no public interface", type.getName());
+        Preconditions.checkArgument(accessors.size() <= Short.MAX_VALUE, "Too many accessors");
+
+        final String className = type.getName() + "$$Binding" + classCounter.incrementAndGet();
+        final byte[] classFile = createClassFile(internalName(className), type, accessors);
+
+        return new GeneratedClassLoader(type.getClassLoader()).define(className, classFile);
+    }
+
+    private static byte[] createClassFile(String className, Class<?> type, List<Method> accessors) {
+        final ConstantPool constantPool = new ConstantPool();
+
+        final int thisClass = constantPool.classInfo(className);
+        final int superClass = constantPool.classInfo("java/lang/Object");
+        final int interfaceClass = constantPool.classInfo(internalName(type.getName()));
+        final int codeAttribute = constantPool.utf8("Code");
+        final int valuesName = constantPool.utf8(VALUES_FIELD);
+        final int valuesDescriptor = constantPool.utf8(REFERENCE_DESCRIPTOR);
+        final int valuesField = constantPool.fieldRef(className, VALUES_FIELD, REFERENCE_DESCRIPTOR);
+        final int getValues = constantPool.methodRef(REFERENCE_CLASS, "get", "()Ljava/lang/Object;");
+        final int valuesArrayClass = constantPool.classInfo(VALUES_ARRAY_CLASS);
+
+        try {
+            final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+            final DataOutputStream methods = new DataOutputStream(methodBytes);
+
+            // constructor
+            final Code constructor = new Code();
+            constructor.op(ALOAD_0);
+            constructor.op(INVOKESPECIAL).u2(constantPool.methodRef("java/lang/Object", "<init>", "()V"));
+            constructor.op(ALOAD_0);
+            constructor.op(ALOAD_1);
+            constructor.op(PUTFIELD).u2(valuesField);
+            constructor.op(RETURN);
+            writeMethod(methods, ACC_PUBLIC, constantPool.utf8("<init>"), constantPool.utf8(CONSTRUCTOR_DESCRIPTOR),
+                    codeAttribute, 2, 2, constructor);
+
+            for (int i = 0; i < accessors.size(); i++) {
+                final Method accessor = accessors.get(i);
+                final Class<?> returnType = accessor.getReturnType();
+                final Class<?> box = BOXES.getOrDefault(returnType, returnType);
+
+                final Code code = new Code();
+                code.op(ALOAD_0);
+                code.op(GETFIELD).u2(valuesField);
+                code.op(INVOKEVIRTUAL).u2(getValues);
+                code.op(CHECKCAST).u2(valuesArrayClass);
+                code.op(SIPUSH).u2(i);
+                code.op(AALOAD);
+
+                if (box != Object.class) {
+                    code.op(CHECKCAST).u2(constantPool.classInfo(internalName(box.getName())));
+                }
+
+                if (returnType.isPrimitive()) {
+                    final String unboxMethod = returnType.getName() + "Value";
+                    code.op(INVOKEVIRTUAL).u2(constantPool.methodRef(internalName(box.getName()), unboxMethod,
+                            "()" + descriptor(returnType)));
+                }
+
+                code.op(returnOpcode(returnType));
+
+                writeMethod(methods, ACC_PUBLIC | ACC_FINAL, constantPool.utf8(accessor.getName()),
+                        constantPool.utf8("()" + descriptor(returnType)), codeAttribute, 2, 1, code);
+            }
+
+            methods.flush();
+
+            final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+            final DataOutputStream classFile = new DataOutputStream(classBytes);
+
+            classFile.writeInt(0xCAFEBABE);
+            classFile.writeShort(0);
+            classFile.writeShort(JAVA_8_CLASS_FILE_VERSION);
+            constantPool.writeTo(classFile);
+            classFile.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            classFile.writeShort(thisClass);
+            classFile.writeShort(superClass);
+            classFile.writeShort(1);
+            classFile.writeShort(interfaceClass);
+
+            classFile.writeShort(1);
+            classFile.writeShort(ACC_PRIVATE | ACC_FINAL);
+            classFile.writeShort(valuesName);
+            classFile.writeShort(valuesDescriptor);
+            classFile.writeShort(0);
+
+            classFile.writeShort(accessors.size() + 1);
+            methodBytes.writeTo(classFile);
+
+            classFile.writeShort(0);
+            classFile.flush();
+
+            return classBytes.toByteArray();
+        } catch (IOException e) {
+            // cannot happen with in-memory streams
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeMethod(DataOutputStream methods, int accessFlags, int name, int descriptor,
+            int codeAttribute, int maxStack, int maxLocals, Code code) throws IOException {
+        methods.writeShort(accessFlags);
+        methods.writeShort(name);
+        methods.writeShort(descriptor);
+        methods.writeShort(1);
+
+        methods.writeShort(codeAttribute);
+        methods.writeInt(12 + code.size());
+        methods.writeShort(maxStack);
+        methods.writeShort(maxLocals);
+        methods.writeInt(code.size());
+        code.writeTo(methods);
+        methods.writeShort(0);
+        methods.writeShort(0);
+    }
+
+    private static int returnOpcode(Class<?> returnType) {
+        if (returnType == long.class) {
+            return LRETURN;
+        } else if (returnType == float.class) {
+            return FRETURN;
+        } else if (returnType == double.class) {
+            return DRETURN;
+        } else if (returnType.isPrimitive()) {
+            return IRETURN;
+        } else {
+            return ARETURN;
+        }
+    }
+
+    private static String internalName(String className) {
+        return className.replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type.isArray()) {
+            return internalName(type.getName());
+        } else if (!type.isPrimitive()) {
+            return "L" + internalName(type.getName()) + ";";
+        } else if (type == boolean.class) {
+            return "Z";
+        } else if (type == long.class) {
+            return "J";
+        } else {
+            return type.getName().substring(0, 1).toUpperCase();
+        }
+    }
+
+    /**
+     * Bytecode of a single method.
+     */
+    private static final class Code extends ByteArrayOutputStream {
+
+        private Code op(int opcode) {
+            write(opcode);
+            return this;
+        }
+
+        private Code u2(int value) {
+            write(value >>> 8);
+            write(value);
+            return this;
+        }
+    }
+
+    /**
+     * Constant pool that stores every constant only once.
+     */
+    private static final class ConstantPool {
+
+        private static final int CONSTANT_UTF8 = 1;
+        private static final int CONSTANT_CLASS = 7;
+        private static final int CONSTANT_FIELD_REF = 9;
+        private static final int CONSTANT_METHOD_REF = 10;
+        private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream entries = new DataOutputStream(bytes);
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private int utf8(String value) {
+            return add("U" + value, () -> {
+                entries.writeByte(CONSTANT_UTF8);
+                entries.writeUTF(value);
+            });
+        }
+
+        private int classInfo(String internalName) {
+            final int name = utf8(internalName);
+            return add("C" + internalName, () -> {
+                entries.writeByte(CONSTANT_CLASS);
+                entries.writeShort(name);
+            });
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            return add("N" + name + ' ' + descriptor, () -> {
+                entries.writeByte(CONSTANT_NAME_AND_TYPE);
+                entries.writeShort(nameIndex);
+                entries.writeShort(descriptorIndex);
+            });
+        }
+
+        private int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(CONSTANT_FIELD_REF, owner, name, descriptor);
+        }
+
+        private int methodRef(String owner, String name, String descriptor) {
+            return memberRef(CONSTANT_METHOD_REF, owner, name, descriptor);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            final int ownerIndex = classInfo(owner);
+            final int nameAndTypeIndex = nameAndType(name, descriptor);
+            return add("M" + tag + owner + ' ' + name + ' ' + descriptor, () -> {
+                entries.writeByte(tag);
+                entries.writeShort(ownerIndex);
+                entries.writeShort(nameAndTypeIndex);
+            });
+        }
+
+        private int add(String key, EntryWriter writer) {
+            final Integer existingIndex = indexes.get(key);
+            if (existingIndex != null) {
+                return existingIndex;
+            }
+
+            try {
+                writer.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            // constant pool indexes start at 1
+            final int index = indexes.size() + 1;
+            indexes.put(key, index);
+            return index;
+        }
+
+        private void writeTo(DataOutputStream classFile) throws IOException {
+            entries.flush();
+            classFile.writeShort(indexes.size() + 1);
+            bytes.writeTo(classFile);
+        }
+
+        @FunctionalInterface
+        private interface EntryWriter {
+            void write() throws IOException;
+        }
+    }
+
+    /**
+     * Defines the generated classes as children of the class loader of the implemented interface.
+     */
+    private static final class GeneratedClassLoader extends ClassLoader {
+
+        private GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String className, byte[] classFile) {
+            return defineClass(className, classFile, 0, classFile.length);
+        }
+    }
+
+}
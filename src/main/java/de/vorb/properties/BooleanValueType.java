@@ -0,0 +1,28 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+
+/**
+ * Value type that parses string values into primitive <code>boolean</code> values without boxing.
+ */
+public interface BooleanValueType extends ValueType<Boolean> {
+
+    /**
+     * Parses a string value into a primitive <code>boolean</code>.
+     * 
+     * @param value
+     *            string representation of the value, must not be <code>null</code>
+     * @return parsed value
+     */
+    boolean parseBoolean(String value);
+
+    @Override
+    default Optional<Boolean> parseValue(String value) {
+        if (value == null) {
+            return Optional.empty();
+        } else {
+            return Optional.of(parseBoolean(value));
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+package de.vorb.properties;
+
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Entries of a {@link SnapshotCache} file that are looked up directly in the (usually memory-mapped) content of the
+ * file, so a provider can start from a large cache file without decoding all of its entries first.
+ * <p>
+ * The cache file contains an open-addressing hash table of the offsets of all entries, whose slots are indexed by the
+ * spread hash code of the key. A lookup probes the table, compares the key with the UTF-16 chars in the content and
+ * only decodes the value of the requested entry. All entries are decoded into a {@link PersistentPropertyMap} once they
+ * are needed as a whole, e.g. by the first reload, which compares and shares them structurally.
+ * <p>
+ * Lookups are thread-safe, since they only use absolute reads of the content.
+ */
+final class CachedEntries {
+
+    /**
+     * Marks an empty slot of the hash table.
+     */
+    static final int EMPTY_SLOT = -1;
+
+    /**
+     * Length of the fixed fields of an entry: hash code of the key, length of the key and length of the value.
+     */
+    static final int ENTRY_HEADER_LENGTH = 12;
+
+    private final ByteBuffer content;
+    private final int tableOffset;
+    private final int mask;
+    private final int entriesOffset;
+    private final int size;
+    private final StringPool stringPool;
+
+    /**
+     * All entries once they have been decoded or <code>null</code>. Only written while holding the lock of this object.
+     */
+    private volatile PersistentPropertyMap propertyMap;
+
+    /**
+     * @param content
+     *            content of the cache file, which is only read with absolute offsets
+     * @param tableOffset
+     *            offset of the hash table
+     * @param tableCapacity
+     *            number of slots of the hash table, a power of two that is greater than {@code size}
+     * @param size
+     *            number of entries, which directly follow the hash table
+     * @param stringPool
+     *            pool of the decoded keys and values
+     * @throws IllegalArgumentException
+     *             if the hash table is malformed
+     */
+    CachedEntries(ByteBuffer content, int tableOffset, int tableCapacity, int size, StringPool stringPool) {
+        Preconditions.checkArgument(size >= 0 && tableCapacity > size && Integer.bitCount(tableCapacity) == 1,
+                "Invalid table capacity %s for %s entries", tableCapacity, size);
+        Preconditions.checkArgument((long) tableOffset + 4L * tableCapacity <= content.limit(), "Truncated table");
+
+        this.content = content;
+        this.tableOffset = tableOffset;
+        this.mask = tableCapacity - 1;
+        this.entriesOffset = tableOffset + 4 * tableCapacity;
+        this.size = size;
+        this.stringPool = stringPool;
+
+        // the content is covered by a checksum, so only the offsets are checked to keep lookups in bounds
+        int usedSlotCount = 0;
+        for (int slot = 0; slot < tableCapacity; slot++) {
+            final int offset = content.getInt(tableOffset + 4 * slot);
+
+            if (offset != EMPTY_SLOT) {
+                Preconditions.checkArgument(offset >= entriesOffset && offset <= content.limit() - ENTRY_HEADER_LENGTH,
+                        "Invalid entry offset %s", offset);
+                usedSlotCount++;
+            }
+        }
+
+        Preconditions.checkArgument(usedSlotCount == size, "Table has %s entries instead of %s", usedSlotCount, size);
+    }
+
+    /**
+     * @param size
+     *            number of entries
+     * @return number of slots of the hash table of the given number of entries
+     */
+    static int tableCapacityFor(int size) {
+        return Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+    }
+
+    /**
+     * @param hashCode
+     *            hash code of a key
+     * @param tableCapacity
+     *            number of slots of the hash table
+     * @return first slot that is probed for the key
+     */
+    static int slotOf(int hashCode, int tableCapacity) {
+        return (hashCode ^ (hashCode >>> 16)) & (tableCapacity - 1);
+    }
+
+    /**
+     * @param key
+     *            key of the requested property
+     * @return the value of the property or <code>null</code> if it is undefined
+     */
+    String get(String key) {
+        final PersistentPropertyMap decoded = propertyMap;
+        if (decoded != null) {
+            return decoded.get(key);
+        }
+
+        final int hashCode = key.hashCode();
+
+        for (int slot = slotOf(hashCode, mask + 1);; slot = (slot + 1) & mask) {
+            final int offset = content.getInt(tableOffset + 4 * slot);
+
+            if (offset == EMPTY_SLOT) {
+                return null;
+            }
+
+            if (content.getInt(offset) == hashCode && keyEquals(offset, key)) {
+                final int valueOffset = offset + 8 + 2 * key.length();
+                return decode(valueOffset + 4, readLength(valueOffset));
+            }
+        }
+    }
+
+    /**
+     * @return number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return all entries, which are decoded on the first call
+     */
+    PersistentPropertyMap toPropertyMap() {
+        PersistentPropertyMap decoded = propertyMap;
+
+        if (decoded == null) {
+            synchronized (this) {
+                decoded = propertyMap;
+
+                if (decoded == null) {
+                    final PersistentPropertyMap.Builder builder = PersistentPropertyMap.EMPTY.toBuilder();
+                    forEach(builder::put);
+                    decoded = builder.build();
+                    propertyMap = decoded;
+                }
+            }
+        }
+
+        return decoded;
+    }
+
+    /**
+     * Decodes every entry in the order of the cache file.
+     *
+     * @param action
+     *            called for every entry
+     */
+    void forEach(BiConsumer<String, String> action) {
+        int offset = entriesOffset;
+
+        for (int i = 0; i < size; i++) {
+            final int keyLength = readLength(offset + 4);
+            final String key = decode(offset + 8, keyLength);
+
+            final int valueOffset = offset + 8 + 2 * keyLength;
+            final int valueLength = readLength(valueOffset);
+            final String value = decode(valueOffset + 4, valueLength);
+
+            action.accept(key, value);
+            offset = valueOffset + 4 + 2 * valueLength;
+        }
+    }
+
+    private boolean keyEquals(int offset, String key) {
+        if (readLength(offset + 4) != key.length()) {
+            return false;
+        }
+
+        final int charsOffset = offset + 8;
+        for (int i = 0; i < key.length(); i++) {
+            if (content.getChar(charsOffset + 2 * i) != key.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int readLength(int offset) {
+        final int length = content.getInt(offset);
+
+        Preconditions.checkArgument(length >= 0 && length <= (content.limit() - offset - 4) / 2,
+                "Invalid length %s", length);
+
+        return length;
+    }
+
+    private String decode(int offset, int length) {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = content.getChar(offset + 2 * i);
+        }
+
+        return stringPool.get(chars, 0, length);
+    }
+
+}
@@ -0,0 +1,201 @@
+package de.vorb.properties;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.BiConsumer;
+
+import de.vorb.properties.event.PropertiesUpdate;
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A {@link PropertyProvider} that stacks several layers of properties, e.g. a base file, a regional file and a local
+ * override. The value of a property is taken from the layer with the highest priority that defines it.
+ * <p>
+ * The winning values of all layers are kept in a single flattened snapshot, so looking up a property takes a single
+ * hash lookup regardless of the number of layers. Whenever an {@link ObservablePropertyProvider} layer is updated, only
+ * the updated keys of that layer are resolved again, and the registered {@link PropertiesUpdateListener}s are informed
+ * of the keys whose effective value has changed. Keys that are overridden by a layer with a higher priority are
+ * therefore not reported. Other layers are expected to be constant.
+ * <p>
+ * An {@link AccessProfiler} of the composite only counts the typed reads of the composite itself, not those of its
+ * layers.
+ */
+public class CompositePropertyProvider extends AbstractObservablePropertyProvider implements Closeable {
+
+    private static final Properties NO_DEFAULTS = new Properties();
+
+    /**
+     * Layers in order of increasing priority.
+     */
+    private final List<PropertyProvider> layers;
+
+    private final PropertiesUpdateListener layerListener = this::updateLayer;
+
+    CompositePropertyProvider(Builder builder) {
+        super(builder, MetricsSink.NONE);
+
+        Preconditions.checkArgument(!builder.layers.isEmpty(), "No layers");
+
+        this.layers = ImmutableList.copyOf(builder.layers);
+
+        synchronized (this) {
+            // updates that happen before the initial snapshot has been published wait for the lock
+            for (PropertyProvider layer : layers) {
+                if (layer instanceof ObservablePropertyProvider) {
+                    ((ObservablePropertyProvider) layer).addPropertiesUpdateListener(layerListener);
+                }
+            }
+
+            final PersistentPropertyMap.Builder entries = PersistentPropertyMap.EMPTY.toBuilder();
+            for (PropertyProvider layer : layers) {
+                forEachEntry(layer, entries::put);
+            }
+
+            setSnapshot(new Snapshot(0, entries.build(), NO_DEFAULTS, builder.accessProfiler));
+        }
+    }
+
+    /**
+     * Resolves the keys that have been updated in one of the layers and publishes a new snapshot if any effective value
+     * has changed.
+     */
+    private synchronized void updateLayer(PropertiesUpdate layerUpdate) {
+        final Snapshot oldSnapshot = snapshot();
+        final PersistentPropertyMap.Builder entries = oldSnapshot.getEntries().toBuilder();
+
+        for (String key : layerUpdate.getUpdatedPropertyKeys()) {
+            final String value = resolve(key);
+
+            if (value == null) {
+                entries.remove(key);
+            } else {
+                entries.put(key, value);
+            }
+        }
+
+        final PersistentPropertyMap newEntries = entries.build();
+
+        if (newEntries == oldSnapshot.getEntries()) {
+            // all updated keys are overridden by other layers
+            return;
+        }
+
+        final Snapshot newSnapshot = oldSnapshot.next(newEntries);
+        setSnapshot(newSnapshot);
+
+        notifyUpdateListeners(oldSnapshot, newSnapshot);
+    }
+
+    /**
+     * @return the value of the layer with the highest priority that defines the key or <code>null</code>
+     */
+    private String resolve(String key) {
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            final String value = getValue(layers.get(i), key);
+
+            if (value != null) {
+                return value;
+            }
+        }
+
+        return null;
+    }
+
+    private static String getValue(PropertyProvider layer, String key) {
+        if (layer instanceof ObservablePropertyProvider) {
+            return ((ObservablePropertyProvider) layer).snapshot().getUntypedValue(key);
+        } else if (layer instanceof ConstantPropertyProvider) {
+            return ((ConstantPropertyProvider) layer).snapshot().getUntypedValue(key);
+        } else {
+            return layer.getProperties().getProperty(key);
+        }
+    }
+
+    private static void forEachEntry(PropertyProvider layer, BiConsumer<String, String> action) {
+        if (layer instanceof ObservablePropertyProvider) {
+            ((ObservablePropertyProvider) layer).snapshot().forEachEntry(action);
+        } else if (layer instanceof ConstantPropertyProvider) {
+            ((ConstantPropertyProvider) layer).snapshot().forEachEntry(action);
+        } else {
+            final Properties properties = layer.getProperties();
+            for (String key : properties.stringPropertyNames()) {
+                action.accept(key, properties.getProperty(key));
+            }
+        }
+    }
+
+    /**
+     * Stops listening to updates of the layers. The layers themselves are not closed and the current properties remain
+     * available.
+     */
+    @Override
+    public void close() {
+        for (PropertyProvider layer : layers) {
+            if (layer instanceof ObservablePropertyProvider) {
+                ((ObservablePropertyProvider) layer).removePropertiesUpdateListener(layerListener);
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@link CompositePropertyProvider} from the given layers.
+     *
+     * @param layers
+     *            layers in order of increasing priority, i.e. the last layer overrides all others
+     * @return new {@link CompositePropertyProvider}
+     */
+    public static CompositePropertyProvider ofLayers(PropertyProvider... layers) {
+        final Builder builder = builder();
+        Arrays.stream(layers).forEach(builder::layer);
+        return builder.build();
+    }
+
+    /**
+     * @return new {@link Builder} without any layers
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for {@link CompositePropertyProvider}s.
+     */
+    public static final class Builder extends BaseBuilder<Builder> {
+
+        private final List<PropertyProvider> layers = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        @Override
+        Builder self() {
+            return this;
+        }
+
+        /**
+         * Adds a layer that overrides all previously added layers.
+         *
+         * @param layer
+         *            layer with a higher priority than all previously added layers
+         * @return this builder
+         */
+        public Builder layer(PropertyProvider layer) {
+            layers.add(Preconditions.checkNotNull(layer, "layer"));
+            return this;
+        }
+
+        /**
+         * @return new {@link CompositePropertyProvider}
+         */
+        public CompositePropertyProvider build() {
+            return new CompositePropertyProvider(this);
+        }
+    }
+
+}
@@ -0,0 +1,281 @@
+package de.vorb.properties;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Binds a configuration interface to the properties of a {@link PropertyProvider}.
+ * <p>
+ * Every abstract method of the interface must be annotated with {@link Key} and must not take parameters. Supported
+ * return types are <code>String</code>, <code>int</code>, <code>long</code>, <code>double</code>, <code>boolean</code>,
+ * their wrapper types, <code>BigInteger</code> and <code>BigDecimal</code>. Undefined properties without a default
+ * value are returned as <code>null</code>, which is only allowed for non-primitive return types.
+ *
+ * <pre>
+ * public interface PoolConfig {
+ *     &#64;Key(value = "pool.size", defaultValue = "10")
+ *     int poolSize();
+ * }
+ *
+ * final PoolConfig config = ConfigBinding.bind(PoolConfig.class, provider).get();
+ * </pre>
+ * <p>
+ * All values are parsed once into a backing array, which is read by a generated implementation of the interface. An
+ * accessor call therefore costs about as much as reading a field. If the provider is an
+ * {@link ObservablePropertyProvider}, the values are parsed again from the new snapshot whenever one of the bound
+ * properties is updated, and the backing array is replaced atomically. An update with an invalid value is logged and
+ * ignored, so the previous values remain bound. Calls of the accessors are not seen by an {@link AccessProfiler} of the
+ * provider, so every defined property is counted as read once whenever the values are bound.
+ *
+ * @param <T>
+ *            type of the configuration interface
+ */
+public final class ConfigBinding<T> implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigBinding.class);
+
+    private static final Map<Class<?>, ValueType<?>> VALUE_TYPES = ImmutableMap.<Class<?>, ValueType<?>> builder()
+            .put(String.class, StandardValueTypes.STRING)
+            .put(int.class, StandardValueTypes.INT)
+            .put(Integer.class, StandardValueTypes.INT)
+            .put(long.class, StandardValueTypes.LONG)
+            .put(Long.class, StandardValueTypes.LONG)
+            .put(double.class, StandardValueTypes.DOUBLE)
+            .put(Double.class, StandardValueTypes.DOUBLE)
+            .put(boolean.class, StandardValueTypes.BOOLEAN)
+            .put(Boolean.class, StandardValueTypes.BOOLEAN)
+            .put(BigInteger.class, StandardValueTypes.INTEGER)
+            .put(BigDecimal.class, StandardValueTypes.DECIMAL)
+            .build();
+
+    /**
+     * Bound interfaces, which are only analyzed and implemented once. The cached values are attached to the interfaces,
+     * so a generated class is unloaded together with the class loader of its interface.
+     */
+    private static final ClassValue<BoundInterface> BOUND_INTERFACES = new ClassValue<BoundInterface>() {
+        @Override
+        protected BoundInterface computeValue(Class<?> type) {
+            return new BoundInterface(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final PropertyProvider provider;
+
+    private final String[] keys;
+    private final ValueType<?>[] valueTypes;
+    private final String[] defaultValues;
+    private final boolean[] isPrimitive;
+
+    private final T instance;
+    private final AtomicReference<Object[]> values = new AtomicReference<>();
+
+    private final PropertiesUpdateListener updateListener = update -> rebind();
+
+    private ConfigBinding(Class<T> type, PropertyProvider provider) {
+        this.type = type;
+        this.provider = provider;
+
+        final BoundInterface boundInterface = BOUND_INTERFACES.get(type);
+        keys = boundInterface.keys;
+        valueTypes = boundInterface.valueTypes;
+        defaultValues = boundInterface.defaultValues;
+        isPrimitive = boundInterface.isPrimitive;
+
+        try {
+            this.instance = type.cast(boundInterface.constructor.invoke(values));
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not instantiate the binding of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Creates an implementation of a configuration interface that returns the properties of a provider.
+     *
+     * @param type
+     *            public interface whose abstract methods are annotated with {@link Key}
+     * @param provider
+     *            source of the properties
+     * @param <T>
+     *            type of the configuration interface
+     * @return new binding
+     * @throws IllegalArgumentException
+     *             if the interface is not supported or a current value is invalid
+     */
+    public static <T> ConfigBinding<T> bind(Class<T> type, PropertyProvider provider) {
+        Preconditions.checkNotNull(type, "type");
+        Preconditions.checkNotNull(provider, "provider");
+
+        final ConfigBinding<T> binding = new ConfigBinding<>(type, provider);
+
+        synchronized (binding) {
+            // updates that happen before the initial values have been bound wait for the lock
+            if (provider instanceof ObservablePropertyProvider) {
+                for (String key : binding.keys) {
+                    ((ObservablePropertyProvider) provider).addPropertiesUpdateListenerForKey(key,
+                            binding.updateListener);
+                }
+            }
+
+            try {
+                binding.setValues(binding.parseValues());
+            } catch (IllegalArgumentException e) {
+                binding.close();
+                throw e;
+            }
+        }
+
+        return binding;
+    }
+
+    /**
+     * @return the bound implementation of the configuration interface, which always returns the current values
+     */
+    public T get() {
+        return instance;
+    }
+
+    /**
+     * Stops updating the values of the bound implementation. The current values remain available.
+     */
+    @Override
+    public void close() {
+        if (provider instanceof ObservablePropertyProvider) {
+            ((ObservablePropertyProvider) provider).removePropertiesUpdateListener(updateListener);
+        }
+    }
+
+    private synchronized void rebind() {
+        try {
+            setValues(parseValues());
+        } catch (IllegalArgumentException e) {
+            logger.error("Could not rebind {}, keeping the previous values", type.getName(), e);
+        }
+    }
+
+    /**
+     * Parses all bound properties of the same version of the properties.
+     */
+    private Object[] parseValues() {
+        final Snapshot snapshot = currentSnapshot(provider);
+        final Function<String, String> untypedValues = snapshot == null
+                ? provider.getProperties()::getProperty
+                : snapshot::getUntypedValue;
+        final AccessProfiler accessProfiler = snapshot == null ? null : snapshot.getAccessProfiler();
+        final Object[] values = new Object[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            String untypedValue = untypedValues.apply(keys[i]);
+            if (untypedValue == null) {
+                untypedValue = defaultValues[i];
+            } else if (accessProfiler != null) {
+                // calls of the accessors are not counted, so a bound property counts as read once per (re)binding
+                accessProfiler.recordRead(keys[i]);
+            }
+
+            Preconditions.checkArgument(untypedValue != null || !isPrimitive[i],
+                    "No value for the primitive property '%s'", keys[i]);
+
+            try {
+                values[i] = valueTypes[i].parseValue(untypedValue).orElse(null);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        String.format("Invalid value '%s' of property '%s'", untypedValue, keys[i]), e);
+            }
+        }
+
+        return values;
+    }
+
+    private void setValues(Object[] newValues) {
+        values.set(newValues);
+    }
+
+    /**
+     * @return the current snapshot of the provider or <code>null</code> if it has none
+     */
+    private static Snapshot currentSnapshot(PropertyProvider provider) {
+        if (provider instanceof ObservablePropertyProvider) {
+            return ((ObservablePropertyProvider) provider).snapshot();
+        } else if (provider instanceof ConstantPropertyProvider) {
+            return ((ConstantPropertyProvider) provider).snapshot();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Properties of the accessors of a configuration interface and the constructor of its generated implementation.
+     */
+    private static final class BoundInterface {
+
+        private final String[] keys;
+        private final ValueType<?>[] valueTypes;
+        private final String[] defaultValues;
+        private final boolean[] isPrimitive;
+
+        private final MethodHandle constructor;
+
+        private BoundInterface(Class<?> type) {
+            final List<Method> accessors = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                if (!Modifier.isAbstract(method.getModifiers())) {
+                    continue;
+                }
+
+                Preconditions.checkArgument(method.isAnnotationPresent(Key.class),
+                        "Method %s is not annotated with @Key", method);
+                Preconditions.checkArgument(method.getParameterCount() == 0, "Method %s has parameters", method);
+                Preconditions.checkArgument(VALUE_TYPES.containsKey(method.getReturnType()),
+                        "Unsupported return type of method %s", method);
+
+                accessors.add(method);
+            }
+
+            final int accessorCount = accessors.size();
+            keys = new String[accessorCount];
+            valueTypes = new ValueType<?>[accessorCount];
+            defaultValues = new String[accessorCount];
+            isPrimitive = new boolean[accessorCount];
+
+            for (int i = 0; i < accessorCount; i++) {
+                final Method accessor = accessors.get(i);
+                final Key key = accessor.getAnnotation(Key.class);
+
+                keys[i] = key.value();
+                valueTypes[i] = VALUE_TYPES.get(accessor.getReturnType());
+                defaultValues[i] = Key.NO_DEFAULT_VALUE.equals(key.defaultValue()) ? null : key.defaultValue();
+                isPrimitive[i] = accessor.getReturnType().isPrimitive();
+            }
+
+            final Class<?> implementation = AccessorGenerator.generate(type, accessors);
+
+            try {
+                constructor = MethodHandles.publicLookup().findConstructor(implementation,
+                        MethodType.methodType(void.class, AtomicReference.class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not instantiate the binding of " + type.getName(), e);
+            }
+        }
+    }
+
+}
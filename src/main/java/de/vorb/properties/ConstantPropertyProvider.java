@@ -3,25 +3,39 @@ package de.vorb.properties;
 import java.util.Optional;
 import java.util.Properties;
 
+import com.google.common.base.Preconditions;
+
 /**
- * A {@link PropertyProvider} that does not change its values.
+ * A {@link PropertyProvider} that does not change its values. The provider copies the given properties when it is
+ * created, so later changes of them are not visible through the provider.
  */
 public class ConstantPropertyProvider implements PropertyProvider, TypedProperties {
 
-    private final Properties properties;
+    private final Snapshot snapshot;
 
     ConstantPropertyProvider(Properties properties) {
-        this.properties = properties;
+        this(properties, null);
+    }
+
+    ConstantPropertyProvider(Properties properties, AccessProfiler accessProfiler) {
+        this.snapshot = new Snapshot(0, properties, accessProfiler);
+    }
+
+    /**
+     * @return the only snapshot of this provider
+     */
+    public Snapshot snapshot() {
+        return snapshot;
     }
 
     @Override
     public Properties getProperties() {
-        return properties;
+        return snapshot.getProperties();
     }
 
     @Override
     public <T> Optional<T> getProperty(String key, ValueType<T> type) {
-        return type.parseValue(getUntypedValue(key));
+        return snapshot.getProperty(key, type);
     }
 
     @Override
@@ -29,12 +43,8 @@ public class ConstantPropertyProvider implements PropertyProvider, TypedProperti
         return getProperty(key, type).orElse(defaultValue);
     }
 
-    private String getUntypedValue(String key) {
-        return getProperties().getProperty(key);
-    }
-
     /**
-     * Creates a {@link ConstantPropertyProvider} from a given {@link Properties} object.
+     * Creates a {@link ConstantPropertyProvider} from a copy of a given {@link Properties} object.
      * 
      * @param properties
      *            source properties
@@ -44,4 +54,18 @@ public class ConstantPropertyProvider implements PropertyProvider, TypedProperti
         return new ConstantPropertyProvider(properties);
     }
 
+    /**
+     * Creates a {@link ConstantPropertyProvider} from a copy of a given {@link Properties} object whose typed reads are
+     * counted per key.
+     * 
+     * @param properties
+     *            source properties
+     * @param accessProfiler
+     *            profiler of the reads
+     * @return a new {@link ConstantPropertyProvider}
+     */
+    public static ConstantPropertyProvider fromProperties(Properties properties, AccessProfiler accessProfiler) {
+        return new ConstantPropertyProvider(properties, Preconditions.checkNotNull(accessProfiler, "accessProfiler"));
+    }
+
 }
@@ -0,0 +1,312 @@
+package de.vorb.properties;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link PropertyProvider} that merges all properties files of a directory, e.g. a <code>conf.d</code> directory of
+ * configuration fragments, into a single set of properties.
+ * <p>
+ * Fragments are merged in the lexicographic order of their file names, so a property of <code>20-local.properties</code>
+ * overrides the same property of <code>10-base.properties</code>. The whole directory is watched by a single
+ * registration. Fragments that are created, modified or deleted at runtime are read again individually and only the
+ * keys of the changed fragments are merged again into the effective snapshot.
+ */
+public class DirectoryPropertyProvider extends AbstractWatchingPropertyProvider implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryPropertyProvider.class);
+
+    private final Path directory;
+    private final PathMatcher fileNameMatcher;
+    private final PropertiesParser parser;
+
+    /**
+     * Parsed fragments by file name in order of increasing priority. Guarded by the lock of this provider.
+     */
+    private final TreeMap<String, PropertyTable> fragments = new TreeMap<>();
+
+    /**
+     * Files whose events have not been handled yet.
+     */
+    private final Set<Path> pendingFiles = ConcurrentHashMap.newKeySet();
+    private volatile boolean isRescanPending;
+
+    private final ReloadDebouncer reloadDebouncer;
+    private WatchEngine.Registration watchRegistration;
+
+    DirectoryPropertyProvider(Builder builder) {
+        super(builder, MetricsSink.NONE);
+
+        final Path directory = builder.directory;
+
+        Preconditions.checkArgument(Files.isDirectory(directory) && Files.isReadable(directory),
+                "'%s' is no readable directory", directory);
+
+        this.directory = directory;
+        this.fileNameMatcher = directory.getFileSystem().getPathMatcher("glob:" + builder.glob);
+        this.parser = new PropertiesParser(builder.charset);
+        setSnapshot(new Snapshot(0, PersistentPropertyMap.EMPTY, builder.defaults, builder.accessProfiler));
+
+        reloadDebouncer = new ReloadDebouncer(this::reloadPendingFiles, builder.quietPeriodNanos,
+                builder.maxDelayNanos, TimeUnit.NANOSECONDS);
+
+        // the directory is watched before it is scanned, so fragments that are created in the meantime are not missed
+        try {
+            watchRegistration = createWatchEngine(builder).registerDirectory(directory, this::filesChanged);
+        } catch (IOException e) {
+            logger.error("Could not watch the directory '{}'", directory, e);
+        }
+
+        synchronized (this) {
+            reload(scanDirectory());
+        }
+    }
+
+    private void filesChanged(Set<Path> changedFiles) {
+        if (changedFiles.isEmpty()) {
+            isRescanPending = true;
+        } else {
+            for (Path file : changedFiles) {
+                if (fileNameMatcher.matches(file.getFileName())) {
+                    pendingFiles.add(file.getFileName());
+                }
+            }
+
+            if (pendingFiles.isEmpty()) {
+                return;
+            }
+        }
+
+        reloadDebouncer.trigger();
+    }
+
+    private synchronized void reloadPendingFiles() {
+        final Set<String> changedFileNames = new HashSet<>();
+
+        if (isRescanPending) {
+            isRescanPending = false;
+            changedFileNames.addAll(scanDirectory());
+        }
+
+        for (Path fileName : pendingFiles) {
+            pendingFiles.remove(fileName);
+            changedFileNames.add(fileName.toString());
+        }
+
+        final Snapshot oldSnapshot = snapshot();
+
+        if (reload(changedFileNames)) {
+            notifyUpdateListeners(oldSnapshot, snapshot());
+        }
+    }
+
+    /**
+     * @return names of all fragments that are currently known or exist in the directory
+     */
+    private Set<String> scanDirectory() {
+        final Set<String> fileNames = new HashSet<>(fragments.keySet());
+
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (fileNameMatcher.matches(file.getFileName())) {
+                    fileNames.add(file.getFileName().toString());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not list the directory '{}'.", directory, e);
+        }
+
+        return fileNames;
+    }
+
+    /**
+     * Reads the given fragments and merges their keys again.
+     *
+     * @return <code>true</code> if a new snapshot has been published
+     */
+    private boolean reload(Set<String> changedFileNames) {
+        final Set<String> changedKeys = new HashSet<>();
+
+        for (String fileName : changedFileNames) {
+            final Path file = directory.resolve(fileName);
+            final PropertyTable oldFragment = fragments.get(fileName);
+
+            final PropertyTable newFragment;
+            try {
+                newFragment = Files.isRegularFile(file) ? readFragment(file) : null;
+            } catch (NoSuchFileException e) {
+                // deleted after it has been listed
+                removeFragment(fileName, oldFragment, changedKeys);
+                continue;
+            } catch (IOException | IllegalArgumentException e) {
+                // a malformed fragment does not affect the other fragments of the batch
+                logger.warn("Could not read the property file '{}', keeping its previous properties.", file, e);
+                continue;
+            }
+
+            if (newFragment == null) {
+                removeFragment(fileName, oldFragment, changedKeys);
+            } else {
+                if (oldFragment != null) {
+                    oldFragment.forEach((key, value) -> changedKeys.add(key));
+                }
+                newFragment.forEach((key, value) -> changedKeys.add(key));
+
+                fragments.put(fileName, newFragment);
+            }
+        }
+
+        final PersistentPropertyMap oldEntries = snapshot().getEntries();
+        final PersistentPropertyMap.Builder entries = oldEntries.toBuilder();
+
+        for (String key : changedKeys) {
+            final String value = resolve(key);
+
+            if (value == null) {
+                entries.remove(key);
+            } else {
+                entries.put(key, value);
+            }
+        }
+
+        final PersistentPropertyMap newEntries = entries.build();
+
+        if (newEntries == oldEntries) {
+            return false;
+        }
+
+        setSnapshot(snapshot().next(newEntries));
+
+        return true;
+    }
+
+    private void removeFragment(String fileName, PropertyTable oldFragment, Set<String> changedKeys) {
+        if (oldFragment != null) {
+            oldFragment.forEach((key, value) -> changedKeys.add(key));
+            fragments.remove(fileName);
+        }
+    }
+
+    private PropertyTable readFragment(Path file) throws IOException {
+        final PropertyTable.Builder fragment = PropertyTable.builder();
+        parser.parse(PropertiesParser.readFile(file), fragment::put);
+        return fragment.build();
+    }
+
+    /**
+     * @return the value of the fragment with the highest priority that defines the key or <code>null</code>
+     */
+    private String resolve(String key) {
+        for (PropertyTable fragment : fragments.descendingMap().values()) {
+            final String value = fragment.get(key);
+
+            if (value != null) {
+                return value;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the fragments of the current snapshot in order of increasing priority
+     */
+    public synchronized List<Path> getFragments() {
+        return fragments.keySet().stream()
+                .map(directory::resolve)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Stops watching the directory. The current properties remain available.
+     */
+    @Override
+    public void close() {
+        if (watchRegistration != null) {
+            watchRegistration.cancel();
+        }
+
+        // pending reloads are discarded, so the snapshot does not change after close
+        reloadDebouncer.cancel();
+    }
+
+    /**
+     * Creates a new {@link DirectoryPropertyProvider} that merges all <code>*.properties</code> files of a directory.
+     *
+     * @param directory
+     *            readable directory
+     * @return new {@link DirectoryPropertyProvider}
+     */
+    public static DirectoryPropertyProvider fromDirectory(Path directory) {
+        return builder(directory).build();
+    }
+
+    /**
+     * Creates a new {@link Builder} for a {@link DirectoryPropertyProvider} of a directory.
+     *
+     * @param directory
+     *            readable directory
+     * @return new {@link Builder}
+     */
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    /**
+     * Builder for {@link DirectoryPropertyProvider}s with non-default settings.
+     */
+    public static final class Builder extends WatchingBuilder<Builder> {
+
+        /**
+         * Default glob pattern of the file names of the fragments.
+         */
+        public static final String DEFAULT_GLOB = "*.properties";
+
+        private final Path directory;
+        private String glob = DEFAULT_GLOB;
+
+        private Builder(Path directory) {
+            this.directory = Preconditions.checkNotNull(directory, "directory");
+        }
+
+        @Override
+        Builder self() {
+            return this;
+        }
+
+        /**
+         * @param glob
+         *            glob pattern that the file names of the fragments match, e.g. <code>"*.conf"</code>
+         * @return this builder
+         */
+        public Builder glob(String glob) {
+            this.glob = Preconditions.checkNotNull(glob, "glob");
+            return this;
+        }
+
+        /**
+         * @return new {@link DirectoryPropertyProvider}
+         */
+        public DirectoryPropertyProvider build() {
+            return new DirectoryPropertyProvider(this);
+        }
+    }
+
+}
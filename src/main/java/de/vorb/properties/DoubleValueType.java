@@ -0,0 +1,28 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+
+/**
+ * Value type that parses string values into primitive <code>double</code> values without boxing.
+ */
+public interface DoubleValueType extends ValueType<Double> {
+
+    /**
+     * Parses a string value into a primitive <code>double</code>.
+     * 
+     * @param value
+     *            string representation of the value, must not be <code>null</code>
+     * @return parsed value
+     */
+    double parseDouble(String value);
+
+    @Override
+    default Optional<Double> parseValue(String value) {
+        if (value == null) {
+            return Optional.empty();
+        } else {
+            return Optional.of(parseDouble(value));
+        }
+    }
+
+}
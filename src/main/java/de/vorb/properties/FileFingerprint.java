@@ -0,0 +1,125 @@
+package de.vorb.properties;
+
+import java.nio.ByteBuffer;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Identifies a version of a file by its size, modification time and a hash of its content.
+ */
+final class FileFingerprint {
+
+    private static final HashFunction CONTENT_HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * Modifications that happen within this time after a file has been read might not change the modification time of
+     * the file, depending on the resolution of the file system's timestamps.
+     */
+    static final long RACY_MODIFICATION_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * Size of the chunks in which content that is not backed by an array is hashed.
+     */
+    private static final int HASH_CHUNK_SIZE = 8192;
+
+    private final long size;
+    private final FileTime lastModifiedTime;
+    private final Object fileKey;
+    private final long contentLength;
+    private final HashCode contentHash;
+    private final long readTimeMillis;
+
+    private FileFingerprint(BasicFileAttributes attributes, ByteBuffer content, long readTimeMillis) {
+        this.size = attributes.size();
+        this.lastModifiedTime = attributes.lastModifiedTime();
+        this.fileKey = attributes.fileKey();
+        this.contentLength = content.remaining();
+        this.contentHash = hash(content);
+        this.readTimeMillis = readTimeMillis;
+    }
+
+    /**
+     * @param attributes
+     *            attributes of the file that have been read before its content
+     * @param content
+     *            content of the file from its position to its limit, which is not changed
+     * @param readTimeMillis
+     *            time at which the file has been read
+     * @return fingerprint of the file
+     */
+    static FileFingerprint of(BasicFileAttributes attributes, ByteBuffer content, long readTimeMillis) {
+        return new FileFingerprint(attributes, content, readTimeMillis);
+    }
+
+    /**
+     * Checks whether the file is unchanged without reading its content. This is only the case if size, modification
+     * time and file key are equal and the file has not been modified shortly before it was read, since such a
+     * modification might not be reflected by the modification time.
+     *
+     * @param attributes
+     *            current attributes of the file
+     * @return <code>true</code> if the file is known to be unchanged
+     */
+    boolean isUnchanged(BasicFileAttributes attributes) {
+        return size == attributes.size()
+                && lastModifiedTime.equals(attributes.lastModifiedTime())
+                && Objects.equals(fileKey, attributes.fileKey())
+                && readTimeMillis - lastModifiedTime.toMillis() > RACY_MODIFICATION_MILLIS;
+    }
+
+    /**
+     * @param other
+     *            fingerprint of another version of the file
+     * @return <code>true</code> if both versions have the same content
+     */
+    boolean hasSameContent(FileFingerprint other) {
+        return contentLength == other.contentLength && contentHash.equals(other.contentHash);
+    }
+
+    /**
+     * @return length of the content of the file
+     */
+    long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return hash of the content of the file
+     */
+    HashCode getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * @param content
+     *            content of a file from its position to its limit, which is not changed
+     * @return hash of the content
+     */
+    static HashCode hash(ByteBuffer content) {
+        if (content.hasArray()) {
+            return CONTENT_HASH_FUNCTION.hashBytes(content.array(), content.arrayOffset() + content.position(),
+                    content.remaining());
+        }
+
+        // memory-mapped and read-only content is copied in chunks, so it is never copied to the heap as a whole
+        final Hasher hasher = CONTENT_HASH_FUNCTION.newHasher();
+        final ByteBuffer remaining = content.duplicate();
+        final byte[] chunk = new byte[Math.min(HASH_CHUNK_SIZE, remaining.remaining())];
+
+        while (remaining.hasRemaining()) {
+            final int chunkLength = Math.min(chunk.length, remaining.remaining());
+            remaining.get(chunk, 0, chunkLength);
+            hasher.putBytes(chunk, 0, chunkLength);
+        }
+
+        return hasher.hash();
+    }
+
+}
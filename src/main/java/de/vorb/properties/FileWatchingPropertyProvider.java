@@ -1,22 +1,19 @@
 package de.vorb.properties;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.nio.file.ClosedWatchServiceException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardWatchEventKinds;
-import java.nio.file.WatchEvent;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
-import java.util.List;
-import java.util.Optional;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Properties;
-import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 import de.vorb.properties.event.PropertiesUpdate;
 import de.vorb.properties.event.PropertiesUpdateListener;
@@ -25,91 +22,53 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Sets;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * A {@link PropertyProvider} that listens to file system events on a given properties file and informs registered
  * {@link PropertiesUpdateListener}s of {@link PropertiesUpdate}s.
  */
-public class FileWatchingPropertyProvider implements PropertyProvider, TypedProperties {
+public class FileWatchingPropertyProvider extends AbstractWatchingPropertyProvider implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(FileWatchingPropertyProvider.class);
 
-    private class PropertyFileUpdater implements Runnable {
-
-        private final WatchService watcher;
-
-        public PropertyFileUpdater(WatchService watcher) {
-            this.watcher = watcher;
-        }
-
-        @Override
-        public void run() {
-            try {
-                final WatchKey key = watcher.poll();
-
-                if (key == null) {
-                    return;
-                }
-
-                final List<WatchEvent<?>> pendingEvents = key.pollEvents();
+    private static final String MBEAN_DOMAIN = "de.vorb.properties";
 
-                if (hasPropertyFileBeenUpdated(pendingEvents)) {
-                    final Properties oldProperties = properties;
-                    readPropertyFile();
-                    final Properties newProperties = properties;
-
-                    notifyUpdateListeners(oldProperties, newProperties);
-                }
+    private final Path propertyFile;
 
-                key.reset();
-            } catch (ClosedWatchServiceException e) {
-                logger.warn("The watch service on property file '{}' has been closed.", propertyFile);
-            }
-        }
+    private final PropertiesParser parser;
+    private final ParallelPropertiesParser parallelParser;
+    private final long parallelParsingThreshold;
 
-        @SuppressWarnings("unchecked")
-        private boolean hasPropertyFileBeenUpdated(List<WatchEvent<?>> pendingWatchEvents) {
-            return pendingWatchEvents.stream()
-                    // We only registered to listen for ENTRY_MODIFY events, so this cast is safe
-                    .map(event -> (WatchEvent<Path>) event)
-                    .anyMatch(this::matchesPropertyFile);
-        }
+    /**
+     * Cache of the parsed entries or <code>null</code> if caching is disabled.
+     */
+    private final SnapshotCache snapshotCache;
 
-        private boolean matchesPropertyFile(WatchEvent<Path> event) {
-            final Path changedFile = parentDirectory.resolve(event.context());
+    /**
+     * Fingerprint of the file content of the current snapshot. Guarded by the lock of the provider after construction.
+     */
+    private FileFingerprint fingerprint;
 
-            try {
-                return Files.isSameFile(changedFile, propertyFile);
-            } catch (IOException e) {
-                logger.warn("Could not access the file system", e);
+    private final ProviderStatistics statistics;
 
-                return false;
-            }
-        }
-
-        private void notifyUpdateListeners(Properties oldProperties, Properties newProperties) {
+    /**
+     * Time of the first file system event since the last reload or <code>0</code> if there has been none.
+     */
+    private final AtomicLong firstEventNanos = new AtomicLong();
 
-            final PropertiesUpdate updateEvent = PropertiesUpdate.replacedProperties(oldProperties, newProperties);
+    private final ReloadDebouncer reloadDebouncer;
+    private WatchEngine.Registration watchRegistration;
+    private ObjectName mBeanName;
 
-            for (PropertiesUpdateListener listener : propertiesUpdateListeners) {
-                listener.handlePropertiesUpdate(updateEvent);
-            }
-        }
+    FileWatchingPropertyProvider(Builder builder) {
+        this(builder, new ProviderStatistics());
     }
 
-    private final Path propertyFile;
-    private final Path parentDirectory;
-
-    private final Properties defaults;
-    private Properties properties;
+    private FileWatchingPropertyProvider(Builder builder, ProviderStatistics statistics) {
+        super(builder, metricsSink(builder, statistics));
 
-    private final Set<PropertiesUpdateListener> propertiesUpdateListeners = Sets.newCopyOnWriteArraySet();
-
-    private ScheduledExecutorService watchServiceExecutor;
-
-    FileWatchingPropertyProvider(Path propertyFile, Properties defaults) {
+        final Path propertyFile = builder.propertyFile;
+        final Properties defaults = builder.defaults;
 
         final boolean isRegularFile = Files.isRegularFile(propertyFile);
         final boolean isReadable = Files.isReadable(propertyFile);
@@ -118,11 +77,18 @@ public class FileWatchingPropertyProvider implements PropertyProvider, TypedProp
                 "Property file '%s' is no regular readable file", propertyFile);
 
         this.propertyFile = propertyFile;
+        this.statistics = statistics;
 
-        this.defaults = defaults;
-        this.properties = new Properties(defaults);
+        this.parser = new PropertiesParser(builder.charset);
+        this.parallelParser = new ParallelPropertiesParser(builder.charset, ForkJoinPool.commonPool(),
+                ParallelPropertiesParser.DEFAULT_MIN_CHUNK_SIZE);
+        this.parallelParsingThreshold = builder.parallelParsingThreshold;
+        this.snapshotCache = builder.snapshotCacheDirectory == null ? null
+                : SnapshotCache.forPropertyFile(builder.snapshotCacheDirectory, propertyFile, builder.charset,
+                        StringPool.shared());
+        setSnapshot(new Snapshot(0, PersistentPropertyMap.EMPTY, defaults, builder.accessProfiler));
 
-        parentDirectory = propertyFile.getParent();
+        final Path parentDirectory = propertyFile.getParent();
 
         final boolean isParentADirectory = Files.isDirectory(parentDirectory);
         final boolean isParentReadable = Files.isReadable(parentDirectory);
@@ -133,82 +99,181 @@ public class FileWatchingPropertyProvider implements PropertyProvider, TypedProp
         // initialize properties
         readPropertyFile();
 
-        try {
-            final WatchService watcher = createWatchService(parentDirectory);
-            parentDirectory.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY);
-
-            final ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                    .setNameFormat(FileWatchingPropertyProvider.class.getName() + "-thread-%d")
-                    .setDaemon(true)
-                    .build();
+        reloadDebouncer = new ReloadDebouncer(this::reload, builder.quietPeriodNanos,
+                builder.maxDelayNanos, TimeUnit.NANOSECONDS);
 
-            watchServiceExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
-            // watchServiceExecutor.execute(new PropertyFileUpdater(watcher));
-            watchServiceExecutor.scheduleAtFixedRate(new PropertyFileUpdater(watcher), 100, 100, TimeUnit.MILLISECONDS);
+        try {
+            watchRegistration = createWatchEngine(builder).register(propertyFile, file -> {
+                firstEventNanos.compareAndSet(0, System.nanoTime());
+                reloadDebouncer.trigger();
+            });
         } catch (IOException e) {
             logger.error("Could not watch the parent directory of the requested property file '{}'", propertyFile, e);
         }
+
+        if (builder.registerMBean) {
+            registerMBean();
+        }
+    }
+
+    private static MetricsSink metricsSink(Builder builder, ProviderStatistics statistics) {
+        return builder.metricsSink == null
+                ? statistics.asSink()
+                : statistics.asSink().andThen(builder.metricsSink);
+    }
+
+    private void registerMBean() {
+        try {
+            final ObjectName name = new ObjectName(MBEAN_DOMAIN + ":type="
+                    + FileWatchingPropertyProvider.class.getSimpleName() + ",file="
+                    + ObjectName.quote(propertyFile.toString()));
+
+            ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, name);
+            mBeanName = name;
+        } catch (JMException e) {
+            logger.warn("Could not register the MBean of the property file '{}'", propertyFile, e);
+        }
+    }
+
+    FileWatchingPropertyProvider(Path propertyFile, Properties defaults) {
+        this(builder(propertyFile).defaults(defaults));
     }
 
     FileWatchingPropertyProvider(Path propertyFile) {
-        this(propertyFile, new Properties());
+        this(builder(propertyFile));
     }
 
     /**
-     * Adds a listener to the set of listeners.
-     * 
-     * @param listener
-     *            will be added to the set of listeners
+     * Stops watching the property file. The current properties remain available.
      */
-    public void addPropertiesUpdateListener(PropertiesUpdateListener listener) {
-        propertiesUpdateListeners.add(listener);
+    @Override
+    public void close() {
+        if (watchRegistration != null) {
+            watchRegistration.cancel();
+        }
+
+        // pending reloads are discarded, so the snapshot does not change after close
+        reloadDebouncer.cancel();
+
+        if (mBeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mBeanName);
+            } catch (JMException e) {
+                logger.warn("Could not unregister the MBean '{}'", mBeanName, e);
+            }
+
+            mBeanName = null;
+        }
     }
 
     /**
-     * Removes a listener from the set of listeners.
-     * 
-     * @param listener
-     *            will be removed from the set of listeners
+     * Reloads the property file on the calling thread and informs the handles and listeners of the changes, just like a
+     * reload that has been triggered by a change of the file. Reloads never run concurrently.
+     *
+     * @return <code>true</code> if a new snapshot has been published
      */
-    public void removePropertiesUpdateListener(PropertiesUpdateListener listener) {
-        propertiesUpdateListeners.remove(listener);
+    synchronized boolean reload() {
+        // events that arrive while the file is read trigger another reload
+        final long eventNanos = firstEventNanos.getAndSet(0);
+        final Snapshot oldSnapshot = snapshot();
+
+        if (!readPropertyFile()) {
+            return false;
+        }
+
+        if (eventNanos != 0) {
+            metrics.recordEventToPublishLatency(System.nanoTime() - eventNanos);
+        }
+
+        notifyUpdateListeners(oldSnapshot, snapshot());
+
+        return true;
     }
 
-    private void readPropertyFile() {
+    /**
+     * Reads the property file and publishes a new snapshot, unless the content of the file is unchanged.
+     * 
+     * @return <code>true</code> if a new snapshot has been published
+     */
+    private boolean readPropertyFile() {
 
-        try (final BufferedReader propertyFileReader = Files.newBufferedReader(propertyFile)) {
-            final Properties newProperties = new Properties(defaults);
+        try {
+            final long readTimeMillis = System.currentTimeMillis();
+            final BasicFileAttributes attributes = Files.readAttributes(propertyFile, BasicFileAttributes.class);
 
-            newProperties.load(propertyFileReader);
+            if (fingerprint != null && fingerprint.isUnchanged(attributes)) {
+                return false;
+            }
 
-            properties = newProperties;
-        } catch (IOException e) {
-            logger.warn("Could not read the property file '{}'.", propertyFile);
-        }
+            final ByteBuffer content = PropertiesParser.readFile(propertyFile);
+            final FileFingerprint newFingerprint = FileFingerprint.of(attributes, content, readTimeMillis);
 
-    }
+            if (fingerprint != null && fingerprint.hasSameContent(newFingerprint)) {
+                // the file has only been touched or rewritten with identical content
+                fingerprint = newFingerprint;
+                return false;
+            }
 
-    @Override
-    public Properties getProperties() {
-        return properties;
-    }
+            // the cache is only consulted on startup, since the file has always changed on later reads
+            if (snapshotCache != null && fingerprint == null) {
+                final CachedEntries cachedEntries = snapshotCache.read(newFingerprint);
 
-    @Override
-    public <T> Optional<T> getProperty(String key, ValueType<T> type) {
-        return type.parseValue(getUntypedValue(key));
-    }
+                if (cachedEntries != null) {
+                    // the entries are looked up in the cache file until the first reload needs them as a whole
+                    final Snapshot newSnapshot = snapshot().next(cachedEntries);
+                    setSnapshot(newSnapshot);
+                    fingerprint = newFingerprint;
+                    metrics.recordReload(newSnapshot.getGeneration(), 0);
 
-    @Override
-    public <T> T getPropertyOrDefaultValue(String key, T defaultValue, ValueType<T> type) {
-        return getProperty(key, type).orElse(defaultValue);
-    }
+                    return true;
+                }
+            }
+
+            // malformed input is reported instead of replaced
+            final PropertyTable.Builder newTable = PropertyTable.builder();
+            final long parseStartNanos = System.nanoTime();
+            if (content.remaining() >= parallelParsingThreshold) {
+                parallelParser.parse(content, newTable::put);
+            } else {
+                parser.parse(content, newTable::put);
+            }
+            final long parseNanos = System.nanoTime() - parseStartNanos;
+
+            // unchanged entries are shared with the previous snapshot
+            final PersistentPropertyMap newEntries = snapshot().getEntries().withEntriesOf(newTable.build());
+
+            // a new snapshot invalidates all previously parsed values at once
+            final Snapshot newSnapshot = snapshot().next(newEntries);
+            setSnapshot(newSnapshot);
+            fingerprint = newFingerprint;
+
+            if (snapshotCache != null) {
+                // the cache file is written in the background, once per parsed version
+                snapshotCache.scheduleWrite(newFingerprint, newEntries);
+            }
+
+            metrics.recordReload(newSnapshot.getGeneration(), parseNanos);
+
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not read the property file '{}'.", propertyFile);
+            metrics.recordFailedReload();
+
+            return false;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Could not parse the property file '{}', keeping the previous properties.", propertyFile, e);
+            metrics.recordFailedReload();
+
+            return false;
+        }
 
-    private String getUntypedValue(String key) {
-        return getProperties().getProperty(key);
     }
 
-    protected WatchService createWatchService(Path path) throws IOException {
-        return path.getFileSystem().newWatchService();
+    /**
+     * @return statistics of the reloads of this provider and the dispatch of its updates
+     */
+    public ProviderStatistics getStatistics() {
+        return statistics;
     }
 
     /**
@@ -235,4 +300,129 @@ public class FileWatchingPropertyProvider implements PropertyProvider, TypedProp
         return new FileWatchingPropertyProvider(propertyFile, defaults);
     }
 
+    /**
+     * Creates a new {@link Builder} for a {@link FileWatchingPropertyProvider} of a properties file.
+     * 
+     * @param propertyFile
+     *            a regular file that is readable and has a parent directory
+     * @return new {@link Builder}
+     */
+    public static Builder builder(Path propertyFile) {
+        return new Builder(propertyFile);
+    }
+
+    /**
+     * Builder for {@link FileWatchingPropertyProvider}s with non-default settings.
+     */
+    public static final class Builder extends WatchingBuilder<Builder> {
+
+        /**
+         * Default time without further file system events after which a changed property file is reloaded.
+         */
+        public static final long DEFAULT_QUIET_PERIOD_MILLIS = 20;
+
+        /**
+         * Default maximum time between the first file system event of a burst and the reload of the property file.
+         */
+        public static final long DEFAULT_MAX_DELAY_MILLIS = 200;
+
+        /**
+         * Default time after which a listener that is still handling an update is reported as slow.
+         */
+        public static final long DEFAULT_SLOW_LISTENER_THRESHOLD_MILLIS = 100;
+
+        /**
+         * Default interval at which a polled property file is checked after it has changed.
+         */
+        public static final long DEFAULT_MIN_POLLING_INTERVAL_MILLIS = 500;
+
+        /**
+         * Default interval at which a polled property file is checked after a long time without changes.
+         */
+        public static final long DEFAULT_MAX_POLLING_INTERVAL_MILLIS = 5000;
+
+        /**
+         * Default size in bytes from which property files are parsed in parallel.
+         */
+        public static final long DEFAULT_PARALLEL_PARSING_THRESHOLD = 8 * 1024 * 1024;
+
+        private final Path propertyFile;
+        private long parallelParsingThreshold = DEFAULT_PARALLEL_PARSING_THRESHOLD;
+        private Path snapshotCacheDirectory;
+        private MetricsSink metricsSink;
+        private boolean registerMBean;
+
+        private Builder(Path propertyFile) {
+            this.propertyFile = Preconditions.checkNotNull(propertyFile, "propertyFile");
+        }
+
+        @Override
+        Builder self() {
+            return this;
+        }
+
+        /**
+         * Property files of at least the given size are split into chunks that are parsed in parallel on the common
+         * {@link ForkJoinPool}. The result is the same as if the file was parsed sequentially.
+         * 
+         * @param parallelParsingThreshold
+         *            file size in bytes, {@link Long#MAX_VALUE} disables parallel parsing
+         * @return this builder
+         */
+        public Builder parallelParsingThreshold(long parallelParsingThreshold) {
+            Preconditions.checkArgument(parallelParsingThreshold >= 0, "Negative parallel parsing threshold");
+
+            this.parallelParsingThreshold = parallelParsingThreshold;
+            return this;
+        }
+
+        /**
+         * Caches the parsed properties in a binary file in the given directory, which is used instead of parsing the
+         * property file when the provider is created and the content of the property file has not changed since the
+         * cache file was written. The cache file is named after the property file and a hash of its absolute path with
+         * the suffix <code>.snapshot</code> and is rewritten in the background whenever the property file is reloaded.
+         * Stale or corrupt cache files are ignored.
+         * 
+         * @param snapshotCacheDirectory
+         *            writable directory of the cache file, e.g. the parent directory of the property file
+         * @return this builder
+         */
+        public Builder snapshotCache(Path snapshotCacheDirectory) {
+            this.snapshotCacheDirectory = Preconditions.checkNotNull(snapshotCacheDirectory, "snapshotCacheDirectory");
+            return this;
+        }
+
+        /**
+         * Forwards all measurements of the provider to the given sink in addition to its built-in
+         * {@link ProviderStatistics}.
+         * 
+         * @param metricsSink
+         *            receives the measurements of the provider
+         * @return this builder
+         */
+        public Builder metricsSink(MetricsSink metricsSink) {
+            this.metricsSink = Preconditions.checkNotNull(metricsSink, "metricsSink");
+            return this;
+        }
+
+        /**
+         * Registers the {@link ProviderStatistics} of the provider as an MXBean with the platform MBean server until the
+         * provider is closed. The object name is
+         * <code>de.vorb.properties:type=FileWatchingPropertyProvider,file="&lt;property file&gt;"</code>.
+         * 
+         * @return this builder
+         */
+        public Builder registerMBean() {
+            this.registerMBean = true;
+            return this;
+        }
+
+        /**
+         * @return new {@link FileWatchingPropertyProvider}
+         */
+        public FileWatchingPropertyProvider build() {
+            return new FileWatchingPropertyProvider(this);
+        }
+    }
+
 }
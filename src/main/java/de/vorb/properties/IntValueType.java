@@ -0,0 +1,28 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+
+/**
+ * Value type that parses string values into primitive <code>int</code> values without boxing.
+ */
+public interface IntValueType extends ValueType<Integer> {
+
+    /**
+     * Parses a string value into a primitive <code>int</code>.
+     * 
+     * @param value
+     *            string representation of the value, must not be <code>null</code>
+     * @return parsed value
+     */
+    int parseInt(String value);
+
+    @Override
+    default Optional<Integer> parseValue(String value) {
+        if (value == null) {
+            return Optional.empty();
+        } else {
+            return Optional.of(parseInt(value));
+        }
+    }
+
+}
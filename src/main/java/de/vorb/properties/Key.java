@@ -0,0 +1,34 @@
+package de.vorb.properties;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds an accessor method of a configuration interface to a property.
+ *
+ * @see ConfigBinding
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Key {
+
+    /**
+     * Marker for properties without a default value.
+     */
+    String NO_DEFAULT_VALUE = "\0";
+
+    /**
+     * @return key of the property
+     */
+    String value();
+
+    /**
+     * @return unparsed value that is used if the property is undefined
+     */
+    String defaultValue() default NO_DEFAULT_VALUE;
+
+}
@@ -0,0 +1,107 @@
+package de.vorb.properties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations with exponentially growing buckets.
+ * <p>
+ * Bucket <code>0</code> counts durations below 1024 ns, and bucket <code>i</code> counts durations in
+ * <code>[2<sup>i + 9</sup>, 2<sup>i + 10</sup>)</code> ns, so the buckets cover roughly 1 &micro;s, 2 &micro;s, 4
+ * &micro;s and so on. The last bucket also counts all longer durations. Percentiles are reported as the upper bound of
+ * their bucket and are therefore accurate to a factor of two.
+ */
+final class LatencyHistogram {
+
+    static final int BUCKET_COUNT = 36;
+
+    private static final int FIRST_BUCKET_BITS = 10;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos
+     *            recorded duration, negative durations are recorded as <code>0</code>
+     */
+    void record(long nanos) {
+        final long duration = Math.max(0, nanos);
+        final int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(duration >>> FIRST_BUCKET_BITS));
+
+        buckets[bucket].increment();
+        totalNanos.add(duration);
+        maxNanos.accumulate(duration);
+    }
+
+    long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    double getMeanMillis() {
+        final long count = getCount();
+        return count == 0 ? 0 : toMillis(totalNanos.sum()) / count;
+    }
+
+    double getMaxMillis() {
+        return toMillis(maxNanos.get());
+    }
+
+    /**
+     * @param percentile
+     *            percentile between <code>0</code> and <code>100</code>
+     * @return upper bound of the bucket that contains the percentile, at most the maximum duration
+     */
+    double getPercentileMillis(double percentile) {
+        final long[] counts = getBucketCounts();
+
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final double rank = percentile / 100 * count;
+
+        long cumulativeCount = 0;
+        for (int i = 0; i < counts.length - 1; i++) {
+            cumulativeCount += counts[i];
+
+            if (cumulativeCount >= rank && counts[i] > 0) {
+                return Math.min(toMillis(1L << (i + FIRST_BUCKET_BITS)), getMaxMillis());
+            }
+        }
+
+        return getMaxMillis();
+    }
+
+    /**
+     * @return number of recorded durations per bucket
+     */
+    long[] getBucketCounts() {
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
@@ -0,0 +1,301 @@
+package de.vorb.properties;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import de.vorb.properties.event.PropertiesUpdate;
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+/**
+ * Delivers {@link PropertiesUpdate}s to {@link PropertiesUpdateListener}s.
+ * <p>
+ * Without an executor, listeners are called one after another on the calling thread. With an executor, every listener
+ * is called asynchronously and receives its updates in order. Updates that queue up for a listener that is still busy
+ * with a previous update are coalesced lazily into a single update from the oldest pending to the newest properties, so
+ * a lagging listener only sees the latest state, and it only receives the coalesced update if it is still subscribed to
+ * one of its keys. In both modes, an exception that is thrown by one listener does not affect the other listeners, and
+ * listeners that take longer than a threshold are reported.
+ */
+final class ListenerDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListenerDispatcher.class);
+
+    private final Executor executor;
+    private final long slowListenerThresholdNanos;
+    private final MetricsSink metrics;
+
+    private final Map<PropertiesUpdateListener, ListenerQueue> listenerQueues = new ConcurrentHashMap<>();
+
+    /**
+     * @param executor
+     *            executor for asynchronous dispatch or <code>null</code> for synchronous dispatch
+     * @param slowListenerThreshold
+     *            listeners that take longer than this are reported
+     * @param unit
+     *            unit of {@code slowListenerThreshold}
+     */
+    ListenerDispatcher(Executor executor, long slowListenerThreshold, TimeUnit unit) {
+        this(executor, slowListenerThreshold, unit, MetricsSink.NONE);
+    }
+
+    /**
+     * @param executor
+     *            executor for asynchronous dispatch or <code>null</code> for synchronous dispatch
+     * @param slowListenerThreshold
+     *            listeners that take longer than this are reported
+     * @param unit
+     *            unit of {@code slowListenerThreshold}
+     * @param metrics
+     *            receives the time every listener takes to handle an update
+     */
+    ListenerDispatcher(Executor executor, long slowListenerThreshold, TimeUnit unit, MetricsSink metrics) {
+        this.executor = executor;
+        this.slowListenerThresholdNanos = unit.toNanos(slowListenerThreshold);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Delivers an update to the listeners that are subscribed to at least one of its updated keys.
+     *
+     * @param update
+     *            the update
+     * @param subscriptions
+     *            subscriptions of the listeners
+     */
+    void dispatch(PropertiesUpdate update, ListenerTrie subscriptions) {
+        for (PropertiesUpdateListener listener : subscriptions.getListeners(update.getUpdatedPropertyKeys())) {
+            if (executor == null) {
+                deliver(listener, update);
+            } else {
+                // the queue is only removed while it is idle, so a listener never has two queues at the same time
+                listenerQueues.compute(listener, (key, queue) -> {
+                    final ListenerQueue listenerQueue = queue != null ? queue : new ListenerQueue(key);
+                    listenerQueue.offer(update, subscriptions);
+                    return listenerQueue;
+                }).schedule();
+            }
+        }
+    }
+
+    /**
+     * Forgets the queue of a listener that has been removed once it is drained. Updates that are already pending are only
+     * delivered if the listener is still subscribed to one of their keys. If the listener is added again before, it
+     * keeps its queue, so it still receives its updates one at a time and in order.
+     *
+     * @param listener
+     *            removed listener
+     */
+    void remove(PropertiesUpdateListener listener) {
+        final ListenerQueue queue = listenerQueues.get(listener);
+
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    private void deliver(PropertiesUpdateListener listener, PropertiesUpdate update) {
+        final long startNanos = System.nanoTime();
+
+        try {
+            listener.handlePropertiesUpdate(update);
+        } catch (RuntimeException e) {
+            logger.error("Listener {} failed to handle a properties update", listener, e);
+        } finally {
+            final long durationNanos = System.nanoTime() - startNanos;
+            metrics.recordListenerDispatch(listener, durationNanos);
+
+            if (durationNanos > slowListenerThresholdNanos) {
+                logger.warn("Listener {} took {} ms to handle a properties update", listener,
+                        TimeUnit.NANOSECONDS.toMillis(durationNanos));
+            }
+        }
+    }
+
+    /**
+     * Pending update of a single listener, which is drained by at most one task at a time. A queue is only added to and
+     * removed from the map of queues within the lock of its entry, which is always acquired before the lock of the
+     * queue.
+     */
+    private final class ListenerQueue implements Runnable {
+        private final PropertiesUpdateListener listener;
+
+        // guarded by this
+        private PropertiesUpdate pendingUpdate;
+        private ListenerTrie subscriptions;
+        private boolean isScheduled;
+        private boolean isClosed;
+
+        private ListenerQueue(PropertiesUpdateListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Adds an update, which is delivered once the queue is scheduled. A listener that receives an update is
+         * subscribed again, so a closed queue is reopened.
+         */
+        private synchronized void offer(PropertiesUpdate update, ListenerTrie subscriptions) {
+            pendingUpdate = pendingUpdate == null ? update : coalesce(pendingUpdate, update);
+            this.subscriptions = subscriptions;
+            isClosed = false;
+        }
+
+        /**
+         * Marks the queue of a removed listener, which is removed from the map of queues as soon as it is idle.
+         */
+        private void close() {
+            synchronized (this) {
+                isClosed = true;
+            }
+
+            removeIfIdle();
+        }
+
+        private void removeIfIdle() {
+            listenerQueues.computeIfPresent(listener, (key, queue) -> queue == this && isIdleAndClosed() ? null : queue);
+        }
+
+        private synchronized boolean isIdleAndClosed() {
+            return isClosed && !isScheduled && pendingUpdate == null;
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (isScheduled) {
+                    return;
+                }
+
+                isScheduled = true;
+            }
+
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    isScheduled = false;
+                }
+
+                logger.error("Could not dispatch a properties update to listener {}", listener, e);
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean isDrained = false;
+
+            try {
+                while (true) {
+                    final PropertiesUpdate update;
+                    final ListenerTrie updateSubscriptions;
+
+                    synchronized (this) {
+                        update = pendingUpdate;
+                        updateSubscriptions = subscriptions;
+                        pendingUpdate = null;
+
+                        if (update == null) {
+                            isScheduled = false;
+                            isDrained = true;
+                            break;
+                        }
+                    }
+
+                    // coalesced updates might have reverted each other or only changed keys of other listeners
+                    final Set<String> updatedKeys = update.getUpdatedPropertyKeys();
+                    if (!updatedKeys.isEmpty() && updateSubscriptions.getListeners(updatedKeys).contains(listener)) {
+                        deliver(listener, update);
+                    }
+                }
+            } finally {
+                if (!isDrained) {
+                    // an error escaped the listener, so an update that has been offered in the meantime is scheduled
+                    final boolean hasPendingUpdate;
+                    synchronized (this) {
+                        isScheduled = false;
+                        hasPendingUpdate = pendingUpdate != null;
+                    }
+
+                    if (hasPendingUpdate) {
+                        schedule();
+                    }
+                }
+
+                removeIfIdle();
+            }
+        }
+    }
+
+    /**
+     * Coalesces two consecutive updates without computing anything, since this is called while the queue is locked.
+     * Updates of snapshots are merged into an update from the oldest to the newest snapshot, whose difference is
+     * computed structurally.
+     */
+    private static PropertiesUpdate coalesce(PropertiesUpdate olderUpdate, PropertiesUpdate newerUpdate) {
+        if (olderUpdate instanceof SnapshotUpdate && newerUpdate instanceof SnapshotUpdate) {
+            return new SnapshotUpdate(((SnapshotUpdate) olderUpdate).getOldSnapshot(),
+                    ((SnapshotUpdate) newerUpdate).getNewSnapshot());
+        }
+
+        return new CoalescedUpdate(olderUpdate, newerUpdate);
+    }
+
+    /**
+     * Replacement of the old properties of an update by the new properties of a later update, which is only compared
+     * once it is requested for the first time.
+     */
+    private static final class CoalescedUpdate implements PropertiesUpdate {
+        private final Supplier<PropertiesUpdate> replacement;
+
+        private CoalescedUpdate(PropertiesUpdate olderUpdate, PropertiesUpdate newerUpdate) {
+            this.replacement = Suppliers.memoize(() -> PropertiesUpdate.replacedProperties(
+                    olderUpdate.getOldProperties(), newerUpdate.getNewProperties()));
+        }
+
+        @Override
+        public Optional<Throwable> getException() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Properties getOldProperties() {
+            return replacement.get().getOldProperties();
+        }
+
+        @Override
+        public Properties getNewProperties() {
+            return replacement.get().getNewProperties();
+        }
+
+        @Override
+        public Set<String> getUpdatedPropertyKeys() {
+            return replacement.get().getUpdatedPropertyKeys();
+        }
+
+        @Override
+        public Set<String> getAddedKeys() {
+            return replacement.get().getAddedKeys();
+        }
+
+        @Override
+        public Set<String> getRemovedKeys() {
+            return replacement.get().getRemovedKeys();
+        }
+
+        @Override
+        public Set<String> getChangedKeys() {
+            return replacement.get().getChangedKeys();
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package de.vorb.properties;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Prefix trie of {@link PropertiesUpdateListener} subscriptions.
+ * <p>
+ * Listeners are either subscribed to all keys that start with a prefix or to a single key. The listeners that are
+ * interested in a set of changed keys are found by walking the trie along every changed key, so the cost of a dispatch
+ * depends on the length of the changed keys and not on the number of subscriptions.
+ */
+final class ListenerTrie {
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final Set<PropertiesUpdateListener> prefixListeners = Sets.newLinkedHashSet();
+        private final Set<PropertiesUpdateListener> keyListeners = Sets.newLinkedHashSet();
+
+        private boolean isEmpty() {
+            return children.isEmpty() && prefixListeners.isEmpty() && keyListeners.isEmpty();
+        }
+    }
+
+    // guarded by this
+    private final Node root = new Node();
+
+    /**
+     * Subscribes a listener to all keys that start with {@code keyPrefix}.
+     *
+     * @param keyPrefix
+     *            key prefix, the empty prefix matches all keys
+     * @param listener
+     *            subscribed listener
+     */
+    synchronized void addPrefixListener(String keyPrefix, PropertiesUpdateListener listener) {
+        getOrCreateNode(keyPrefix).prefixListeners.add(listener);
+    }
+
+    /**
+     * Subscribes a listener to a single key.
+     *
+     * @param key
+     *            property key
+     * @param listener
+     *            subscribed listener
+     */
+    synchronized void addKeyListener(String key, PropertiesUpdateListener listener) {
+        getOrCreateNode(key).keyListeners.add(listener);
+    }
+
+    /**
+     * Removes all subscriptions of a listener.
+     *
+     * @param listener
+     *            listener to remove
+     */
+    synchronized void remove(PropertiesUpdateListener listener) {
+        remove(root, listener);
+    }
+
+    synchronized boolean isEmpty() {
+        return root.isEmpty();
+    }
+
+    /**
+     * @param changedKeys
+     *            keys that have changed
+     * @return every listener that is subscribed to at least one of the changed keys, each listener only once
+     */
+    synchronized Set<PropertiesUpdateListener> getListeners(Collection<String> changedKeys) {
+        final Set<PropertiesUpdateListener> listeners = Sets.newLinkedHashSet(root.prefixListeners);
+
+        if (root.children.isEmpty() && root.keyListeners.isEmpty()) {
+            // there are only subscriptions to all keys
+            return listeners;
+        }
+
+        for (String key : changedKeys) {
+            Node node = root;
+
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+
+                if (node != null) {
+                    listeners.addAll(node.prefixListeners);
+                }
+            }
+
+            if (node != null) {
+                listeners.addAll(node.keyListeners);
+            }
+        }
+
+        return listeners;
+    }
+
+    private Node getOrCreateNode(String key) {
+        Node node = root;
+
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), character -> new Node());
+        }
+
+        return node;
+    }
+
+    private static void remove(Node node, PropertiesUpdateListener listener) {
+        node.prefixListeners.remove(listener);
+        node.keyListeners.remove(listener);
+
+        final Iterator<Node> children = node.children.values().iterator();
+        while (children.hasNext()) {
+            final Node child = children.next();
+
+            remove(child, listener);
+
+            if (child.isEmpty()) {
+                children.remove();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+
+/**
+ * Value type that parses string values into primitive <code>long</code> values without boxing.
+ */
+public interface LongValueType extends ValueType<Long> {
+
+    /**
+     * Parses a string value into a primitive <code>long</code>.
+     * 
+     * @param value
+     *            string representation of the value, must not be <code>null</code>
+     * @return parsed value
+     */
+    long parseLong(String value);
+
+    @Override
+    default Optional<Long> parseValue(String value) {
+        if (value == null) {
+            return Optional.empty();
+        } else {
+            return Optional.of(parseLong(value));
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package de.vorb.properties;
+
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+/**
+ * Receives measurements of a {@link PropertyProvider}, e.g. to forward them to a metrics library.
+ * <p>
+ * Methods are called on the thread that reloads the properties or dispatches updates, so implementations must be
+ * thread-safe and should return quickly. All methods do nothing by default.
+ */
+public interface MetricsSink {
+
+    /**
+     * Sink that ignores all measurements.
+     */
+    MetricsSink NONE = new MetricsSink() {
+    };
+
+    /**
+     * Called after a new snapshot has been published.
+     *
+     * @param generation
+     *            generation of the new snapshot
+     * @param parseNanos
+     *            time it took to parse the content of the property file, excluding reading the file and merging the
+     *            parsed entries into the snapshot, or <code>0</code> if the entries have been read from a cache
+     */
+    default void recordReload(long generation, long parseNanos) {
+    }
+
+    /**
+     * Called after the property file could not be read or parsed. The previous snapshot remains published.
+     */
+    default void recordFailedReload() {
+    }
+
+    /**
+     * Called after a new snapshot has been published in response to file system events.
+     *
+     * @param latencyNanos
+     *            time between the first file system event and the publication of the new snapshot
+     */
+    default void recordEventToPublishLatency(long latencyNanos) {
+    }
+
+    /**
+     * Called after a new snapshot has been published in response to file system events, whether or not there are
+     * listeners.
+     *
+     * @param updatedKeyCount
+     *            number of added, removed and changed keys
+     */
+    default void recordDiffSize(int updatedKeyCount) {
+    }
+
+    /**
+     * Called after a listener has handled an update.
+     *
+     * @param listener
+     *            the listener
+     * @param durationNanos
+     *            time the listener took to handle the update
+     */
+    default void recordListenerDispatch(PropertiesUpdateListener listener, long durationNanos) {
+    }
+
+    /**
+     * @param other
+     *            sink that receives the same measurements after this sink
+     * @return sink that forwards all measurements to this and the other sink
+     */
+    default MetricsSink andThen(MetricsSink other) {
+        final MetricsSink first = this;
+
+        return new MetricsSink() {
+            @Override
+            public void recordReload(long generation, long parseNanos) {
+                first.recordReload(generation, parseNanos);
+                other.recordReload(generation, parseNanos);
+            }
+
+            @Override
+            public void recordFailedReload() {
+                first.recordFailedReload();
+                other.recordFailedReload();
+            }
+
+            @Override
+            public void recordEventToPublishLatency(long latencyNanos) {
+                first.recordEventToPublishLatency(latencyNanos);
+                other.recordEventToPublishLatency(latencyNanos);
+            }
+
+            @Override
+            public void recordDiffSize(int updatedKeyCount) {
+                first.recordDiffSize(updatedKeyCount);
+                other.recordDiffSize(updatedKeyCount);
+            }
+
+            @Override
+            public void recordListenerDispatch(PropertiesUpdateListener listener, long durationNanos) {
+                first.recordListenerDispatch(listener, durationNanos);
+                other.recordListenerDispatch(listener, durationNanos);
+            }
+        };
+    }
+
+}
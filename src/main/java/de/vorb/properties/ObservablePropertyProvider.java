@@ -0,0 +1,77 @@
+package de.vorb.properties;
+
+import de.vorb.properties.event.PropertiesUpdate;
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+/**
+ * A {@link PropertyProvider} whose properties change over time and that informs registered
+ * {@link PropertiesUpdateListener}s of {@link PropertiesUpdate}s.
+ */
+public interface ObservablePropertyProvider extends PropertyProvider, TypedProperties {
+
+    /**
+     * Returns the current snapshot of the properties. Reading several properties from the returned snapshot yields
+     * values of the same version, even if the properties are updated in the meantime.
+     *
+     * @return current snapshot
+     */
+    Snapshot snapshot();
+
+    /**
+     * Adds a listener to the set of listeners.
+     *
+     * @param listener
+     *            will be added to the set of listeners
+     */
+    void addPropertiesUpdateListener(PropertiesUpdateListener listener);
+
+    /**
+     * Adds a listener that is only informed of updates that change at least one property whose key starts with
+     * {@code keyPrefix}.
+     *
+     * @param keyPrefix
+     *            prefix of the keys the listener is interested in, e.g. <code>"component."</code>
+     * @param listener
+     *            will be added to the set of listeners
+     */
+    void addPropertiesUpdateListener(String keyPrefix, PropertiesUpdateListener listener);
+
+    /**
+     * Adds a listener that is only informed of updates that change the property with the given key.
+     *
+     * @param key
+     *            key of the property the listener is interested in
+     * @param listener
+     *            will be added to the set of listeners
+     */
+    void addPropertiesUpdateListenerForKey(String key, PropertiesUpdateListener listener);
+
+    /**
+     * Removes a listener from the set of listeners, including all of its key and key prefix subscriptions.
+     *
+     * @param listener
+     *            will be removed from the set of listeners
+     */
+    void removePropertiesUpdateListener(PropertiesUpdateListener listener);
+
+    /**
+     * Creates a {@link PropertyHandle} whose value is parsed again whenever the property is updated. Reading the value
+     * of a handle is cheaper than {@link #getProperty(String, ValueType)}, since the key is resolved in advance.
+     *
+     * @param key
+     *            key of the property
+     * @param type
+     *            type of the property
+     * @param defaultValue
+     *            value of the handle while the property is undefined
+     *
+     * @param <T>
+     *            type of the property
+     *
+     * @return new handle
+     * @throws IllegalArgumentException
+     *             if the current value of the property is invalid
+     */
+    <T> PropertyHandle<T> handle(String key, ValueType<T> type, T defaultValue);
+
+}
@@ -0,0 +1,209 @@
+package de.vorb.properties;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Parses large properties content on several threads of a {@link ForkJoinPool}.
+ * <p>
+ * The content is split into chunks at line terminators that cannot be part of a line continuation, i.e. that do not
+ * follow an odd number of backslashes. Every chunk is parsed by its own {@link PropertiesParser}, and the entries of
+ * all chunks are handed to the {@link PropertiesParser.EntryHandler} in the order of the content, so later definitions
+ * of a key win like they do in {@link java.util.Properties#load(java.io.Reader)}.
+ */
+final class ParallelPropertiesParser {
+
+    /**
+     * Default minimum size of a chunk. Smaller chunks are not worth the overhead of a task.
+     */
+    static final int DEFAULT_MIN_CHUNK_SIZE = 256 * 1024;
+
+    private final Charset charset;
+    private final ForkJoinPool pool;
+    private final int minChunkSize;
+
+    /**
+     * @param charset
+     *            encoding of the parsed content, either UTF-8 or ISO-8859-1
+     * @param pool
+     *            pool on which the chunks are parsed
+     * @param minChunkSize
+     *            minimum size of a chunk in bytes
+     */
+    ParallelPropertiesParser(Charset charset, ForkJoinPool pool, int minChunkSize) {
+        Preconditions.checkArgument(minChunkSize > 0, "Chunk size must be positive");
+
+        // fail early on unsupported charsets
+        new PropertiesParser(charset);
+
+        this.charset = charset;
+        this.pool = Preconditions.checkNotNull(pool, "pool");
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Parses all entries of {@code content} from its position to its limit. The position of {@code content} is not
+     * changed.
+     *
+     * @param content
+     *            encoded properties
+     * @param handler
+     *            receives the parsed entries in the order of the content
+     * @throws MalformedInputException
+     *             if the content is not validly encoded
+     * @throws IllegalArgumentException
+     *             if the content contains a malformed <code>\\uxxxx</code> escape sequence
+     */
+    void parse(ByteBuffer content, PropertiesParser.EntryHandler handler) throws MalformedInputException {
+        final List<ChunkTask> chunks = split(content);
+
+        for (ChunkTask chunk : chunks) {
+            pool.execute(chunk);
+        }
+
+        try {
+            for (ChunkTask chunk : chunks) {
+                chunk.join();
+                chunk.replay(handler);
+            }
+        } catch (UncheckedIOException e) {
+            cancel(chunks);
+
+            if (e.getCause() instanceof MalformedInputException) {
+                throw (MalformedInputException) e.getCause();
+            }
+
+            throw e;
+        } catch (RuntimeException e) {
+            cancel(chunks);
+
+            throw e;
+        }
+    }
+
+    private List<ChunkTask> split(ByteBuffer content) {
+        final int end = content.limit();
+        final int chunkCount = Math.max(1, Math.min(pool.getParallelism() * 2, content.remaining() / minChunkSize));
+        final int targetChunkSize = content.remaining() / chunkCount;
+
+        final List<ChunkTask> chunks = new ArrayList<>(chunkCount);
+
+        int start = content.position();
+        while (start < end) {
+            final int chunkEnd = chunks.size() == chunkCount - 1 || end - start <= targetChunkSize
+                    ? end
+                    : findChunkStart(content, start, start + targetChunkSize, end);
+
+            chunks.add(new ChunkTask(content, start, chunkEnd));
+            start = chunkEnd;
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Finds the first offset at or after {@code from} at which a logical line starts for certain. This is the offset
+     * after a line feed that does not follow an odd number of backslashes. A line that ends with an odd number of
+     * backslashes might be a comment, which is not continued, but the offset after it is never chosen, so the decision
+     * does not depend on the content before the line.
+     *
+     * @param content
+     *            encoded properties
+     * @param lineStart
+     *            offset at which a logical line is known to start, at most {@code from}
+     * @param from
+     *            offset from which a chunk start is searched
+     * @param end
+     *            end of the content
+     * @return start of the next chunk or {@code end} if there is none
+     */
+    static int findChunkStart(ByteBuffer content, int lineStart, int from, int end) {
+        for (int offset = from; offset < end; offset++) {
+            if (content.get(offset) != '\n') {
+                continue;
+            }
+
+            int backslashEnd = offset;
+            if (backslashEnd > lineStart && content.get(backslashEnd - 1) == '\r') {
+                backslashEnd--;
+            }
+
+            int backslashStart = backslashEnd;
+            while (backslashStart > lineStart && content.get(backslashStart - 1) == '\\') {
+                backslashStart--;
+            }
+
+            if ((backslashEnd - backslashStart) % 2 == 0) {
+                return offset + 1;
+            }
+        }
+
+        return end;
+    }
+
+    private static void cancel(List<ChunkTask> chunks) {
+        for (ChunkTask chunk : chunks) {
+            chunk.cancel(false);
+        }
+    }
+
+    /**
+     * Parses a single chunk and buffers its entries until they are replayed in order.
+     */
+    private final class ChunkTask extends RecursiveAction implements PropertiesParser.EntryHandler {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ByteBuffer content;
+        private final int start;
+        private final int end;
+
+        // alternating keys and values
+        private transient String[] entries = new String[64];
+        private int entryCount;
+
+        private ChunkTask(ByteBuffer content, int start, int end) {
+            this.content = content;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                new PropertiesParser(charset).parse(content, start, end, this);
+            } catch (MalformedInputException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void entry(String key, String value) {
+            if (entryCount * 2 + 2 > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+
+            entries[entryCount * 2] = key;
+            entries[entryCount * 2 + 1] = value;
+            entryCount++;
+        }
+
+        private void replay(PropertiesParser.EntryHandler handler) {
+            for (int i = 0; i < entryCount; i++) {
+                handler.entry(entries[i * 2], entries[i * 2 + 1]);
+            }
+
+            // the entries are no longer needed once they have been handed over
+            entries = null;
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package de.vorb.properties;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Memoizes parsed property values per key and {@link ValueType} for one immutable set of properties.
+ * <p>
+ * Untyped values are looked up in immutable structures like a {@link PersistentPropertyMap}, so neither cache hits nor
+ * misses contend on the monitor of a {@link java.util.Properties} object.
+ * <p>
+ * Value types are compared by identity. Undefined keys are not cached, since any number of them can be looked up. Parse
+ * failures are memoized as well, so an invalid value is only parsed once and every subsequent lookup throws a new
+ * <code>IllegalArgumentException</code> with the original failure as its cause. Parsed byte arrays are mutable, so
+ * every lookup returns a copy of the cached array. A cache instance must be discarded as a whole once the underlying
+ * properties are replaced.
+ */
+final class ParsedValueCache {
+
+    /**
+     * Upper bound for the number of distinct value types that are cached. Value types are expected to be constants,
+     * but a capturing lambda creates a new instance on every call, which must not grow the cache without bounds.
+     */
+    private static final int MAX_CACHED_TYPES = 64;
+
+    private static final TypeSlot[] NO_SLOTS = new TypeSlot[0];
+
+    private final Function<String, String> untypedValues;
+
+    private volatile TypeSlot[] typeSlots = NO_SLOTS;
+
+    /**
+     * @param untypedValues
+     *            returns the untyped value of a key or <code>null</code> if it is undefined, must not change
+     */
+    ParsedValueCache(Function<String, String> untypedValues) {
+        this.untypedValues = untypedValues;
+    }
+
+    <T> Optional<T> getProperty(String key, ValueType<T> type) {
+        final TypeSlot slot = getTypeSlot(type);
+
+        if (slot == null) {
+            return type.parseValue(untypedValues.apply(key));
+        }
+
+        ParsedValue parsedValue = slot.parsedValues.get(key);
+
+        if (parsedValue == null) {
+            final String untypedValue = untypedValues.apply(key);
+            if (untypedValue == null) {
+                return type.parseValue(null);
+            }
+
+            parsedValue = ParsedValue.parse(type, untypedValue);
+
+            final ParsedValue concurrentlyParsedValue = slot.parsedValues.putIfAbsent(key, parsedValue);
+            if (concurrentlyParsedValue != null) {
+                parsedValue = concurrentlyParsedValue;
+            }
+        }
+
+        return parsedValue.get();
+    }
+
+    private TypeSlot getTypeSlot(ValueType<?> type) {
+        for (TypeSlot slot : typeSlots) {
+            if (slot.type == type) {
+                return slot;
+            }
+        }
+
+        return addTypeSlot(type);
+    }
+
+    private synchronized TypeSlot addTypeSlot(ValueType<?> type) {
+        final TypeSlot[] currentSlots = typeSlots;
+
+        for (TypeSlot slot : currentSlots) {
+            if (slot.type == type) {
+                return slot;
+            }
+        }
+
+        if (currentSlots.length >= MAX_CACHED_TYPES) {
+            return null;
+        }
+
+        final TypeSlot slot = new TypeSlot(type);
+        final TypeSlot[] newSlots = Arrays.copyOf(currentSlots, currentSlots.length + 1);
+        newSlots[currentSlots.length] = slot;
+        typeSlots = newSlots;
+
+        return slot;
+    }
+
+    private static final class TypeSlot {
+        private final ValueType<?> type;
+        private final ConcurrentMap<String, ParsedValue> parsedValues = new ConcurrentHashMap<>();
+
+        private TypeSlot(ValueType<?> type) {
+            this.type = type;
+        }
+    }
+
+    /**
+     * Result of parsing a single value: either the parsed value or the exception that was thrown while parsing it.
+     */
+    private static final class ParsedValue {
+        private final Optional<?> value;
+        private final IllegalArgumentException exception;
+
+        /**
+         * Whether the value is a byte array, which must be copied, since callers might modify it.
+         */
+        private final boolean isByteArray;
+
+        private ParsedValue(Optional<?> value, IllegalArgumentException exception) {
+            this.value = value;
+            this.exception = exception;
+            this.isByteArray = value != null && value.isPresent() && value.get() instanceof byte[];
+        }
+
+        static ParsedValue parse(ValueType<?> type, String untypedValue) {
+            try {
+                return new ParsedValue(type.parseValue(untypedValue), null);
+            } catch (IllegalArgumentException e) {
+                return new ParsedValue(null, e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> Optional<T> get() {
+            if (exception != null) {
+                // a cached exception is never rethrown, since its stack trace would not match the lookup
+                throw new IllegalArgumentException(exception.getMessage(), exception);
+            }
+
+            if (isByteArray) {
+                return (Optional<T>) Optional.of(((byte[]) value.get()).clone());
+            }
+
+            return (Optional<T>) value;
+        }
+    }
+
+}
@@ -0,0 +1,565 @@
+package de.vorb.properties;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Immutable map of string properties that shares structure with its previous versions.
+ * <p>
+ * The map is a hash array mapped trie: every node consumes five bits of the hash code of a key and stores entries and
+ * child nodes in an array that is indexed by a bitmap. A new version of a map only copies the nodes on the paths to the
+ * entries that have changed, so versions that differ in a few entries share all other nodes. Nodes are kept in a
+ * canonical form, in which a child node always holds more than a single entry, so two versions with equal entries in a
+ * subtree usually share that subtree and the keys that differ between two versions are found by skipping all shared
+ * subtrees.
+ * <p>
+ * New versions are created with a {@link Builder}, which modifies the nodes that it has created itself in place.
+ */
+final class PersistentPropertyMap {
+
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+    static final PersistentPropertyMap EMPTY = new PersistentPropertyMap(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentPropertyMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param key
+     *            key of the requested property
+     * @return the value of the property or <code>null</code> if it is undefined
+     */
+    String get(String key) {
+        return root.get(key, hash(key), 0);
+    }
+
+    /**
+     * @return number of properties in this map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param action
+     *            called for every entry of this map
+     */
+    void forEach(BiConsumer<String, String> action) {
+        root.forEach(action);
+    }
+
+    /**
+     * Reports every key that is only defined in one of both maps or that has different values in both maps. Subtrees
+     * that are shared by both maps are skipped, so the cost depends on the number of differences and not on the size
+     * of the maps.
+     *
+     * @param other
+     *            another version of this map
+     * @param action
+     *            called once for every key that differs
+     */
+    void forEachDifferentKey(PersistentPropertyMap other, Consumer<String> action) {
+        difference(root, other.root, 0, action);
+    }
+
+    /**
+     * Creates a version of this map that contains exactly the entries of {@code table}. Entries whose values are
+     * unchanged are shared with this map, including their keys and values.
+     *
+     * @param table
+     *            entries of the new version
+     * @return new version of this map or this map if the entries are equal
+     */
+    PersistentPropertyMap withEntriesOf(PropertyTable table) {
+        final Builder builder = toBuilder();
+
+        table.forEach(builder::put);
+
+        if (builder.size() != table.size()) {
+            // some keys of this map are not part of the table
+            forEach((key, value) -> {
+                if (table.get(key) == null) {
+                    builder.remove(key);
+                }
+            });
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * @return builder for a new version of this map
+     */
+    Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    private static int hash(String key) {
+        final int hashCode = key.hashCode();
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & LEVEL_MASK);
+    }
+
+    private static void difference(Node node, Node otherNode, int shift, Consumer<String> action) {
+        if (node == otherNode) {
+            return;
+        }
+
+        if (!(node instanceof BitmapNode) || !(otherNode instanceof BitmapNode)) {
+            differenceOfEntries(node, otherNode, shift, action);
+            return;
+        }
+
+        final BitmapNode bitmapNode = (BitmapNode) node;
+        final BitmapNode otherBitmapNode = (BitmapNode) otherNode;
+
+        int remainingBits = bitmapNode.bitmap | otherBitmapNode.bitmap;
+        while (remainingBits != 0) {
+            final int bit = Integer.lowestOneBit(remainingBits);
+            remainingBits &= ~bit;
+
+            if ((otherBitmapNode.bitmap & bit) == 0) {
+                bitmapNode.forEachAt(bit, action);
+            } else if ((bitmapNode.bitmap & bit) == 0) {
+                otherBitmapNode.forEachAt(bit, action);
+            } else {
+                final int index = 2 * bitmapNode.index(bit);
+                final int otherIndex = 2 * otherBitmapNode.index(bit);
+
+                differenceAt(bitmapNode.array[index], bitmapNode.array[index + 1],
+                        otherBitmapNode.array[otherIndex], otherBitmapNode.array[otherIndex + 1], shift, action);
+            }
+        }
+    }
+
+    private static void differenceAt(Object key, Object value, Object otherKey, Object otherValue, int shift,
+            Consumer<String> action) {
+
+        if (key == null && otherKey == null) {
+            difference((Node) value, (Node) otherValue, shift + BITS_PER_LEVEL, action);
+        } else if (key != null && otherKey != null) {
+            if (!key.equals(otherKey)) {
+                action.accept((String) key);
+                action.accept((String) otherKey);
+            } else if (!value.equals(otherValue)) {
+                action.accept((String) key);
+            }
+        } else if (key != null) {
+            differenceOfEntryAndNode((String) key, (String) value, (Node) otherValue, shift, action);
+        } else {
+            differenceOfEntryAndNode((String) otherKey, (String) otherValue, (Node) value, shift, action);
+        }
+    }
+
+    private static void differenceOfEntryAndNode(String key, String value, Node node, int shift,
+            Consumer<String> action) {
+
+        if (!value.equals(node.get(key, hash(key), shift + BITS_PER_LEVEL))) {
+            action.accept(key);
+        }
+
+        node.forEach((nodeKey, nodeValue) -> {
+            if (!nodeKey.equals(key)) {
+                action.accept(nodeKey);
+            }
+        });
+    }
+
+    private static void differenceOfEntries(Node node, Node otherNode, int shift, Consumer<String> action) {
+        node.forEach((key, value) -> {
+            if (!value.equals(otherNode.get(key, hash(key), shift))) {
+                action.accept(key);
+            }
+        });
+
+        otherNode.forEach((key, value) -> {
+            if (node.get(key, hash(key), shift) == null) {
+                action.accept(key);
+            }
+        });
+    }
+
+    /**
+     * Creates new versions of a map. A builder must only be used by a single thread.
+     */
+    static final class Builder {
+        private final PersistentPropertyMap original;
+
+        /**
+         * Token that identifies the nodes that have been created by this builder since the last call of
+         * {@link #build()} and can therefore be modified in place.
+         */
+        private Object edit = new Object();
+
+        private Node root;
+        private int size;
+
+        private boolean leafAdded;
+        private boolean leafRemoved;
+
+        private Builder(PersistentPropertyMap original) {
+            this.original = original;
+            this.root = original.root;
+            this.size = original.size;
+        }
+
+        /**
+         * @param key
+         *            property key
+         * @param value
+         *            property value, which replaces a previous value of the key unless both are equal
+         */
+        void put(String key, String value) {
+            leafAdded = false;
+            root = root.put(this, key, hash(key), value, 0);
+
+            if (leafAdded) {
+                size++;
+            }
+        }
+
+        /**
+         * @param key
+         *            key of the removed property
+         */
+        void remove(String key) {
+            leafRemoved = false;
+
+            final Node newRoot = root.remove(this, key, hash(key), 0);
+            root = newRoot == null ? BitmapNode.EMPTY : newRoot;
+
+            if (leafRemoved) {
+                size--;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return new version of the map, or the original map if it has not been changed
+         */
+        PersistentPropertyMap build() {
+            if (root == original.root) {
+                return original;
+            }
+
+            // nodes that are part of the built map must not be modified any more
+            edit = new Object();
+
+            return new PersistentPropertyMap(root, size);
+        }
+    }
+
+    private abstract static class Node {
+        abstract String get(String key, int hash, int shift);
+
+        abstract Node put(Builder builder, String key, int hash, String value, int shift);
+
+        /**
+         * @return the node without the key or <code>null</code> if the node is empty
+         */
+        abstract Node remove(Builder builder, String key, int hash, int shift);
+
+        abstract void forEach(BiConsumer<String, String> action);
+    }
+
+    /**
+     * Node whose array holds a key and a value or <code>null</code> and a child node for every bit of its bitmap.
+     */
+    private static final class BitmapNode extends Node {
+        private static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        private final Object edit;
+        private int bitmap;
+        private Object[] array;
+
+        private BitmapNode(Object edit, int bitmap, Object[] array) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        String get(String key, int hash, int shift) {
+            final int bit = bit(hash, shift);
+
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+
+            final int index = 2 * index(bit);
+            final Object entryKey = array[index];
+            final Object entryValue = array[index + 1];
+
+            if (entryKey == null) {
+                return ((Node) entryValue).get(key, hash, shift + BITS_PER_LEVEL);
+            }
+
+            return key.equals(entryKey) ? (String) entryValue : null;
+        }
+
+        @Override
+        Node put(Builder builder, String key, int hash, String value, int shift) {
+            final int bit = bit(hash, shift);
+            final int index = 2 * index(bit);
+
+            if ((bitmap & bit) == 0) {
+                builder.leafAdded = true;
+
+                final Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+
+                if (edit == builder.edit) {
+                    bitmap |= bit;
+                    array = newArray;
+                    return this;
+                }
+
+                return new BitmapNode(builder.edit, bitmap | bit, newArray);
+            }
+
+            final Object entryKey = array[index];
+            final Object entryValue = array[index + 1];
+
+            if (entryKey == null) {
+                final Node child = ((Node) entryValue).put(builder, key, hash, value, shift + BITS_PER_LEVEL);
+                return child == entryValue ? this : withEntry(builder, index, null, child);
+            }
+
+            if (key.equals(entryKey)) {
+                return value.equals(entryValue) ? this : withEntry(builder, index, entryKey, value);
+            }
+
+            builder.leafAdded = true;
+
+            final Node child = createNode(builder, (String) entryKey, (String) entryValue, key, hash, value,
+                    shift + BITS_PER_LEVEL);
+
+            return withEntry(builder, index, null, child);
+        }
+
+        @Override
+        Node remove(Builder builder, String key, int hash, int shift) {
+            final int bit = bit(hash, shift);
+
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            final int index = 2 * index(bit);
+            final Object entryKey = array[index];
+            final Object entryValue = array[index + 1];
+
+            if (entryKey == null) {
+                final Node child = ((Node) entryValue).remove(builder, key, hash, shift + BITS_PER_LEVEL);
+
+                if (child == entryValue) {
+                    return this;
+                } else if (child == null) {
+                    return without(builder, bit, index);
+                } else if (child instanceof BitmapNode && ((BitmapNode) child).isSingleEntry()) {
+                    // a child node with a single entry is replaced by the entry to keep the trie canonical
+                    final Object[] childArray = ((BitmapNode) child).array;
+                    return withEntry(builder, index, childArray[0], childArray[1]);
+                }
+
+                return withEntry(builder, index, null, child);
+            }
+
+            if (!key.equals(entryKey)) {
+                return this;
+            }
+
+            builder.leafRemoved = true;
+
+            return without(builder, bit, index);
+        }
+
+        @Override
+        void forEach(BiConsumer<String, String> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).forEach(action);
+                } else {
+                    action.accept((String) array[i], (String) array[i + 1]);
+                }
+            }
+        }
+
+        private void forEachAt(int bit, Consumer<String> action) {
+            final int index = 2 * index(bit);
+
+            if (array[index] == null) {
+                ((Node) array[index + 1]).forEach((key, value) -> action.accept(key));
+            } else {
+                action.accept((String) array[index]);
+            }
+        }
+
+        private boolean isSingleEntry() {
+            return array.length == 2 && array[0] != null;
+        }
+
+        private BitmapNode withEntry(Builder builder, int index, Object key, Object value) {
+            final BitmapNode node = edit == builder.edit ? this : new BitmapNode(builder.edit, bitmap, array.clone());
+
+            node.array[index] = key;
+            node.array[index + 1] = value;
+
+            return node;
+        }
+
+        private BitmapNode without(Builder builder, int bit, int index) {
+            if (bitmap == bit) {
+                return null;
+            }
+
+            final Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+
+            if (edit == builder.edit) {
+                bitmap &= ~bit;
+                array = newArray;
+                return this;
+            }
+
+            return new BitmapNode(builder.edit, bitmap & ~bit, newArray);
+        }
+
+        private static Node createNode(Builder builder, String key, String value, String otherKey, int otherHash,
+                String otherValue, int shift) {
+
+            final int hash = hash(key);
+
+            if (hash == otherHash) {
+                return new CollisionNode(builder.edit, hash, new Object[] { key, value, otherKey, otherValue });
+            }
+
+            return EMPTY.put(builder, key, hash, value, shift).put(builder, otherKey, otherHash, otherValue, shift);
+        }
+    }
+
+    /**
+     * Node that holds the keys and values of several keys with the same hash code.
+     */
+    private static final class CollisionNode extends Node {
+        private final Object edit;
+        private final int hash;
+        private Object[] array;
+
+        private CollisionNode(Object edit, int hash, Object[] array) {
+            this.edit = edit;
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(String key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        @Override
+        String get(String key, int hash, int shift) {
+            if (hash != this.hash) {
+                return null;
+            }
+
+            final int index = indexOf(key);
+            return index < 0 ? null : (String) array[index + 1];
+        }
+
+        @Override
+        Node put(Builder builder, String key, int hash, String value, int shift) {
+            if (hash != this.hash) {
+                // the collision node becomes the child of a bitmap node that also holds the new key
+                return new BitmapNode(builder.edit, bit(this.hash, shift), new Object[] { null, this })
+                        .put(builder, key, hash, value, shift);
+            }
+
+            final int index = indexOf(key);
+
+            if (index >= 0) {
+                if (value.equals(array[index + 1])) {
+                    return this;
+                }
+
+                final CollisionNode node = editable(builder);
+                node.array[index + 1] = value;
+                return node;
+            }
+
+            builder.leafAdded = true;
+
+            final Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+
+            final CollisionNode node = editable(builder);
+            node.array = newArray;
+            return node;
+        }
+
+        @Override
+        Node remove(Builder builder, String key, int hash, int shift) {
+            final int index = hash == this.hash ? indexOf(key) : -1;
+
+            if (index < 0) {
+                return this;
+            }
+
+            builder.leafRemoved = true;
+
+            if (array.length == 4) {
+                // the remaining entry is moved into its parent
+                final int remainingIndex = index == 0 ? 2 : 0;
+                return new BitmapNode(builder.edit, bit(this.hash, shift),
+                        new Object[] { array[remainingIndex], array[remainingIndex + 1] });
+            }
+
+            final Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+
+            final CollisionNode node = editable(builder);
+            node.array = newArray;
+            return node;
+        }
+
+        @Override
+        void forEach(BiConsumer<String, String> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept((String) array[i], (String) array[i + 1]);
+            }
+        }
+
+        private CollisionNode editable(Builder builder) {
+            return edit == builder.edit ? this : new CollisionNode(builder.edit, hash, array.clone());
+        }
+    }
+
+}
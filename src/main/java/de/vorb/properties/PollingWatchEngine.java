@@ -0,0 +1,411 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Detects changes of files by periodically comparing their modification time, size and file key, which works on file
+ * systems whose watch services are slow, coalesce events or do not report events at all, e.g. network mounts and
+ * overlay file systems.
+ * <p>
+ * Every watched file or directory is polled at its own interval, which starts at the minimum interval and doubles up to
+ * the maximum interval as long as no change is detected. All targets that are due at about the same time are polled in
+ * one batch by a single thread, which sleeps until the next target is due. Every scheduled poll is randomly brought
+ * forward by up to a quarter of its interval, so a large number of watched files is polled spread over time instead of
+ * all at the same moment. The targets are kept in a queue ordered by their next poll, so a batch only touches the
+ * targets that are due.
+ * <p>
+ * A modification that does not change the size of a file might not change its modification time either, if it happens
+ * within the resolution of the file system's timestamps. The content of a file that has been modified shortly before it
+ * was polled is therefore hashed and compared in the next poll as well.
+ */
+final class PollingWatchEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PollingWatchEngine.class);
+
+    private static final PollingWatchEngine SHARED = new PollingWatchEngine();
+
+    /**
+     * Targets that are due within this time after the earliest target are polled in the same batch.
+     */
+    private static final long BATCH_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat(PollingWatchEngine.class.getName() + "-thread-%d")
+                    .setDaemon(true)
+                    .build());
+
+    // guarded by this
+    private final PriorityQueue<PolledTarget> targets = new PriorityQueue<>(
+            (first, second) -> Long.signum(first.nextPollNanos - second.nextPollNanos));
+    private ScheduledFuture<?> scheduledPoll;
+    private long scheduledPollNanos;
+
+    /**
+     * @return the polling engine that is shared by all providers
+     */
+    static PollingWatchEngine shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a {@link WatchEngine} that polls the registered files and directories with the given intervals.
+     *
+     * @param minInterval
+     *            interval after a detected change
+     * @param maxInterval
+     *            interval that is reached after a long time without changes
+     * @param unit
+     *            unit of {@code minInterval} and {@code maxInterval}
+     * @return engine backed by this polling engine
+     */
+    WatchEngine withIntervals(long minInterval, long maxInterval, TimeUnit unit) {
+        Preconditions.checkArgument(minInterval > 0, "Polling interval must be positive");
+        Preconditions.checkArgument(maxInterval >= minInterval,
+                "Maximum polling interval is shorter than the minimum polling interval");
+
+        final long minIntervalNanos = unit.toNanos(minInterval);
+        final long maxIntervalNanos = unit.toNanos(maxInterval);
+
+        return new WatchEngine() {
+            @Override
+            public Registration register(Path file, FileChangeListener listener) {
+                return add(new PolledFile(file.toAbsolutePath().normalize(), listener, minIntervalNanos,
+                        maxIntervalNanos));
+            }
+
+            @Override
+            public Registration registerDirectory(Path directory, DirectoryChangeListener listener)
+                    throws IOException {
+                Preconditions.checkArgument(Files.isDirectory(directory), "'%s' is no directory", directory);
+
+                return add(new PolledDirectory(directory.toAbsolutePath().normalize(), listener, minIntervalNanos,
+                        maxIntervalNanos));
+            }
+        };
+    }
+
+    private synchronized WatchEngine.Registration add(PolledTarget target) {
+        target.nextPollNanos = System.nanoTime() + target.jitteredIntervalNanos();
+        targets.add(target);
+        schedulePoll();
+
+        return () -> remove(target);
+    }
+
+    private synchronized void remove(PolledTarget target) {
+        // a target that is being polled is not in the queue, so it must not be added again afterwards
+        target.isCancelled = true;
+        targets.remove(target);
+        schedulePoll();
+    }
+
+    /**
+     * Schedules the next batch, unless it is already scheduled early enough, or cancels the scheduled batch if there are
+     * no targets.
+     */
+    private synchronized void schedulePoll() {
+        if (targets.isEmpty()) {
+            if (scheduledPoll != null) {
+                scheduledPoll.cancel(false);
+                scheduledPoll = null;
+            }
+            return;
+        }
+
+        final long nextPollNanos = targets.peek().nextPollNanos;
+
+        if (scheduledPoll != null) {
+            if (scheduledPollNanos - nextPollNanos <= 0) {
+                return;
+            }
+            scheduledPoll.cancel(false);
+        }
+
+        scheduledPollNanos = nextPollNanos;
+        scheduledPoll = scheduler.schedule(this::pollDueTargets, Math.max(0, nextPollNanos - System.nanoTime()),
+                TimeUnit.NANOSECONDS);
+    }
+
+    private void pollDueTargets() {
+        final List<PolledTarget> dueTargets = new ArrayList<>();
+
+        synchronized (this) {
+            scheduledPoll = null;
+
+            final long batchEndNanos = System.nanoTime() + BATCH_WINDOW_NANOS;
+            while (!targets.isEmpty() && targets.peek().nextPollNanos - batchEndNanos <= 0) {
+                dueTargets.add(targets.poll());
+            }
+        }
+
+        for (PolledTarget target : dueTargets) {
+            try {
+                target.poll();
+            } catch (RuntimeException e) {
+                logger.warn("Polling '{}' failed", target.path, e);
+            }
+        }
+
+        synchronized (this) {
+            for (PolledTarget target : dueTargets) {
+                if (!target.isCancelled) {
+                    targets.add(target);
+                }
+            }
+
+            schedulePoll();
+        }
+    }
+
+    /**
+     * Watched file or directory with an adaptive polling interval. Only polled by the polling thread, while it is not
+     * in the queue of targets.
+     */
+    private abstract static class PolledTarget {
+        final Path path;
+        private final long minIntervalNanos;
+        private final long maxIntervalNanos;
+        private long intervalNanos;
+
+        // guarded by the engine while the target is in the queue
+        long nextPollNanos;
+        boolean isCancelled;
+
+        PolledTarget(Path path, long minIntervalNanos, long maxIntervalNanos) {
+            this.path = path;
+            this.minIntervalNanos = minIntervalNanos;
+            this.maxIntervalNanos = maxIntervalNanos;
+            this.intervalNanos = minIntervalNanos;
+        }
+
+        void poll() {
+            if (detectChanges()) {
+                intervalNanos = minIntervalNanos;
+            } else {
+                intervalNanos = Math.min(intervalNanos * 2, maxIntervalNanos);
+            }
+
+            nextPollNanos = System.nanoTime() + jitteredIntervalNanos();
+        }
+
+        long jitteredIntervalNanos() {
+            return intervalNanos - ThreadLocalRandom.current().nextLong(intervalNanos / 4 + 1);
+        }
+
+        /**
+         * Compares the current state of the target with the state of the last poll and informs the listener.
+         *
+         * @return <code>true</code> if a change has been detected
+         */
+        abstract boolean detectChanges();
+    }
+
+    private static final class PolledFile extends PolledTarget {
+        private final WatchEngine.FileChangeListener listener;
+        private FileState state;
+
+        PolledFile(Path file, WatchEngine.FileChangeListener listener, long minIntervalNanos, long maxIntervalNanos) {
+            super(file, minIntervalNanos, maxIntervalNanos);
+            this.listener = listener;
+            this.state = FileState.of(file, null);
+        }
+
+        @Override
+        boolean detectChanges() {
+            final FileState newState = FileState.of(path, state);
+
+            if (newState == null) {
+                return false;
+            }
+
+            // an unchanged state is replaced as well, since the file might have stopped being racy
+            final boolean isChanged = newState.isChangedSince(state);
+            state = newState;
+
+            if (isChanged) {
+                listener.fileChanged(path);
+            }
+
+            return isChanged;
+        }
+    }
+
+    private static final class PolledDirectory extends PolledTarget {
+        private final WatchEngine.DirectoryChangeListener listener;
+        private Map<Path, FileState> states;
+
+        PolledDirectory(Path directory, WatchEngine.DirectoryChangeListener listener, long minIntervalNanos,
+                long maxIntervalNanos) throws IOException {
+            super(directory, minIntervalNanos, maxIntervalNanos);
+            this.listener = listener;
+            this.states = list(directory, Collections.emptyMap());
+        }
+
+        @Override
+        boolean detectChanges() {
+            final Map<Path, FileState> newStates;
+            try {
+                newStates = list(path, states);
+            } catch (IOException e) {
+                logger.debug("Could not list the directory '{}'", path, e);
+                return false;
+            }
+
+            final Set<Path> changedFiles = new LinkedHashSet<>();
+
+            for (Map.Entry<Path, FileState> entry : newStates.entrySet()) {
+                final FileState oldState = states.get(entry.getKey());
+
+                if (entry.getValue() == null) {
+                    // the state of the file is unknown, so it is compared again in the next poll
+                    entry.setValue(oldState);
+                } else if (entry.getValue().isChangedSince(oldState)) {
+                    changedFiles.add(entry.getKey());
+                }
+            }
+
+            for (Path file : states.keySet()) {
+                if (!newStates.containsKey(file)) {
+                    changedFiles.add(file);
+                }
+            }
+
+            states = newStates;
+
+            if (changedFiles.isEmpty()) {
+                return false;
+            }
+
+            listener.filesChanged(Collections.unmodifiableSet(changedFiles));
+
+            return true;
+        }
+
+        private static Map<Path, FileState> list(Path directory, Map<Path, FileState> previousStates)
+                throws IOException {
+            final Map<Path, FileState> states = new HashMap<>();
+
+            try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    states.put(file, FileState.of(file, previousStates.get(file)));
+                }
+            }
+
+            return states;
+        }
+    }
+
+    /**
+     * Attributes of a file that change whenever the file is modified, replaced or deleted, and the hash of the content
+     * of a file whose attributes might not reflect every modification since the previous poll.
+     */
+    private static final class FileState {
+        private static final FileState MISSING = new FileState(null, -1, null, false, null);
+
+        private final FileTime lastModifiedTime;
+        private final long size;
+        private final Object fileKey;
+
+        /**
+         * Whether the file has been modified so shortly before it was polled that a later modification might not change
+         * its attributes.
+         */
+        private final boolean isRacy;
+
+        /**
+         * Hash of the content if the file is racy or has been racy in the previous poll, otherwise <code>null</code>.
+         */
+        private final HashCode contentHash;
+
+        private FileState(FileTime lastModifiedTime, long size, Object fileKey, boolean isRacy, HashCode contentHash) {
+            this.lastModifiedTime = lastModifiedTime;
+            this.size = size;
+            this.fileKey = fileKey;
+            this.isRacy = isRacy;
+            this.contentHash = contentHash;
+        }
+
+        /**
+         * @param file
+         *            polled file
+         * @param previousState
+         *            state of the previous poll or <code>null</code>
+         * @return the current state of the file or <code>null</code> if it could not be determined
+         */
+        static FileState of(Path file, FileState previousState) {
+            try {
+                final long pollTimeMillis = System.currentTimeMillis();
+                final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                final boolean isRacy = attributes.isRegularFile() && pollTimeMillis
+                        - attributes.lastModifiedTime().toMillis() <= FileFingerprint.RACY_MODIFICATION_MILLIS;
+                final FileState state = new FileState(attributes.lastModifiedTime(), attributes.size(),
+                        attributes.fileKey(), isRacy, null);
+
+                // the content is only hashed as long as a modification might not be reflected by the attributes
+                final boolean isComparedByContent = previousState != null && previousState.isRacy
+                        && state.hasSameAttributes(previousState);
+
+                if (isRacy || isComparedByContent) {
+                    return new FileState(state.lastModifiedTime, state.size, state.fileKey, isRacy,
+                            FileFingerprint.hash(PropertiesParser.readFile(file)));
+                }
+
+                return state;
+            } catch (NoSuchFileException e) {
+                return MISSING;
+            } catch (IOException e) {
+                logger.debug("Could not read the attributes of '{}'", file, e);
+                return null;
+            }
+        }
+
+        /**
+         * @param previousState
+         *            state of the previous poll or <code>null</code> if the file was unknown
+         * @return <code>true</code> if the file has changed since the previous poll
+         */
+        boolean isChangedSince(FileState previousState) {
+            if (previousState == null || !hasSameAttributes(previousState)) {
+                return true;
+            }
+
+            return contentHash != null && previousState.contentHash != null
+                    && !contentHash.equals(previousState.contentHash);
+        }
+
+        private boolean hasSameAttributes(FileState other) {
+            return size == other.size
+                    && Objects.equals(lastModifiedTime, other.lastModifiedTime)
+                    && Objects.equals(fileKey, other.fileKey);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package de.vorb.properties;
+
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Keys whose values differ between two versions of the properties of a provider.
+ */
+final class PropertiesDifference {
+
+    private final Set<String> addedKeys;
+    private final Set<String> removedKeys;
+    private final Set<String> changedKeys;
+    private final Set<String> updatedKeys;
+
+    private PropertiesDifference(Set<String> addedKeys, Set<String> removedKeys, Set<String> changedKeys) {
+        this.addedKeys = addedKeys;
+        this.removedKeys = removedKeys;
+        this.changedKeys = changedKeys;
+        this.updatedKeys = Sets.union(addedKeys, Sets.union(removedKeys, changedKeys));
+    }
+
+    /**
+     * @param addedKeys
+     *            keys that are only defined in the new properties
+     * @param removedKeys
+     *            keys that are only defined in the old properties
+     * @param changedKeys
+     *            keys that are defined in both properties, but with different values
+     * @return difference consisting of the given disjoint sets of keys
+     */
+    static PropertiesDifference of(Set<String> addedKeys, Set<String> removedKeys, Set<String> changedKeys) {
+        return new PropertiesDifference(addedKeys, removedKeys, changedKeys);
+    }
+
+    Set<String> getAddedKeys() {
+        return addedKeys;
+    }
+
+    Set<String> getRemovedKeys() {
+        return removedKeys;
+    }
+
+    Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    /**
+     * @return union of the added, removed and changed keys
+     */
+    Set<String> getUpdatedKeys() {
+        return updatedKeys;
+    }
+
+}
@@ -0,0 +1,445 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Parser for the properties file format that is accepted by {@link java.util.Properties#load(java.io.Reader)}.
+ * <p>
+ * The parser works directly on the bytes of a file and decodes them while it assembles logical lines, so there is no
+ * intermediate {@link java.io.Reader} and no {@link java.util.Hashtable}. Parsed entries are handed to an
+ * {@link EntryHandler} in the order in which they appear in the file. Keys and values are taken from a
+ * {@link StringPool}, so repeated strings are not allocated again. A parser instance reuses its line buffer and must not
+ * be used by several threads at the same time.
+ */
+final class PropertiesParser {
+
+    /**
+     * Files of at least this size are memory-mapped by {@link #mapFile(Path)} instead of being copied to the heap.
+     */
+    static final int MEMORY_MAPPING_THRESHOLD = 256 * 1024;
+
+    /**
+     * Receives parsed entries.
+     */
+    @FunctionalInterface
+    interface EntryHandler {
+        void entry(String key, String value);
+    }
+
+    private final boolean isUtf8;
+    private final StringPool stringPool;
+
+    private char[] lineBuffer = new char[1024];
+
+    /**
+     * Length of the logical line that has been read last or <code>-1</code> if there was none.
+     */
+    private int lineLength;
+
+    /**
+     * Number of chars that have been decoded by the last call to {@link #decodeUtf8(ByteBuffer, int, int, int)}.
+     */
+    private int decodedLength;
+
+    /**
+     * Creates a parser that uses the {@link StringPool#shared() shared string pool}.
+     *
+     * @param charset
+     *            encoding of the parsed content, either UTF-8 or ISO-8859-1
+     */
+    PropertiesParser(Charset charset) {
+        this(charset, StringPool.shared());
+    }
+
+    /**
+     * @param charset
+     *            encoding of the parsed content, either UTF-8 or ISO-8859-1
+     * @param stringPool
+     *            pool of the created keys and values
+     */
+    PropertiesParser(Charset charset, StringPool stringPool) {
+        Preconditions.checkArgument(
+                StandardCharsets.UTF_8.equals(charset) || StandardCharsets.ISO_8859_1.equals(charset),
+                "Unsupported charset %s", charset);
+
+        this.isUtf8 = StandardCharsets.UTF_8.equals(charset);
+        this.stringPool = Preconditions.checkNotNull(stringPool, "stringPool");
+    }
+
+    /**
+     * Reads the content of a file into the heap. Watched property files are rewritten in place, so they are never
+     * memory-mapped: a read of a mapped file that is truncated by a writer fails with an {@link InternalError}, and on
+     * some platforms a mapped file cannot be replaced.
+     *
+     * @param file
+     *            file to read
+     * @return read-only buffer with the content of the file
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    static ByteBuffer readFile(Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(file, channel);
+        }
+    }
+
+    /**
+     * Reads the content of a file that is only ever replaced as a whole, but never modified in place. Large files are
+     * memory-mapped if the file system supports it.
+     *
+     * @param file
+     *            file to read
+     * @return read-only buffer with the content of the file
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    static ByteBuffer mapFile(Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            if (size >= MEMORY_MAPPING_THRESHOLD && size <= Integer.MAX_VALUE) {
+                try {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                } catch (UnsupportedOperationException e) {
+                    // the file system does not support memory-mapping, so the file is read into the heap
+                }
+            }
+
+            return read(file, channel);
+        }
+    }
+
+    private static ByteBuffer read(Path file, FileChannel channel) throws IOException {
+        final long size = channel.size();
+
+        Preconditions.checkArgument(size <= Integer.MAX_VALUE, "File '%s' is too large", file);
+
+        final ByteBuffer content = ByteBuffer.allocate((int) size);
+        while (content.hasRemaining() && channel.read(content) >= 0) {
+            // read until the buffer is full or the end of the file has been reached
+        }
+        content.flip();
+
+        return content.asReadOnlyBuffer();
+    }
+
+    /**
+     * Parses all entries of {@code content} from its position to its limit. The position of {@code content} is not
+     * changed.
+     *
+     * @param content
+     *            encoded properties
+     * @param handler
+     *            receives the parsed entries
+     * @throws MalformedInputException
+     *             if the content is not validly encoded
+     * @throws IllegalArgumentException
+     *             if the content contains a malformed <code>\\uxxxx</code> escape sequence
+     */
+    void parse(ByteBuffer content, EntryHandler handler) throws MalformedInputException {
+        parse(content, content.position(), content.limit(), handler);
+    }
+
+    /**
+     * Parses all entries between two offsets of {@code content}. The start offset has to be the beginning of a logical
+     * line.
+     *
+     * @param content
+     *            encoded properties
+     * @param start
+     *            start offset (inclusive)
+     * @param end
+     *            end offset (exclusive)
+     * @param handler
+     *            receives the parsed entries
+     * @throws MalformedInputException
+     *             if the content is not validly encoded
+     */
+    void parse(ByteBuffer content, int start, int end, EntryHandler handler) throws MalformedInputException {
+        int offset = start;
+
+        while (offset < end) {
+            offset = readLogicalLine(content, offset, end);
+
+            if (lineLength >= 0) {
+                parseLine(handler);
+            }
+        }
+    }
+
+    /**
+     * Reads the next logical line into the line buffer, following the rules of {@link java.util.Properties}: leading
+     * whitespace is skipped, comment and blank lines are ignored and lines that end with an odd number of backslashes
+     * are continued on the next line without its leading whitespace.
+     *
+     * @return the offset after the logical line
+     */
+    private int readLogicalLine(ByteBuffer content, int start, int end) throws MalformedInputException {
+        int offset = start;
+        int length = 0;
+
+        boolean skipWhitespace = true;
+        boolean isCommentLine = false;
+        boolean isNewLine = true;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+
+        while (offset < end) {
+            final int b = content.get(offset);
+
+            if (skipWhitespace) {
+                if (b == ' ' || b == '\t' || b == '\f') {
+                    offset++;
+                    continue;
+                }
+                if (!appendedLineBegin && (b == '\r' || b == '\n')) {
+                    offset++;
+                    continue;
+                }
+                skipWhitespace = false;
+                appendedLineBegin = false;
+            }
+
+            if (isNewLine) {
+                isNewLine = false;
+                if (b == '#' || b == '!') {
+                    isCommentLine = true;
+                }
+            }
+
+            if (b != '\n' && b != '\r') {
+                if (isCommentLine) {
+                    offset++;
+                    continue;
+                }
+
+                if (length + 2 > lineBuffer.length) {
+                    lineBuffer = Arrays.copyOf(lineBuffer, lineBuffer.length * 2);
+                }
+
+                if (b >= 0) {
+                    lineBuffer[length++] = (char) b;
+                    offset++;
+                } else if (isUtf8) {
+                    offset = decodeUtf8(content, offset, end, length);
+                    length += decodedLength;
+                } else {
+                    lineBuffer[length++] = (char) (b & 0xFF);
+                    offset++;
+                }
+
+                precedingBackslash = b == '\\' ? !precedingBackslash : false;
+                continue;
+            }
+
+            // end of a physical line
+            offset++;
+
+            if (isCommentLine || length == 0) {
+                isCommentLine = false;
+                isNewLine = true;
+                skipWhitespace = true;
+                precedingBackslash = false;
+                length = 0;
+                continue;
+            }
+
+            if (offset >= end) {
+                // like Properties, a continuation at the very end of the content yields a line, even an empty one
+                lineLength = precedingBackslash ? length - 1 : length;
+                return offset;
+            }
+
+            if (!precedingBackslash) {
+                lineLength = length;
+                return offset;
+            }
+
+            // the line is continued on the next physical line
+            length--;
+            skipWhitespace = true;
+            appendedLineBegin = true;
+            precedingBackslash = false;
+
+            if (b == '\r' && offset < end && content.get(offset) == '\n') {
+                offset++;
+            }
+        }
+
+        if (length == 0 || isCommentLine) {
+            lineLength = -1;
+        } else {
+            lineLength = precedingBackslash ? length - 1 : length;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence into the line buffer and rejects malformed sequences like a reporting
+     * {@link java.nio.charset.CharsetDecoder}.
+     *
+     * @return the offset after the sequence
+     */
+    private int decodeUtf8(ByteBuffer content, int offset, int end, int bufferIndex) throws MalformedInputException {
+        final int b1 = content.get(offset) & 0xFF;
+
+        final int sequenceLength;
+        final int minCodePoint;
+        int codePoint;
+
+        if (b1 >= 0xC2 && b1 <= 0xDF) {
+            sequenceLength = 2;
+            minCodePoint = 0x80;
+            codePoint = b1 & 0x1F;
+        } else if (b1 >= 0xE0 && b1 <= 0xEF) {
+            sequenceLength = 3;
+            minCodePoint = 0x800;
+            codePoint = b1 & 0x0F;
+        } else if (b1 >= 0xF0 && b1 <= 0xF4) {
+            sequenceLength = 4;
+            minCodePoint = 0x10000;
+            codePoint = b1 & 0x07;
+        } else {
+            throw new MalformedInputException(1);
+        }
+
+        if (offset + sequenceLength > end) {
+            throw new MalformedInputException(end - offset);
+        }
+
+        for (int i = 1; i < sequenceLength; i++) {
+            final int b = content.get(offset + i) & 0xFF;
+
+            if ((b & 0xC0) != 0x80) {
+                throw new MalformedInputException(i);
+            }
+
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+
+        if (codePoint < minCodePoint || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            throw new MalformedInputException(sequenceLength);
+        }
+
+        if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            lineBuffer[bufferIndex] = (char) codePoint;
+            decodedLength = 1;
+        } else {
+            lineBuffer[bufferIndex] = Character.highSurrogate(codePoint);
+            lineBuffer[bufferIndex + 1] = Character.lowSurrogate(codePoint);
+            decodedLength = 2;
+        }
+
+        return offset + sequenceLength;
+    }
+
+    /**
+     * Splits the logical line in the line buffer into key and value like {@link java.util.Properties} does.
+     */
+    private void parseLine(EntryHandler handler) {
+        final char[] line = lineBuffer;
+        final int limit = lineLength;
+
+        int keyLength = 0;
+        int valueStart = limit;
+        boolean hasSeparator = false;
+        boolean precedingBackslash = false;
+
+        while (keyLength < limit) {
+            final char c = line[keyLength];
+
+            if ((c == '=' || c == ':') && !precedingBackslash) {
+                valueStart = keyLength + 1;
+                hasSeparator = true;
+                break;
+            } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                valueStart = keyLength + 1;
+                break;
+            }
+
+            precedingBackslash = c == '\\' ? !precedingBackslash : false;
+            keyLength++;
+        }
+
+        while (valueStart < limit) {
+            final char c = line[valueStart];
+
+            if (c != ' ' && c != '\t' && c != '\f') {
+                if (!hasSeparator && (c == '=' || c == ':')) {
+                    hasSeparator = true;
+                } else {
+                    break;
+                }
+            }
+
+            valueStart++;
+        }
+
+        handler.entry(unescape(line, 0, keyLength), unescape(line, valueStart, limit));
+    }
+
+    /**
+     * Converts escape sequences in place and takes a string with the result from the pool.
+     */
+    private String unescape(char[] line, int start, int end) {
+        int source = start;
+        int target = start;
+
+        while (source < end) {
+            char c = line[source++];
+
+            if (c == '\\' && source < end) {
+                c = line[source++];
+
+                if (c == 'u') {
+                    if (source + 4 > end) {
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    }
+
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        value = (value << 4) | hexDigitValue(line[source++]);
+                    }
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+
+            line[target++] = c;
+        }
+
+        return stringPool.get(line, start, target - start);
+    }
+
+    private static int hexDigitValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        } else {
+            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package de.vorb.properties;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Pre-resolved, typed reference to a single property of an {@link ObservablePropertyProvider}.
+ * <p>
+ * The provider parses the value of the property once per update into a volatile field, so {@link #get()} neither
+ * hashes the key nor parses or allocates anything, unless the provider has an {@link AccessProfiler}, which counts
+ * every call of {@link #get()} as a read of the property. If an updated value is invalid, the error is logged and the
+ * handle keeps the previous value.
+ *
+ * <pre>
+ * final PropertyHandle&lt;Integer&gt; poolSize = provider.handle("pool.size", StandardValueTypes.INT, 10);
+ * poolSize.onChange((oldSize, newSize) -&gt; pool.resize(newSize));
+ * </pre>
+ *
+ * @param <T>
+ *            type of the property
+ */
+public final class PropertyHandle<T> implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyHandle.class);
+
+    private final PropertyHandleRegistry registry;
+    private final String key;
+    private final ValueType<T> type;
+    private final T defaultValue;
+
+    /**
+     * Profiler of the reads of the provider or <code>null</code> if reads are not profiled.
+     */
+    private final AccessProfiler accessProfiler;
+
+    private volatile T value;
+
+    /**
+     * Generation of the snapshot the value has been parsed from. Guarded by the lock of the handle.
+     */
+    private long generation = -1;
+
+    private final List<BiConsumer<? super T, ? super T>> changeListeners = new CopyOnWriteArrayList<>();
+
+    PropertyHandle(PropertyHandleRegistry registry, String key, ValueType<T> type, T defaultValue,
+            AccessProfiler accessProfiler) {
+        this.registry = registry;
+        this.key = key;
+        this.type = type;
+        this.defaultValue = defaultValue;
+        this.accessProfiler = accessProfiler;
+    }
+
+    /**
+     * @return the current value of the property or the default value if it is undefined
+     */
+    public T get() {
+        if (accessProfiler != null) {
+            accessProfiler.recordRead(key);
+        }
+
+        return value;
+    }
+
+    /**
+     * @return key of the property
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Registers a callback that is called with the previous and the new value whenever the parsed value of the property
+     * changes. Callbacks are called by the thread that updates the provider, before any
+     * {@link de.vorb.properties.event.PropertiesUpdateListener} is informed.
+     *
+     * @param changeListener
+     *            callback that receives the previous and the new value
+     * @return this handle
+     */
+    public PropertyHandle<T> onChange(BiConsumer<? super T, ? super T> changeListener) {
+        changeListeners.add(Preconditions.checkNotNull(changeListener, "changeListener"));
+        return this;
+    }
+
+    /**
+     * Stops updating the handle. The current value remains available.
+     */
+    @Override
+    public void close() {
+        registry.remove(this);
+    }
+
+    /**
+     * Sets the initial value of the handle.
+     *
+     * @throws IllegalArgumentException
+     *             if the current value is invalid
+     */
+    synchronized void initialize(Snapshot snapshot) {
+        if (snapshot.getGeneration() > generation) {
+            value = parse(snapshot);
+            generation = snapshot.getGeneration();
+        }
+    }
+
+    /**
+     * Parses the value of the property from a new snapshot and calls the change listeners if it has changed. Snapshots
+     * that are older than the current value are ignored.
+     */
+    synchronized void update(Snapshot snapshot) {
+        if (snapshot.getGeneration() <= generation) {
+            return;
+        }
+
+        final T newValue;
+        try {
+            newValue = parse(snapshot);
+        } catch (IllegalArgumentException e) {
+            logger.error("Could not update the handle of property '{}', keeping the previous value", key, e);
+            return;
+        }
+
+        final T oldValue = value;
+        value = newValue;
+        generation = snapshot.getGeneration();
+
+        // parsed byte arrays are new instances, so they are compared by content
+        if (Objects.deepEquals(oldValue, newValue)) {
+            return;
+        }
+
+        for (BiConsumer<? super T, ? super T> changeListener : changeListeners) {
+            try {
+                changeListener.accept(oldValue, newValue);
+            } catch (RuntimeException e) {
+                logger.error("Change listener {} of property '{}' failed", changeListener, key, e);
+            }
+        }
+    }
+
+    private T parse(Snapshot snapshot) {
+        // parsing an update is no read of the application
+        return snapshot.getPropertyUnprofiled(key, type).orElse(defaultValue);
+    }
+
+}
@@ -0,0 +1,81 @@
+package de.vorb.properties;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Registry of the {@link PropertyHandle}s of a provider, which updates the handles of the updated keys whenever the
+ * provider publishes a new snapshot.
+ */
+final class PropertyHandleRegistry {
+
+    private final ConcurrentMap<String, List<PropertyHandle<?>>> handles = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a handle and initializes it from the current snapshot of the provider.
+     *
+     * @param currentSnapshot
+     *            current snapshot of the provider
+     * @throws IllegalArgumentException
+     *             if the current value is invalid
+     */
+    <T> PropertyHandle<T> register(Supplier<Snapshot> currentSnapshot, String key, ValueType<T> type,
+            T defaultValue) {
+        Preconditions.checkNotNull(key, "key");
+        Preconditions.checkNotNull(type, "type");
+
+        // all snapshots of a provider share the same profiler
+        final PropertyHandle<T> handle = new PropertyHandle<>(this, key, type, defaultValue,
+                currentSnapshot.get().getAccessProfiler());
+
+        // the handle is registered first, so a snapshot that is published in the meantime is not missed
+        handles.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(handle);
+
+        try {
+            handle.initialize(currentSnapshot.get());
+        } catch (IllegalArgumentException e) {
+            remove(handle);
+            throw e;
+        }
+
+        return handle;
+    }
+
+    void remove(PropertyHandle<?> handle) {
+        handles.computeIfPresent(handle.getKey(), (key, keyHandles) -> {
+            keyHandles.remove(handle);
+            return keyHandles.isEmpty() ? null : keyHandles;
+        });
+    }
+
+    boolean isEmpty() {
+        return handles.isEmpty();
+    }
+
+    /**
+     * Updates the handles of the updated keys.
+     *
+     * @param snapshot
+     *            new snapshot
+     * @param updatedKeys
+     *            keys whose values differ from the previous snapshot
+     */
+    void update(Snapshot snapshot, Set<String> updatedKeys) {
+        for (String key : updatedKeys) {
+            final List<PropertyHandle<?>> keyHandles = handles.get(key);
+
+            if (keyHandles != null) {
+                for (PropertyHandle<?> handle : keyHandles) {
+                    handle.update(snapshot);
+                }
+            }
+        }
+    }
+
+}
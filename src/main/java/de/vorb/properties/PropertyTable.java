@@ -0,0 +1,204 @@
+package de.vorb.properties;
+
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable, read-optimized lookup table for string properties.
+ * <p>
+ * The table uses open addressing with linear probing and stores the spread hash code of every key next to it, so a
+ * lookup neither takes a lock nor compares keys whose hash codes differ. Default properties are flattened into the
+ * table when it is created, so there is no defaults chain to walk on a miss.
+ */
+final class PropertyTable {
+
+    private static final PropertyTable EMPTY = new PropertyTable(new String[2], new String[2], new int[2], 0);
+
+    private final String[] keys;
+    private final String[] values;
+    private final int[] hashes;
+    private final int mask;
+    private final int size;
+
+    private PropertyTable(String[] keys, String[] values, int[] hashes, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.hashes = hashes;
+        this.mask = keys.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * Creates a table that contains all string properties of {@code properties} including its defaults.
+     *
+     * @param properties
+     *            source properties
+     * @return new table
+     */
+    static PropertyTable fromProperties(Properties properties) {
+        final Set<String> propertyNames = properties.stringPropertyNames();
+
+        if (propertyNames.isEmpty()) {
+            return EMPTY;
+        }
+
+        final int capacity = capacityFor(propertyNames.size());
+        final String[] keys = new String[capacity];
+        final String[] values = new String[capacity];
+        final int[] hashes = new int[capacity];
+        final int mask = capacity - 1;
+
+        for (String key : propertyNames) {
+            final int hash = spread(key.hashCode());
+
+            int index = hash & mask;
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = key;
+            values[index] = properties.getProperty(key);
+            hashes[index] = hash;
+        }
+
+        return new PropertyTable(keys, values, hashes, propertyNames.size());
+    }
+
+    /**
+     * @return builder for a new table
+     */
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param key
+     *            key of the requested property
+     * @return the value of the property or <code>null</code> if it is undefined
+     */
+    String get(String key) {
+        final int hash = spread(key.hashCode());
+
+        int index = hash & mask;
+        String candidate;
+        while ((candidate = keys[index]) != null) {
+            if (hashes[index] == hash && (candidate == key || candidate.equals(key))) {
+                return values[index];
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return number of properties in this table
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param action
+     *            called for every entry of this table
+     */
+    void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private static int capacityFor(int size) {
+        // keep the load factor at or below 0.5 so probe sequences stay short
+        return Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+    }
+
+    private static int spread(int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    /**
+     * Collects the entries of a new table. Like {@link Properties#load(java.io.Reader)}, the last value of a key wins.
+     * A builder must only be used by a single thread and must not be used after {@link #build()} has been called.
+     */
+    static final class Builder {
+        private String[] keys;
+        private String[] values;
+        private int[] hashes;
+        private int size;
+
+        private Builder() {
+            this.keys = new String[16];
+            this.values = new String[16];
+            this.hashes = new int[16];
+        }
+
+        /**
+         * @param key
+         *            property key
+         * @param value
+         *            property value, which replaces a previous value of the key
+         */
+        void put(String key, String value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+
+            final int hash = spread(key.hashCode());
+            final int mask = keys.length - 1;
+
+            int index = hash & mask;
+            String candidate;
+            while ((candidate = keys[index]) != null) {
+                if (hashes[index] == hash && candidate.equals(key)) {
+                    values[index] = value;
+                    return;
+                }
+
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = key;
+            values[index] = value;
+            hashes[index] = hash;
+            size++;
+        }
+
+        /**
+         * @return new table with all entries that have been put so far
+         */
+        PropertyTable build() {
+            return size == 0 ? EMPTY : new PropertyTable(keys, values, hashes, size);
+        }
+
+        private void resize(int capacity) {
+            final String[] oldKeys = keys;
+            final String[] oldValues = values;
+            final int[] oldHashes = hashes;
+
+            keys = new String[capacity];
+            values = new String[capacity];
+            hashes = new int[capacity];
+
+            final int mask = capacity - 1;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int index = oldHashes[i] & mask;
+                    while (keys[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                    hashes[index] = oldHashes[i];
+                }
+            }
+        }
+    }
+
+}
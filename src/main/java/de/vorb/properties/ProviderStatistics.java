@@ -0,0 +1,205 @@
+package de.vorb.properties;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Built-in statistics of a {@link FileWatchingPropertyProvider}, which are always enabled. The provider records its
+ * measurements through the package-private {@link MetricsSink} of the statistics.
+ * <p>
+ * Measurements are recorded in {@link LongAdder}s without locking, so recording is cheap enough for production use.
+ * Listeners are only referenced weakly, so the statistics of a listener disappear once it has been garbage collected.
+ */
+public final class ProviderStatistics implements ProviderStatisticsMXBean {
+
+    private static final class ListenerStatistics {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+    }
+
+    private final LongAdder reloadCount = new LongAdder();
+    private final LongAdder failedReloadCount = new LongAdder();
+    private volatile long generation;
+
+    private final LatencyHistogram parseTimes = new LatencyHistogram();
+    private final LatencyHistogram eventToPublishLatencies = new LatencyHistogram();
+
+    private volatile long lastDiffSize;
+    private final LongAdder totalDiffSize = new LongAdder();
+
+    // weak keys are compared by identity
+    private final LoadingCache<PropertiesUpdateListener, ListenerStatistics> listenerStatistics = CacheBuilder
+            .newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<PropertiesUpdateListener, ListenerStatistics>() {
+                @Override
+                public ListenerStatistics load(PropertiesUpdateListener listener) {
+                    return new ListenerStatistics();
+                }
+            });
+
+    private final MetricsSink sink = new MetricsSink() {
+        @Override
+        public void recordReload(long generation, long parseNanos) {
+            ProviderStatistics.this.recordReload(generation, parseNanos);
+        }
+
+        @Override
+        public void recordFailedReload() {
+            ProviderStatistics.this.recordFailedReload();
+        }
+
+        @Override
+        public void recordEventToPublishLatency(long latencyNanos) {
+            ProviderStatistics.this.recordEventToPublishLatency(latencyNanos);
+        }
+
+        @Override
+        public void recordDiffSize(int updatedKeyCount) {
+            ProviderStatistics.this.recordDiffSize(updatedKeyCount);
+        }
+
+        @Override
+        public void recordListenerDispatch(PropertiesUpdateListener listener, long durationNanos) {
+            ProviderStatistics.this.recordListenerDispatch(listener, durationNanos);
+        }
+    };
+
+    ProviderStatistics() {
+    }
+
+    /**
+     * @return sink that records measurements in these statistics
+     */
+    MetricsSink asSink() {
+        return sink;
+    }
+
+    void recordReload(long generation, long parseNanos) {
+        reloadCount.increment();
+        this.generation = generation;
+
+        if (parseNanos > 0) {
+            parseTimes.record(parseNanos);
+        }
+    }
+
+    void recordFailedReload() {
+        failedReloadCount.increment();
+    }
+
+    void recordEventToPublishLatency(long latencyNanos) {
+        eventToPublishLatencies.record(latencyNanos);
+    }
+
+    void recordDiffSize(int updatedKeyCount) {
+        lastDiffSize = updatedKeyCount;
+        totalDiffSize.add(updatedKeyCount);
+    }
+
+    void recordListenerDispatch(PropertiesUpdateListener listener, long durationNanos) {
+        final ListenerStatistics statistics = listenerStatistics.getUnchecked(listener);
+        statistics.count.increment();
+        statistics.totalNanos.add(durationNanos);
+    }
+
+    @Override
+    public long getReloadCount() {
+        return reloadCount.sum();
+    }
+
+    @Override
+    public long getFailedReloadCount() {
+        return failedReloadCount.sum();
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public double getParseTimeMeanMillis() {
+        return parseTimes.getMeanMillis();
+    }
+
+    @Override
+    public double getParseTimeP99Millis() {
+        return parseTimes.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getParseTimeMaxMillis() {
+        return parseTimes.getMaxMillis();
+    }
+
+    @Override
+    public long[] getParseTimeHistogram() {
+        return parseTimes.getBucketCounts();
+    }
+
+    @Override
+    public double getEventToPublishLatencyMeanMillis() {
+        return eventToPublishLatencies.getMeanMillis();
+    }
+
+    @Override
+    public double getEventToPublishLatencyP99Millis() {
+        return eventToPublishLatencies.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getEventToPublishLatencyMaxMillis() {
+        return eventToPublishLatencies.getMaxMillis();
+    }
+
+    @Override
+    public long getLastDiffSize() {
+        return lastDiffSize;
+    }
+
+    @Override
+    public long getTotalDiffSize() {
+        return totalDiffSize.sum();
+    }
+
+    @Override
+    public Map<String, Long> getListenerDispatchCounts() {
+        final Map<String, Long> counts = new TreeMap<>();
+        listenerStatistics.asMap().forEach((listener, statistics) -> counts.put(listener.toString(),
+                statistics.count.sum()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getListenerDispatchTimeMillis() {
+        final Map<String, Double> times = new TreeMap<>();
+        listenerStatistics.asMap().forEach((listener, statistics) -> times.put(listener.toString(),
+                (double) statistics.totalNanos.sum() / TimeUnit.MILLISECONDS.toNanos(1)));
+        return times;
+    }
+
+    @Override
+    public long getStringPoolHitCount() {
+        return StringPool.shared().getHitCount();
+    }
+
+    @Override
+    public long getStringPoolMissCount() {
+        return StringPool.shared().getMissCount();
+    }
+
+    @Override
+    public double getStringPoolHitRate() {
+        return StringPool.shared().getHitRate();
+    }
+
+}
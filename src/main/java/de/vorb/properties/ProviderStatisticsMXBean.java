@@ -0,0 +1,100 @@
+package de.vorb.properties;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link ProviderStatistics} of a {@link FileWatchingPropertyProvider}.
+ * <p>
+ * Percentiles are approximations that are accurate to a factor of two.
+ */
+public interface ProviderStatisticsMXBean {
+
+    /**
+     * @return number of published snapshots, including the initial one
+     */
+    long getReloadCount();
+
+    /**
+     * @return number of reloads that failed because the property file could not be read or parsed
+     */
+    long getFailedReloadCount();
+
+    /**
+     * @return generation of the current snapshot
+     */
+    long getGeneration();
+
+    /**
+     * @return mean time to parse the content of the property file in milliseconds
+     */
+    double getParseTimeMeanMillis();
+
+    /**
+     * @return 99th percentile of the time to parse the content of the property file in milliseconds
+     */
+    double getParseTimeP99Millis();
+
+    /**
+     * @return maximum time to parse the content of the property file in milliseconds
+     */
+    double getParseTimeMaxMillis();
+
+    /**
+     * @return number of parses per bucket, where bucket <code>i</code> counts parse times below 2<sup>i + 10</sup> ns
+     *         that are not counted by the previous bucket
+     */
+    long[] getParseTimeHistogram();
+
+    /**
+     * @return mean time between the first file system event and the publication of the new snapshot in milliseconds
+     */
+    double getEventToPublishLatencyMeanMillis();
+
+    /**
+     * @return 99th percentile of the time between the first file system event and the publication of the new snapshot
+     *         in milliseconds
+     */
+    double getEventToPublishLatencyP99Millis();
+
+    /**
+     * @return maximum time between the first file system event and the publication of the new snapshot in milliseconds
+     */
+    double getEventToPublishLatencyMaxMillis();
+
+    /**
+     * @return number of updated keys of the last reload that changed entries
+     */
+    long getLastDiffSize();
+
+    /**
+     * @return total number of updated keys of all reloads that changed entries
+     */
+    long getTotalDiffSize();
+
+    /**
+     * @return number of handled updates per listener
+     */
+    Map<String, Long> getListenerDispatchCounts();
+
+    /**
+     * @return total time per listener spent handling updates in milliseconds
+     */
+    Map<String, Double> getListenerDispatchTimeMillis();
+
+    /**
+     * @return number of parsed keys and values that have been taken from the {@link StringPool#shared() shared string
+     *         pool}, which is shared by all providers of the process
+     */
+    long getStringPoolHitCount();
+
+    /**
+     * @return number of parsed keys and values that have been newly created by the shared string pool
+     */
+    long getStringPoolMissCount();
+
+    /**
+     * @return ratio of the lookups of the shared string pool that returned a pooled string
+     */
+    double getStringPoolHitRate();
+
+}
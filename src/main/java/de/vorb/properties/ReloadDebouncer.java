@@ -0,0 +1,139 @@
+package de.vorb.properties;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Coalesces bursts of triggers into a single run of an action.
+ * <p>
+ * The action runs once no trigger has arrived for the quiet period, but no later than the maximum delay after the first
+ * trigger of a burst. All debouncers share a single timer thread and a fixed number of action threads, so the number of
+ * threads does not depend on the number of providers. A slow action of one provider only occupies one of the action
+ * threads, and the runs of the same action never overlap: a run that is requested while the action is running is
+ * started once the running one has finished.
+ */
+final class ReloadDebouncer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReloadDebouncer.class);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat(ReloadDebouncer.class.getName() + "-timer-%d")
+                    .setDaemon(true)
+                    .build());
+
+    private static final int ACTION_THREAD_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService ACTION_EXECUTOR = Executors.newFixedThreadPool(ACTION_THREAD_COUNT,
+            new ThreadFactoryBuilder()
+                    .setNameFormat(ReloadDebouncer.class.getName() + "-action-%d")
+                    .setDaemon(true)
+                    .build());
+
+    private final Runnable action;
+    private final long quietPeriodNanos;
+    private final long maxDelayNanos;
+
+    // guarded by this
+    private ScheduledFuture<?> scheduledCheck;
+    private long firstTriggerNanos;
+    private long lastTriggerNanos;
+    private boolean isActionRunning;
+    private boolean isRunRequested;
+    private boolean isCancelled;
+
+    ReloadDebouncer(Runnable action, long quietPeriod, long maxDelay, TimeUnit unit) {
+        Preconditions.checkArgument(quietPeriod >= 0, "Negative quiet period");
+        Preconditions.checkArgument(maxDelay >= quietPeriod, "Maximum delay is shorter than the quiet period");
+
+        this.action = action;
+        this.quietPeriodNanos = unit.toNanos(quietPeriod);
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+    }
+
+    /**
+     * Requests a run of the action. Triggers after {@link #cancel()} are ignored.
+     */
+    synchronized void trigger() {
+        if (isCancelled) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+
+        lastTriggerNanos = now;
+
+        if (scheduledCheck == null) {
+            firstTriggerNanos = now;
+            scheduledCheck = SCHEDULER.schedule(this::runIfSettled, quietPeriodNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Discards the pending triggers and ignores all further triggers. A run of the action that has already started is
+     * not interrupted.
+     */
+    synchronized void cancel() {
+        isCancelled = true;
+        isRunRequested = false;
+
+        if (scheduledCheck != null) {
+            scheduledCheck.cancel(false);
+            scheduledCheck = null;
+        }
+    }
+
+    private synchronized void runIfSettled() {
+        if (isCancelled) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final long deadline = Math.min(lastTriggerNanos + quietPeriodNanos, firstTriggerNanos + maxDelayNanos);
+
+        if (now - deadline < 0) {
+            // another trigger arrived during the quiet period
+            scheduledCheck = SCHEDULER.schedule(this::runIfSettled, deadline - now, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        // triggers that arrive from now on start another burst
+        scheduledCheck = null;
+
+        if (isActionRunning) {
+            // the running action may have read the file before the last trigger, so it has to run again
+            isRunRequested = true;
+        } else {
+            isActionRunning = true;
+            ACTION_EXECUTOR.execute(this::runAction);
+        }
+    }
+
+    private void runAction() {
+        try {
+            action.run();
+        } catch (Throwable t) {
+            logger.error("Debounced action failed", t);
+        } finally {
+            synchronized (this) {
+                if (isRunRequested && !isCancelled) {
+                    // the next run is submitted again, so a busy action cannot starve the actions of other providers
+                    isRunRequested = false;
+                    ACTION_EXECUTOR.execute(this::runAction);
+                } else {
+                    isActionRunning = false;
+                }
+            }
+        }
+    }
+
+}
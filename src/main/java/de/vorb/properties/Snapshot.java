@@ -0,0 +1,253 @@
+package de.vorb.properties;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+/**
+ * Immutable view of a single version of the properties of a {@link PropertyProvider}.
+ * <p>
+ * All typed getters of a snapshot read from the same version, so several related properties can be read consistently
+ * even while the provider is reloading. Snapshots of the same provider are numbered by a generation that increases
+ * with every published version.
+ * <p>
+ * The own entries of a snapshot are stored in a {@link PersistentPropertyMap}, which shares all unchanged entries with
+ * the previous snapshot of the same provider. Defaults are stored separately in a flattened {@link PropertyTable}. The
+ * first snapshot of a provider that starts from its snapshot cache looks its entries up in the cache file instead,
+ * until they are needed as a whole.
+ */
+public final class Snapshot implements TypedProperties {
+
+    private final long generation;
+    /**
+     * Own entries or <code>null</code> if they are looked up in {@link #cachedEntries}.
+     */
+    private final PersistentPropertyMap entries;
+    private final CachedEntries cachedEntries;
+    private final PropertyTable defaults;
+
+    /**
+     * Defaults of {@link #getProperties()}, which are created from {@link #defaults} once they are requested and are
+     * passed on to all following snapshots.
+     */
+    private final Supplier<Properties> defaultProperties;
+
+    private final Supplier<Properties> properties;
+    private final ParsedValueCache parsedValues;
+
+    /**
+     * Profiler of the typed reads or <code>null</code> if reads are not profiled.
+     */
+    private final AccessProfiler accessProfiler;
+
+    Snapshot(long generation, Properties properties) {
+        this(generation, properties, null);
+    }
+
+    /**
+     * Creates a snapshot of the current content of {@code properties} including their defaults. Later changes of
+     * {@code properties} do not affect the snapshot, whose {@link Properties} are created from the copied entries.
+     */
+    Snapshot(long generation, Properties properties, AccessProfiler accessProfiler) {
+        this(generation, PersistentPropertyMap.EMPTY.withEntriesOf(PropertyTable.fromProperties(properties)),
+                new Properties(), accessProfiler);
+    }
+
+    /**
+     * Creates a snapshot whose {@link Properties} are only created from the entries once they are requested.
+     */
+    Snapshot(long generation, PersistentPropertyMap entries, Properties defaults) {
+        this(generation, entries, defaults, null);
+    }
+
+    /**
+     * Creates a snapshot whose {@link Properties} are only created from the entries once they are requested and whose
+     * typed reads are counted by the given profiler, which is passed on to all following snapshots. The current content
+     * of {@code defaults} is copied, so later changes of {@code defaults} affect neither typed reads nor
+     * {@link #getProperties()}.
+     */
+    Snapshot(long generation, PersistentPropertyMap entries, Properties defaults, AccessProfiler accessProfiler) {
+        this(generation, entries, PropertyTable.fromProperties(defaults), accessProfiler);
+    }
+
+    private Snapshot(long generation, PersistentPropertyMap entries, PropertyTable defaults,
+            AccessProfiler accessProfiler) {
+        this(generation, entries, null, defaults, Suppliers.memoize(() -> toProperties(defaults)), accessProfiler);
+    }
+
+    private Snapshot(long generation, PersistentPropertyMap entries, CachedEntries cachedEntries,
+            PropertyTable defaults, Supplier<Properties> defaultProperties, AccessProfiler accessProfiler) {
+        this.generation = generation;
+        this.entries = entries;
+        this.cachedEntries = cachedEntries;
+        this.defaults = defaults;
+        this.defaultProperties = defaultProperties;
+        this.properties = Suppliers.memoize(() -> toProperties(getEntries(), defaultProperties.get()));
+        this.parsedValues = new ParsedValueCache(this::getUntypedValue);
+        this.accessProfiler = accessProfiler;
+    }
+
+    /**
+     * @return generation of this snapshot, which is greater than the generation of every previously published snapshot
+     *         of the same provider
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the properties of this snapshot, which must not be modified
+     */
+    public Properties getProperties() {
+        return properties.get();
+    }
+
+    @Override
+    public <T> Optional<T> getProperty(String key, ValueType<T> type) {
+        // reads of undefined keys are not counted, so arbitrary keys cannot grow the profile without bounds
+        if (accessProfiler != null && getUntypedValue(key) != null) {
+            accessProfiler.recordRead(key);
+        }
+
+        return parsedValues.getProperty(key, type);
+    }
+
+    @Override
+    public <T> T getPropertyOrDefaultValue(String key, T defaultValue, ValueType<T> type) {
+        return getProperty(key, type).orElse(defaultValue);
+    }
+
+    /**
+     * Reads a property like {@link #getProperty(String, ValueType)} without counting the read, which is used when the
+     * library itself parses a value, e.g. to update a {@link PropertyHandle}.
+     */
+    <T> Optional<T> getPropertyUnprofiled(String key, ValueType<T> type) {
+        return parsedValues.getProperty(key, type);
+    }
+
+    /**
+     * @return profiler of the typed reads or <code>null</code> if reads are not profiled
+     */
+    AccessProfiler getAccessProfiler() {
+        return accessProfiler;
+    }
+
+    /**
+     * @return own entries of this snapshot without defaults, which are decoded first if they are looked up in a cache
+     *         file
+     */
+    PersistentPropertyMap getEntries() {
+        return entries != null ? entries : cachedEntries.toPropertyMap();
+    }
+
+    /**
+     * Creates the successor of this snapshot, which shares the defaults of this snapshot, so they are neither copied
+     * nor compared again.
+     *
+     * @param entries
+     *            own entries of the new version
+     * @return new snapshot with the next generation
+     */
+    Snapshot next(PersistentPropertyMap entries) {
+        return new Snapshot(generation + 1, entries, null, defaults, defaultProperties, accessProfiler);
+    }
+
+    /**
+     * Creates the successor of this snapshot whose own entries are looked up in a cache file.
+     *
+     * @param cachedEntries
+     *            own entries of the new version
+     * @return new snapshot with the next generation
+     */
+    Snapshot next(CachedEntries cachedEntries) {
+        return new Snapshot(generation + 1, null, cachedEntries, defaults, defaultProperties, accessProfiler);
+    }
+
+    /**
+     * Compares this snapshot with a newer one. Only the keys whose own entries differ structurally and the keys of the
+     * defaults are compared by value, so the cost depends on the number of changes and not on the number of
+     * properties.
+     *
+     * @param newSnapshot
+     *            newer snapshot of the same provider
+     * @return keys whose values differ between both snapshots
+     */
+    PropertiesDifference differenceTo(Snapshot newSnapshot) {
+        final Set<String> candidateKeys = new HashSet<>();
+
+        getEntries().forEachDifferentKey(newSnapshot.getEntries(), candidateKeys::add);
+
+        if (defaults != newSnapshot.defaults) {
+            defaults.forEach((key, value) -> candidateKeys.add(key));
+            newSnapshot.defaults.forEach((key, value) -> candidateKeys.add(key));
+        }
+
+        final Set<String> addedKeys = new HashSet<>();
+        final Set<String> removedKeys = new HashSet<>();
+        final Set<String> changedKeys = new HashSet<>();
+
+        for (String key : candidateKeys) {
+            final String oldValue = getUntypedValue(key);
+            final String newValue = newSnapshot.getUntypedValue(key);
+
+            if (oldValue == null) {
+                if (newValue != null) {
+                    addedKeys.add(key);
+                }
+            } else if (newValue == null) {
+                removedKeys.add(key);
+            } else if (!oldValue.equals(newValue)) {
+                changedKeys.add(key);
+            }
+        }
+
+        return PropertiesDifference.of(addedKeys, removedKeys, changedKeys);
+    }
+
+    /**
+     * @param key
+     *            key of the requested property
+     * @return the unparsed value of the property including defaults or <code>null</code> if there is none
+     */
+    String getUntypedValue(String key) {
+        final String value = getOwnValue(key);
+        return value != null ? value : defaults.get(key);
+    }
+
+    /**
+     * Performs an action for every property of this snapshot including defaults that are not overridden.
+     *
+     * @param action
+     *            action that receives the key and the unparsed value of every property
+     */
+    void forEachEntry(BiConsumer<String, String> action) {
+        defaults.forEach((key, value) -> {
+            if (getOwnValue(key) == null) {
+                action.accept(key, value);
+            }
+        });
+        getEntries().forEach(action);
+    }
+
+    private String getOwnValue(String key) {
+        return entries != null ? entries.get(key) : cachedEntries.get(key);
+    }
+
+    private static Properties toProperties(PersistentPropertyMap entries, Properties defaults) {
+        final Properties properties = new Properties(defaults);
+        entries.forEach(properties::put);
+        return properties;
+    }
+
+    private static Properties toProperties(PropertyTable defaults) {
+        final Properties properties = new Properties();
+        defaults.forEach(properties::put);
+        return properties;
+    }
+
+}
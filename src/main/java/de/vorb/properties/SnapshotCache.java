@@ -0,0 +1,337 @@
+package de.vorb.properties;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Binary cache of the parsed entries of a property file, which is used instead of parsing the file again as long as
+ * the content of the file is unchanged.
+ * <p>
+ * The cache file starts with a magic number, a format version and a CRC-32 of the rest of the file. It is followed by
+ * the charset, the length and the hash of the content of the property file it has been created from, the number of
+ * entries, an open-addressing hash table of the offsets of the entries and the entries themselves as the hash code of
+ * the key and length-prefixed UTF-16 keys and values. A cache file that does not match the current content of the
+ * property file or that is corrupt is ignored. Large cache files are memory-mapped, and the entries are looked up in
+ * the mapped content through the hash table (see {@link CachedEntries}), so reading a cache file only costs its
+ * checksum and does not decode entries that are never read.
+ * <p>
+ * Cache files are written by a background thread that is shared by all caches, so reloads do not wait for the cache. If
+ * several versions are queued for the same cache, only the latest one is written. Every write goes to a new temporary
+ * file that is moved over the cache file, so concurrent writers never see each other's partial files.
+ */
+final class SnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotCache.class);
+
+    static final int MAGIC = 0x50505343; // "PPSC"
+    static final int VERSION = 2;
+
+    /**
+     * Length of the header fields that are not covered by the checksum: magic number, version and checksum.
+     */
+    private static final int PREFIX_LENGTH = 12;
+
+    private static final HashFunction PATH_HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat(SnapshotCache.class.getName() + "-writer-%d")
+                    .setDaemon(true)
+                    .build());
+
+    private final Path cacheFile;
+    private final byte charsetId;
+    private final StringPool stringPool;
+
+    /**
+     * Version that is waiting to be written by the background thread or <code>null</code> if there is none.
+     */
+    private final AtomicReference<PendingWrite> pendingWrite = new AtomicReference<>();
+
+    /**
+     * @param cacheFile
+     *            location of the cache file
+     * @param charset
+     *            charset of the property file, either UTF-8 or ISO-8859-1
+     * @param stringPool
+     *            pool of the read keys and values
+     */
+    SnapshotCache(Path cacheFile, Charset charset, StringPool stringPool) {
+        Preconditions.checkArgument(
+                StandardCharsets.UTF_8.equals(charset) || StandardCharsets.ISO_8859_1.equals(charset),
+                "Unsupported charset %s", charset);
+
+        this.cacheFile = Preconditions.checkNotNull(cacheFile, "cacheFile");
+        this.charsetId = StandardCharsets.UTF_8.equals(charset) ? (byte) 0 : (byte) 1;
+        this.stringPool = Preconditions.checkNotNull(stringPool, "stringPool");
+    }
+
+    /**
+     * Creates the cache of a property file. The cache file is named after the property file and a hash of its absolute
+     * path, so property files with the same name in different directories can share a cache directory.
+     *
+     * @param cacheDirectory
+     *            directory of the cache file
+     * @param propertyFile
+     *            cached property file
+     * @param charset
+     *            charset of the property file, either UTF-8 or ISO-8859-1
+     * @param stringPool
+     *            pool of the read keys and values
+     * @return cache of the property file
+     */
+    static SnapshotCache forPropertyFile(Path cacheDirectory, Path propertyFile, Charset charset,
+            StringPool stringPool) {
+        final String absolutePath = propertyFile.toAbsolutePath().normalize().toString();
+        final String pathHash = PATH_HASH_FUNCTION.hashString(absolutePath, StandardCharsets.UTF_8).toString()
+                .substring(0, 16);
+
+        return new SnapshotCache(cacheDirectory.resolve(propertyFile.getFileName() + "-" + pathHash + ".snapshot"),
+                charset, stringPool);
+    }
+
+    /**
+     * @return location of the cache file
+     */
+    Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Reads the cached entries of a version of the property file.
+     *
+     * @param fingerprint
+     *            fingerprint of the current version of the property file
+     * @return the cached entries or <code>null</code> if there is no valid cache file for the given version
+     */
+    CachedEntries read(FileFingerprint fingerprint) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+
+        try {
+            // cache files are only replaced atomically, so they can be mapped safely
+            final ByteBuffer content = PropertiesParser.mapFile(cacheFile);
+
+            if (content.remaining() < PREFIX_LENGTH || content.getInt() != MAGIC || content.getInt() != VERSION) {
+                logger.debug("Ignoring cache file '{}' with unknown format.", cacheFile);
+                return null;
+            }
+
+            final int checksum = content.getInt();
+            final CRC32 crc = new CRC32();
+            crc.update(content.duplicate());
+
+            if ((int) crc.getValue() != checksum) {
+                logger.warn("Ignoring corrupt cache file '{}'.", cacheFile);
+                return null;
+            }
+
+            final byte cachedCharsetId = content.get();
+            final long cachedContentLength = content.getLong();
+            final byte[] cachedContentHash = new byte[fingerprint.getContentHash().bits() / 8];
+            content.get(cachedContentHash);
+
+            if (cachedCharsetId != charsetId
+                    || cachedContentLength != fingerprint.getContentLength()
+                    || !Arrays.equals(cachedContentHash, fingerprint.getContentHash().asBytes())) {
+                logger.debug("Ignoring stale cache file '{}'.", cacheFile);
+                return null;
+            }
+
+            final int entryCount = content.getInt();
+            final int tableCapacity = content.getInt();
+
+            return new CachedEntries(content, content.position(), tableCapacity, entryCount, stringPool);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Could not read cache file '{}'.", cacheFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the entries of a version of the property file in the background. A version that is still waiting to be
+     * written is replaced, so only the latest version is written.
+     *
+     * @param fingerprint
+     *            fingerprint of the version of the property file
+     * @param entries
+     *            parsed entries of that version
+     */
+    void scheduleWrite(FileFingerprint fingerprint, PersistentPropertyMap entries) {
+        if (pendingWrite.getAndSet(new PendingWrite(fingerprint, entries)) != null) {
+            // the queued task writes the new version instead
+            return;
+        }
+
+        try {
+            WRITER.execute(this::writePending);
+        } catch (RejectedExecutionException e) {
+            pendingWrite.set(null);
+            logger.warn("Could not schedule writing the cache file '{}'.", cacheFile, e);
+        }
+    }
+
+    private void writePending() {
+        final PendingWrite write = pendingWrite.getAndSet(null);
+
+        if (write != null) {
+            write(write.fingerprint, write.entries);
+        }
+    }
+
+    /**
+     * Replaces the cache file atomically with the entries of a version of the property file.
+     *
+     * @param fingerprint
+     *            fingerprint of the version of the property file
+     * @param entries
+     *            parsed entries of that version
+     */
+    void write(FileFingerprint fingerprint, PersistentPropertyMap entries) {
+        Path temporaryFile = null;
+
+        try {
+            temporaryFile = Files.createTempFile(cacheFile.toAbsolutePath().getParent(),
+                    cacheFile.getFileName().toString(), ".tmp");
+
+            try (final FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+
+                final ByteBuffer prefix = ByteBuffer.allocate(PREFIX_LENGTH);
+                prefix.putInt(MAGIC).putInt(VERSION).putInt(0).flip();
+                channel.write(prefix);
+
+                final CheckedOutputStream checkedOutput = new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32());
+                final DataOutputStream output = new DataOutputStream(checkedOutput);
+
+                final byte[] contentHash = fingerprint.getContentHash().asBytes();
+
+                output.writeByte(charsetId);
+                output.writeLong(fingerprint.getContentLength());
+                output.write(contentHash);
+                output.writeInt(entries.size());
+
+                final int tableOffset = PREFIX_LENGTH + 1 + 8 + contentHash.length + 8;
+                final EntryTable table = new EntryTable(entries, tableOffset);
+                output.writeInt(table.offsets.length);
+
+                for (int offset : table.offsets) {
+                    output.writeInt(offset);
+                }
+
+                for (int i = 0; i < table.keys.length; i++) {
+                    output.writeInt(table.keys[i].hashCode());
+                    output.writeInt(table.keys[i].length());
+                    output.writeChars(table.keys[i]);
+                    output.writeInt(table.values[i].length());
+                    output.writeChars(table.values[i]);
+                }
+
+                output.flush();
+
+                prefix.clear();
+                prefix.putInt((int) checkedOutput.getChecksum().getValue()).flip();
+                channel.write(prefix, 8);
+            }
+
+            try {
+                Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write cache file '{}'.", cacheFile, e);
+
+            if (temporaryFile != null) {
+                try {
+                    Files.deleteIfExists(temporaryFile);
+                } catch (IOException deleteException) {
+                    logger.debug("Could not delete the temporary file '{}'.", temporaryFile, deleteException);
+                }
+            }
+        }
+    }
+
+    /**
+     * Entries in the order in which they are written and the hash table of their offsets in the cache file.
+     */
+    private static final class EntryTable {
+        private final String[] keys;
+        private final String[] values;
+        private final int[] offsets;
+
+        private EntryTable(PersistentPropertyMap entries, int tableOffset) throws IOException {
+            final int size = entries.size();
+            keys = new String[size];
+            values = new String[size];
+
+            final int[] index = new int[1];
+            entries.forEach((key, value) -> {
+                keys[index[0]] = key;
+                values[index[0]] = value;
+                index[0]++;
+            });
+
+            offsets = new int[CachedEntries.tableCapacityFor(size)];
+            Arrays.fill(offsets, CachedEntries.EMPTY_SLOT);
+
+            long offset = tableOffset + 4L * offsets.length;
+            for (int i = 0; i < size; i++) {
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IOException("Too many entries for a cache file");
+                }
+
+                int slot = CachedEntries.slotOf(keys[i].hashCode(), offsets.length);
+                while (offsets[slot] != CachedEntries.EMPTY_SLOT) {
+                    slot = (slot + 1) & (offsets.length - 1);
+                }
+                offsets[slot] = (int) offset;
+
+                offset += CachedEntries.ENTRY_HEADER_LENGTH + 2L * (keys[i].length() + values[i].length());
+            }
+        }
+    }
+
+    /**
+     * Version of the property file that is waiting to be written.
+     */
+    private static final class PendingWrite {
+        private final FileFingerprint fingerprint;
+        private final PersistentPropertyMap entries;
+
+        private PendingWrite(FileFingerprint fingerprint, PersistentPropertyMap entries) {
+            this.fingerprint = fingerprint;
+            this.entries = entries;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import de.vorb.properties.event.PropertiesUpdate;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+/**
+ * Successful {@link PropertiesUpdate} from one {@link Snapshot} of a provider to a newer one. The difference is only
+ * computed from the structure of both snapshots once it is requested for the first time.
+ */
+final class SnapshotUpdate implements PropertiesUpdate {
+
+    private final Snapshot oldSnapshot;
+    private final Snapshot newSnapshot;
+    private final Supplier<PropertiesDifference> difference;
+
+    SnapshotUpdate(Snapshot oldSnapshot, Snapshot newSnapshot) {
+        this.oldSnapshot = oldSnapshot;
+        this.newSnapshot = newSnapshot;
+        this.difference = Suppliers.memoize(() -> oldSnapshot.differenceTo(newSnapshot));
+    }
+
+    Snapshot getOldSnapshot() {
+        return oldSnapshot;
+    }
+
+    Snapshot getNewSnapshot() {
+        return newSnapshot;
+    }
+
+    /**
+     * @return difference between both snapshots
+     */
+    PropertiesDifference getDifference() {
+        return difference.get();
+    }
+
+    @Override
+    public Optional<Throwable> getException() {
+        return Optional.empty();
+    }
+
+    @Override
+    public Properties getOldProperties() {
+        return oldSnapshot.getProperties();
+    }
+
+    @Override
+    public Properties getNewProperties() {
+        return newSnapshot.getProperties();
+    }
+
+    @Override
+    public Set<String> getUpdatedPropertyKeys() {
+        return difference.get().getUpdatedKeys();
+    }
+
+    @Override
+    public Set<String> getAddedKeys() {
+        return difference.get().getAddedKeys();
+    }
+
+    @Override
+    public Set<String> getRemovedKeys() {
+        return difference.get().getRemovedKeys();
+    }
+
+    @Override
+    public Set<String> getChangedKeys() {
+        return difference.get().getChangedKeys();
+    }
+
+}
@@ -4,42 +4,84 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Optional;
 
-import javax.xml.bind.DatatypeConverter;
-
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableSet;
 
 /**
  * Standard value types.
  */
 public class StandardValueTypes {
 
-    private static final ImmutableSet<String> TRUE_VALUES = ImmutableSet.of("true", "yes", "y", "1");
-    private static final ImmutableSet<String> FALSE_VALUES = ImmutableSet.of("false", "no", "n", "0");
+    private static final Optional<Boolean> OPTIONAL_TRUE = Optional.of(Boolean.TRUE);
+    private static final Optional<Boolean> OPTIONAL_FALSE = Optional.of(Boolean.FALSE);
 
     /**
-     * Boolean value type. Accepted values are <code>true</code>, <code>false</code>, <code>yes</code>, <code>no</code>,
-     * <code>y</code>, <code>n</code>, <code>1</code> and <code>0</code>.
+     * Maximum number of digits of a value that is parsed via <code>long</code>, since every number with up to 18
+     * decimal digits fits into a <code>long</code>.
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    /**
+     * Value type for boolean values that can also be parsed into primitive <code>boolean</code> values without boxing.
+     * Accepted values are <code>true</code>, <code>false</code>, <code>yes</code>, <code>no</code>, <code>y</code>,
+     * <code>n</code>, <code>1</code> and <code>0</code>, ignoring case.
      */
-    public static final ValueType<Boolean> BOOLEAN = new ValueType<Boolean>() {
+    public static final BooleanValueType PRIMITIVE_BOOLEAN = new BooleanValueType() {
         @Override
-        public Optional<Boolean> parseValue(String value) {
-            if (value == null) {
-                return Optional.empty();
+        public boolean parseBoolean(String value) {
+            // matched on the chars, so that no lower case copy of the value is created
+            switch (value.length()) {
+            case 1:
+                final char c = value.charAt(0);
+                if (c == '1' || c == 'y' || c == 'Y') {
+                    return true;
+                } else if (c == '0' || c == 'n' || c == 'N') {
+                    return false;
+                }
+                break;
+            case 2:
+                if (value.equalsIgnoreCase("no")) {
+                    return false;
+                }
+                break;
+            case 3:
+                if (value.equalsIgnoreCase("yes")) {
+                    return true;
+                }
+                break;
+            case 4:
+                if (value.equalsIgnoreCase("true")) {
+                    return true;
+                }
+                break;
+            case 5:
+                if (value.equalsIgnoreCase("false")) {
+                    return false;
+                }
+                break;
+            default:
+                break;
             }
 
-            final String lowerCaseValue = value.toLowerCase();
+            throw new IllegalArgumentException(String.format("Invalid boolean property value '%s'", value));
+        }
 
-            if (TRUE_VALUES.contains(lowerCaseValue)) {
-                return Optional.of(Boolean.TRUE);
-            } else if (FALSE_VALUES.contains(lowerCaseValue)) {
-                return Optional.of(Boolean.FALSE);
+        @Override
+        public Optional<Boolean> parseValue(String value) {
+            if (value == null) {
+                return Optional.empty();
             } else {
-                throw new IllegalArgumentException(String.format("Invalid boolean property value '%s'", value));
+                return parseBoolean(value) ? OPTIONAL_TRUE : OPTIONAL_FALSE;
             }
         }
     };
 
+    /**
+     * Boolean value type. Accepted values are <code>true</code>, <code>false</code>, <code>yes</code>, <code>no</code>,
+     * <code>y</code>, <code>n</code>, <code>1</code> and <code>0</code>, ignoring case. Use {@link #PRIMITIVE_BOOLEAN}
+     * to parse primitive <code>boolean</code> values.
+     */
+    public static final ValueType<Boolean> BOOLEAN = PRIMITIVE_BOOLEAN;
+
     /**
      * Value type for all kinds of integer values.
      */
@@ -48,12 +90,31 @@ public class StandardValueTypes {
         public Optional<BigInteger> parseValue(String value) {
             if (value == null) {
                 return Optional.empty();
+            } else if (isLongRangeInteger(value)) {
+                return Optional.of(BigInteger.valueOf(Long.parseLong(value)));
             } else {
                 return Optional.of(new BigInteger(value));
             }
         }
     };
 
+    /**
+     * Value type for integer values in the range of <code>int</code>. Values outside of that range are rejected with a
+     * {@link NumberFormatException}.
+     */
+    public static final IntValueType INT = Integer::parseInt;
+
+    /**
+     * Value type for integer values in the range of <code>long</code>. Values outside of that range are rejected with a
+     * {@link NumberFormatException}.
+     */
+    public static final LongValueType LONG = Long::parseLong;
+
+    /**
+     * Value type for double precision floating point values.
+     */
+    public static final DoubleValueType DOUBLE = Double::parseDouble;
+
     /**
      * Value type for all kinds of decimal (non-integer) values.
      */
@@ -62,9 +123,10 @@ public class StandardValueTypes {
         public Optional<BigDecimal> parseValue(String value) {
             if (value == null) {
                 return Optional.empty();
-            } else {
-                return Optional.of(new BigDecimal(value));
             }
+
+            final BigDecimal decimal = parseLongRangeDecimal(value);
+            return Optional.of(decimal != null ? decimal : new BigDecimal(value));
         }
     };
 
@@ -92,19 +154,108 @@ public class StandardValueTypes {
             Preconditions.checkArgument(!value.isEmpty(), "Empty string");
             Preconditions.checkArgument(!isStringSurroundedByWhitespace(value), "String is surrounded by whitespace");
 
-            final String hexCodeAsString;
+            final int start;
             if (value.startsWith("0x")) {
-                hexCodeAsString = value.substring("0x".length());
+                start = "0x".length();
             } else if (value.startsWith("#")) {
-                hexCodeAsString = value.substring("#".length());
+                start = "#".length();
             } else {
-                hexCodeAsString = value;
+                start = 0;
+            }
+
+            Preconditions.checkArgument((value.length() - start) % 2 == 0,
+                    "Odd number of hexadecimal digits in '%s'", value);
+
+            // decoded nibble by nibble, so that the resulting array is the only allocation
+            final byte[] bytes = new byte[(value.length() - start) / 2];
+            for (int i = 0; i < bytes.length; i++) {
+                final int index = start + 2 * i;
+                bytes[i] = (byte) (hexDigit(value, index) << 4 | hexDigit(value, index + 1));
             }
 
-            return Optional.of(DatatypeConverter.parseHexBinary(hexCodeAsString));
+            return Optional.of(bytes);
         }
     };
 
+    private static int hexDigit(String value, int index) {
+        final char c = value.charAt(index);
+
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        } else {
+            throw new IllegalArgumentException(String.format("Invalid hexadecimal digit '%s' in '%s'", c, value));
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the value consists of an optional sign and at most {@value #MAX_LONG_DIGITS} ASCII
+     *         digits
+     */
+    private static boolean isLongRangeInteger(String value) {
+        final int start = value.startsWith("-") || value.startsWith("+") ? 1 : 0;
+        final int digitCount = value.length() - start;
+
+        if (digitCount == 0 || digitCount > MAX_LONG_DIGITS) {
+            return false;
+        }
+
+        for (int i = start; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses plain decimal values with at most {@value #MAX_LONG_DIGITS} ASCII digits and without exponent via an
+     * unscaled <code>long</code>.
+     *
+     * @return the parsed value, which equals <code>new BigDecimal(value)</code> including its scale, or
+     *         <code>null</code> if the value is not of that form
+     */
+    private static BigDecimal parseLongRangeDecimal(String value) {
+        final boolean isNegative = value.startsWith("-");
+        final int start = isNegative || value.startsWith("+") ? 1 : 0;
+
+        long unscaledValue = 0;
+        int digitCount = 0;
+        int scale = 0;
+        boolean hasDot = false;
+
+        for (int i = start; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                if (++digitCount > MAX_LONG_DIGITS) {
+                    return null;
+                }
+
+                unscaledValue = unscaledValue * 10 + (c - '0');
+
+                if (hasDot) {
+                    scale++;
+                }
+            } else if (c == '.' && !hasDot) {
+                hasDot = true;
+            } else {
+                return null;
+            }
+        }
+
+        if (digitCount == 0) {
+            return null;
+        }
+
+        return BigDecimal.valueOf(isNegative ? -unscaledValue : unscaledValue, scale);
+    }
+
     private static boolean isStringSurroundedByWhitespace(String value) {
         return Character.isWhitespace(value.charAt(0))
                 || Character.isWhitespace(value.charAt(value.length() - 1));
@@ -0,0 +1,136 @@
+package de.vorb.properties;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Bounded pool of the strings that are created while property files are parsed.
+ * <p>
+ * Keys like <code>*.timeout</code> and values like <code>true</code> are usually repeated across reloads and across
+ * property files. The pool returns an existing instance of such a string, so a reload does not allocate new strings
+ * for them and all providers share the same instances. The pool is direct-mapped: every string can only be stored in a
+ * single slot, which is overwritten by the next string with the same slot. Strings are only referenced weakly, so the
+ * pool never keeps a string alive that is no longer used by any snapshot.
+ * <p>
+ * The pool is thread-safe. Lookups do not lock, and a lookup that races with an update of the same slot at worst
+ * creates a new string.
+ */
+public final class StringPool {
+
+    /**
+     * Strings that are longer than this are never pooled, since they are rarely repeated and expensive to compare.
+     */
+    static final int MAX_POOLED_LENGTH = 128;
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final StringPool SHARED = new StringPool(DEFAULT_CAPACITY);
+
+    private final AtomicReferenceArray<WeakReference<String>> slots;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity
+     *            number of slots, a power of two
+     */
+    StringPool(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1,
+                "Capacity %s is no power of two", capacity);
+
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return the pool that is shared by all providers
+     */
+    public static StringPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a string with the given characters, which is an existing instance if the pool contains one.
+     *
+     * @param chars
+     *            buffer that contains the characters
+     * @param offset
+     *            index of the first character
+     * @param length
+     *            number of characters
+     * @return string with the characters
+     */
+    String get(char[] chars, int offset, int length) {
+        if (length == 0) {
+            return "";
+        } else if (length > MAX_POOLED_LENGTH) {
+            return new String(chars, offset, length);
+        }
+
+        // same hash code as String.hashCode(), which every pooled string has already cached
+        int hashCode = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hashCode = 31 * hashCode + chars[i];
+        }
+
+        final int index = (hashCode ^ (hashCode >>> 16)) & mask;
+        final WeakReference<String> reference = slots.get(index);
+        final String candidate = reference == null ? null : reference.get();
+
+        if (candidate != null && candidate.hashCode() == hashCode && contentEquals(candidate, chars, offset, length)) {
+            hits.increment();
+            return candidate;
+        }
+
+        misses.increment();
+
+        final String string = new String(chars, offset, length);
+        slots.set(index, new WeakReference<>(string));
+
+        return string;
+    }
+
+    /**
+     * @return number of lookups that returned a pooled string
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that created a new string, excluding strings that are too long to be pooled
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return ratio of lookups that returned a pooled string or <code>0</code> if there have been no lookups
+     */
+    public double getHitRate() {
+        final long hitCount = getHitCount();
+        final long lookupCount = hitCount + getMissCount();
+
+        return lookupCount == 0 ? 0 : (double) hitCount / lookupCount;
+    }
+
+    private static boolean contentEquals(String string, char[] chars, int offset, int length) {
+        if (string.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
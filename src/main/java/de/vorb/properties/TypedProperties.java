@@ -35,4 +35,84 @@ public interface TypedProperties {
      */
     <T> T getPropertyOrDefaultValue(String key, T defaultValue, ValueType<T> type);
 
+    /**
+     * Reads a property as a primitive <code>int</code> without boxing the value.
+     * 
+     * @param key
+     *            key of the requested property
+     * @param defaultValue
+     *            value that is returned if the property is undefined
+     * 
+     * @return the parsed property value or the provided default value
+     */
+    default int getInt(String key, int defaultValue) {
+        final String value = getPropertyOrDefaultValue(key, null, StandardValueTypes.STRING);
+
+        if (value == null) {
+            return defaultValue;
+        } else {
+            return StandardValueTypes.INT.parseInt(value);
+        }
+    }
+
+    /**
+     * Reads a property as a primitive <code>long</code> without boxing the value.
+     * 
+     * @param key
+     *            key of the requested property
+     * @param defaultValue
+     *            value that is returned if the property is undefined
+     * 
+     * @return the parsed property value or the provided default value
+     */
+    default long getLong(String key, long defaultValue) {
+        final String value = getPropertyOrDefaultValue(key, null, StandardValueTypes.STRING);
+
+        if (value == null) {
+            return defaultValue;
+        } else {
+            return StandardValueTypes.LONG.parseLong(value);
+        }
+    }
+
+    /**
+     * Reads a property as a primitive <code>double</code> without boxing the value.
+     * 
+     * @param key
+     *            key of the requested property
+     * @param defaultValue
+     *            value that is returned if the property is undefined
+     * 
+     * @return the parsed property value or the provided default value
+     */
+    default double getDouble(String key, double defaultValue) {
+        final String value = getPropertyOrDefaultValue(key, null, StandardValueTypes.STRING);
+
+        if (value == null) {
+            return defaultValue;
+        } else {
+            return StandardValueTypes.DOUBLE.parseDouble(value);
+        }
+    }
+
+    /**
+     * Reads a property as a primitive <code>boolean</code> without boxing the value.
+     * 
+     * @param key
+     *            key of the requested property
+     * @param defaultValue
+     *            value that is returned if the property is undefined
+     * 
+     * @return the parsed property value or the provided default value
+     */
+    default boolean getBoolean(String key, boolean defaultValue) {
+        final String value = getPropertyOrDefaultValue(key, null, StandardValueTypes.STRING);
+
+        if (value == null) {
+            return defaultValue;
+        } else {
+            return StandardValueTypes.PRIMITIVE_BOOLEAN.parseBoolean(value);
+        }
+    }
+
 }
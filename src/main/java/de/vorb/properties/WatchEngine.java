@@ -0,0 +1,71 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Detects changes of watched files and directories, either through a {@link java.nio.file.WatchService} (see
+ * {@link WatchServiceMultiplexer}) or by polling file attributes (see {@link PollingWatchEngine}).
+ */
+interface WatchEngine {
+
+    /**
+     * Listener to changes of a single watched file.
+     */
+    @FunctionalInterface
+    interface FileChangeListener {
+        void fileChanged(Path file);
+    }
+
+    /**
+     * Listener to changes of the files of a watched directory.
+     */
+    @FunctionalInterface
+    interface DirectoryChangeListener {
+        /**
+         * @param changedFiles
+         *            files that have been created, modified or deleted or an empty set if events have been lost, in
+         *            which case every file of the directory might have changed
+         */
+        void filesChanged(Set<Path> changedFiles);
+    }
+
+    /**
+     * Registration of a listener, which can be cancelled.
+     */
+    @FunctionalInterface
+    interface Registration {
+        /**
+         * Stops informing the listener of this registration.
+         */
+        void cancel();
+    }
+
+    /**
+     * Informs {@code listener} of changes of {@code file}.
+     *
+     * @param file
+     *            watched file
+     * @param listener
+     *            listener that is informed of changes of the file
+     * @return registration that can be used to cancel the watch
+     * @throws IOException
+     *             if the file cannot be watched
+     */
+    Registration register(Path file, FileChangeListener listener) throws IOException;
+
+    /**
+     * Informs {@code listener} of changes of all files of {@code directory}.
+     *
+     * @param directory
+     *            watched directory
+     * @param listener
+     *            listener that is informed of changes of the files of the directory
+     * @return registration that can be used to cancel the watch
+     * @throws IOException
+     *             if the directory cannot be watched
+     */
+    Registration registerDirectory(Path directory, DirectoryChangeListener listener) throws IOException;
+
+}
@@ -0,0 +1,391 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+
+import de.vorb.properties.WatchEngine.DirectoryChangeListener;
+import de.vorb.properties.WatchEngine.FileChangeListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Shares file system watches between any number of watched files.
+ * <p>
+ * There is at most one {@link WatchService} and one watching thread per {@link FileSystem} and at most one
+ * registration per directory. Events are routed to the registered listeners by the file name in the event context, so
+ * the number of threads and watch registrations does not grow with the number of watched files. Listeners of a whole
+ * directory receive the events of all of its files.
+ */
+final class WatchServiceMultiplexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchServiceMultiplexer.class);
+
+    private static final WatchServiceMultiplexer SHARED = new WatchServiceMultiplexer();
+
+    /**
+     * Creates the {@link WatchService} of a file system when the first file of that file system is registered.
+     */
+    @FunctionalInterface
+    interface WatchServiceFactory {
+        WatchService newWatchService(Path directory) throws IOException;
+    }
+
+    /**
+     * Registration of a listener for a single file or a whole directory. Cancelling the last registration of a
+     * directory cancels the watch on that directory.
+     */
+    final class Registration implements WatchEngine.Registration {
+        private final Path file;
+        private final FileChangeListener listener;
+        private final DirectoryChangeListener directoryListener;
+        private final DirectoryWatch directoryWatch;
+
+        private Registration(Path file, FileChangeListener listener, DirectoryChangeListener directoryListener,
+                DirectoryWatch directoryWatch) {
+            this.file = file;
+            this.listener = listener;
+            this.directoryListener = directoryListener;
+            this.directoryWatch = directoryWatch;
+        }
+
+        /**
+         * Stops routing events to the listener of this registration.
+         */
+        @Override
+        public void cancel() {
+            unregister(this);
+        }
+    }
+
+    private final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+            .setNameFormat(WatchServiceMultiplexer.class.getName() + "-thread-%d")
+            .setDaemon(true)
+            .build();
+
+    // guarded by this
+    private final Map<FileSystem, FileSystemWatch> fileSystemWatches = new HashMap<>();
+
+    /**
+     * @return the multiplexer that is shared by all providers
+     */
+    static WatchServiceMultiplexer shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a {@link WatchEngine} that registers files and directories with this multiplexer. If a file or directory
+     * cannot be watched, e.g. because its file system does not support watch services, it is registered with the
+     * fallback engine instead.
+     *
+     * @param watchServiceFactory
+     *            factory for the watch services of file systems that are not being watched yet
+     * @param fallback
+     *            engine that watches files and directories that cannot be watched by a watch service
+     * @return engine backed by this multiplexer
+     */
+    WatchEngine asWatchEngine(WatchServiceFactory watchServiceFactory, WatchEngine fallback) {
+        return new WatchEngine() {
+            @Override
+            public WatchEngine.Registration register(Path file, FileChangeListener listener) throws IOException {
+                try {
+                    return WatchServiceMultiplexer.this.register(file, watchServiceFactory, listener);
+                } catch (IOException | UnsupportedOperationException e) {
+                    logger.warn("Could not watch the file '{}', polling it instead", file, e);
+                    return fallback.register(file, listener);
+                }
+            }
+
+            @Override
+            public WatchEngine.Registration registerDirectory(Path directory, DirectoryChangeListener listener)
+                    throws IOException {
+                try {
+                    return WatchServiceMultiplexer.this.registerDirectory(directory, watchServiceFactory, listener);
+                } catch (IOException | UnsupportedOperationException e) {
+                    logger.warn("Could not watch the directory '{}', polling it instead", directory, e);
+                    return fallback.registerDirectory(directory, listener);
+                }
+            }
+        };
+    }
+
+    /**
+     * Routes changes of {@code file} to {@code listener}.
+     *
+     * @param file
+     *            watched file
+     * @param watchServiceFactory
+     *            factory for the watch service, which is only used if the file system of {@code file} is not being
+     *            watched yet
+     * @param listener
+     *            listener that is informed of changes of the file
+     * @return registration that can be used to cancel the watch
+     * @throws IOException
+     *             if the parent directory of the file cannot be watched
+     */
+    synchronized Registration register(Path file, WatchServiceFactory watchServiceFactory,
+            FileChangeListener listener) throws IOException {
+
+        final Path absoluteFile = file.toAbsolutePath().normalize();
+        final DirectoryWatch directoryWatch = watch(absoluteFile.getParent(), watchServiceFactory);
+
+        final Registration registration = new Registration(absoluteFile, listener, null, directoryWatch);
+        directoryWatch.routes.computeIfAbsent(absoluteFile.getFileName(), fileName -> new CopyOnWriteArrayList<>())
+                .add(registration);
+
+        return registration;
+    }
+
+    /**
+     * Routes changes of all files of {@code directory} to {@code listener}.
+     *
+     * @param directory
+     *            watched directory
+     * @param watchServiceFactory
+     *            factory for the watch service, which is only used if the file system of {@code directory} is not
+     *            being watched yet
+     * @param listener
+     *            listener that is informed of changes of the files of the directory
+     * @return registration that can be used to cancel the watch
+     * @throws IOException
+     *             if the directory cannot be watched
+     */
+    synchronized Registration registerDirectory(Path directory, WatchServiceFactory watchServiceFactory,
+            DirectoryChangeListener listener) throws IOException {
+
+        final Path absoluteDirectory = directory.toAbsolutePath().normalize();
+        final DirectoryWatch directoryWatch = watch(absoluteDirectory, watchServiceFactory);
+
+        final Registration registration = new Registration(absoluteDirectory, null, listener, directoryWatch);
+        directoryWatch.directoryRoutes.add(registration);
+
+        return registration;
+    }
+
+    private DirectoryWatch watch(Path directory, WatchServiceFactory watchServiceFactory) throws IOException {
+        final FileSystem fileSystem = directory.getFileSystem();
+
+        FileSystemWatch fileSystemWatch = fileSystemWatches.get(fileSystem);
+        final boolean isNewFileSystemWatch = fileSystemWatch == null;
+
+        if (isNewFileSystemWatch) {
+            fileSystemWatch = new FileSystemWatch(watchServiceFactory.newWatchService(directory));
+        }
+
+        final DirectoryWatch directoryWatch;
+        try {
+            directoryWatch = fileSystemWatch.watch(directory);
+        } catch (IOException | RuntimeException e) {
+            if (isNewFileSystemWatch) {
+                fileSystemWatch.close();
+            }
+            throw e;
+        }
+
+        if (isNewFileSystemWatch) {
+            fileSystemWatches.put(fileSystem, fileSystemWatch);
+            threadFactory.newThread(fileSystemWatch).start();
+        }
+
+        return directoryWatch;
+    }
+
+    private synchronized void unregister(Registration registration) {
+        final DirectoryWatch directoryWatch = registration.directoryWatch;
+
+        if (registration.directoryListener != null) {
+            if (!directoryWatch.directoryRoutes.remove(registration)) {
+                return;
+            }
+        } else {
+            final Path fileName = registration.file.getFileName();
+
+            final List<Registration> routes = directoryWatch.routes.get(fileName);
+            if (routes == null || !routes.remove(registration)) {
+                return;
+            }
+
+            if (routes.isEmpty()) {
+                directoryWatch.routes.remove(fileName);
+            }
+        }
+
+        if (directoryWatch.isIdle()) {
+            final FileSystem fileSystem = directoryWatch.directory.getFileSystem();
+            final FileSystemWatch fileSystemWatch = fileSystemWatches.get(fileSystem);
+
+            if (fileSystemWatch == null) {
+                // the watch service has already been closed
+                return;
+            }
+
+            fileSystemWatch.unwatch(directoryWatch);
+
+            if (fileSystemWatch.isIdle()) {
+                fileSystemWatches.remove(fileSystem);
+                fileSystemWatch.close();
+            }
+        }
+    }
+
+    private synchronized void removeFileSystemWatch(FileSystemWatch fileSystemWatch) {
+        fileSystemWatches.values().remove(fileSystemWatch);
+    }
+
+    /**
+     * Watch of a single directory with a routing table from file names to registrations and the registrations of the
+     * whole directory.
+     */
+    private static final class DirectoryWatch {
+        private final Path directory;
+        private final WatchKey key;
+        private final Map<Path, List<Registration>> routes = new ConcurrentHashMap<>();
+        private final List<Registration> directoryRoutes = new CopyOnWriteArrayList<>();
+
+        private DirectoryWatch(Path directory, WatchKey key) {
+            this.directory = directory;
+            this.key = key;
+        }
+
+        private boolean isIdle() {
+            return routes.isEmpty() && directoryRoutes.isEmpty();
+        }
+    }
+
+    /**
+     * Watch of all directories of a file system that is backed by a single {@link WatchService} and thread.
+     */
+    private final class FileSystemWatch implements Runnable {
+        private final WatchService watchService;
+
+        // modified while holding the lock of the multiplexer, read by the watching thread
+        private final Map<Path, DirectoryWatch> watchesByDirectory = new ConcurrentHashMap<>();
+        private final Map<WatchKey, DirectoryWatch> watchesByKey = new ConcurrentHashMap<>();
+
+        private FileSystemWatch(WatchService watchService) {
+            this.watchService = watchService;
+        }
+
+        private DirectoryWatch watch(Path directory) throws IOException {
+            DirectoryWatch directoryWatch = watchesByDirectory.get(directory);
+
+            if (directoryWatch == null) {
+                final WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+                directoryWatch = new DirectoryWatch(directory, key);
+                watchesByDirectory.put(directory, directoryWatch);
+                watchesByKey.put(key, directoryWatch);
+            }
+
+            return directoryWatch;
+        }
+
+        private void unwatch(DirectoryWatch directoryWatch) {
+            directoryWatch.key.cancel();
+            watchesByDirectory.remove(directoryWatch.directory);
+            watchesByKey.remove(directoryWatch.key);
+        }
+
+        private boolean isIdle() {
+            return watchesByDirectory.isEmpty();
+        }
+
+        private void close() {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Could not close the watch service", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    // blocks until the file system reports an event, so idle watches do not consume any CPU time
+                    final WatchKey key = watchService.take();
+                    final DirectoryWatch directoryWatch = watchesByKey.get(key);
+
+                    final List<WatchEvent<?>> pendingEvents = key.pollEvents();
+
+                    if (directoryWatch != null) {
+                        dispatch(directoryWatch, pendingEvents);
+                    }
+
+                    // a key that has been cancelled by unwatch() is no longer in the map
+                    if (!key.reset() && watchesByKey.containsKey(key)) {
+                        logger.warn("Directory '{}' is no longer accessible.", directoryWatch.directory);
+                    }
+                }
+            } catch (ClosedWatchServiceException e) {
+                logger.debug("The watch service has been closed.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                removeFileSystemWatch(this);
+            }
+        }
+
+        private void dispatch(DirectoryWatch directoryWatch, List<WatchEvent<?>> pendingEvents) {
+            // every listener is informed at most once per batch of events
+            final Set<Registration> affectedRegistrations = Sets.newLinkedHashSet();
+            final Set<Path> changedFiles = Sets.newLinkedHashSet();
+            boolean isOverflow = false;
+
+            for (WatchEvent<?> event : pendingEvents) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // events have been lost, so every file of the directory might have changed
+                    directoryWatch.routes.values().forEach(affectedRegistrations::addAll);
+                    isOverflow = true;
+                } else {
+                    final List<Registration> routes = directoryWatch.routes.get(event.context());
+                    if (routes != null) {
+                        affectedRegistrations.addAll(routes);
+                    }
+
+                    changedFiles.add(directoryWatch.directory.resolve((Path) event.context()));
+                }
+            }
+
+            if (!changedFiles.isEmpty() || isOverflow) {
+                final Set<Path> directoryChanges = isOverflow ? Collections.emptySet()
+                        : Collections.unmodifiableSet(changedFiles);
+
+                for (Registration registration : directoryWatch.directoryRoutes) {
+                    try {
+                        registration.directoryListener.filesChanged(directoryChanges);
+                    } catch (RuntimeException e) {
+                        logger.warn("Listener of directory '{}' failed", registration.file, e);
+                    }
+                }
+            }
+
+            for (Registration registration : affectedRegistrations) {
+                try {
+                    registration.listener.fileChanged(registration.file);
+                } catch (RuntimeException e) {
+                    logger.warn("Listener of file '{}' failed", registration.file, e);
+                }
+            }
+        }
+    }
+
+}
@@ -1,10 +1,14 @@
 package de.vorb.properties.event;
 
+import java.util.HashSet;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Sets;
 
 /**
  * Update event that is triggered, when a change of properties has been detected.
@@ -22,35 +26,76 @@ public interface PropertiesUpdate {
     Properties getNewProperties();
 
     /**
-     * @return the set of property keys that changed during this update
+     * @return the set of property keys that changed during this update, which is the union of the added, removed and
+     *         changed keys
      */
     Set<String> getUpdatedPropertyKeys();
 
     /**
-     * Represents a successful {@link PropertiesUpdate}.
+     * @return the properties before the update
+     * @throws UnsupportedOperationException
+     *             if the update does not keep the old properties
+     */
+    default Properties getOldProperties() {
+        throw new UnsupportedOperationException("The old properties are not available");
+    }
+
+    /**
+     * @return the set of property keys that are only defined in the new properties
+     * @throws UnsupportedOperationException
+     *             if the update does not keep the old properties
+     */
+    default Set<String> getAddedKeys() {
+        final Properties oldProperties = getOldProperties();
+        final Properties newProperties = getNewProperties();
+
+        return getUpdatedPropertyKeys().stream()
+                .filter(key -> oldProperties.getProperty(key) == null && newProperties.getProperty(key) != null)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the set of property keys that are only defined in the old properties
+     * @throws UnsupportedOperationException
+     *             if the update does not keep the old properties
+     */
+    default Set<String> getRemovedKeys() {
+        final Properties oldProperties = getOldProperties();
+        final Properties newProperties = getNewProperties();
+
+        return getUpdatedPropertyKeys().stream()
+                .filter(key -> oldProperties.getProperty(key) != null && newProperties.getProperty(key) == null)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the set of property keys that are defined in both the old and the new properties, but with different
+     *         values
+     * @throws UnsupportedOperationException
+     *             if the update does not keep the old properties
+     */
+    default Set<String> getChangedKeys() {
+        final Properties oldProperties = getOldProperties();
+        final Properties newProperties = getNewProperties();
+
+        return getUpdatedPropertyKeys().stream()
+                .filter(key -> oldProperties.getProperty(key) != null && newProperties.getProperty(key) != null)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Represents a successful {@link PropertiesUpdate}. The difference between the old and the new properties is only
+     * computed once it is requested for the first time.
      */
     static class SuccessfulPropertiesUpdate implements PropertiesUpdate {
-        private final Set<String> updatedPropertyKeys;
+        private final Properties oldProperties;
         private final Properties newProperties;
+        private final Supplier<KeyDifference> difference;
 
         public SuccessfulPropertiesUpdate(Properties oldProperties, Properties newProperties) {
-
+            this.oldProperties = oldProperties;
             this.newProperties = newProperties;
-
-            updatedPropertyKeys =
-                    Stream.concat(oldProperties.keySet().stream(), newProperties.keySet().stream())
-                            .map(key -> (String) key)
-                            .filter(key -> {
-                                final String oldValue = oldProperties.getProperty(key);
-                                final String newValue = newProperties.getProperty(key);
-
-                                if ((oldValue == null || newValue == null) && oldValue != newValue) {
-                                    return true;
-                                } else {
-                                    return !oldValue.equals(newValue);
-                                }
-                            })
-                            .collect(Collectors.toSet());
+            this.difference = Suppliers.memoize(() -> KeyDifference.between(oldProperties, newProperties));
         }
 
         @Override
@@ -58,6 +103,11 @@ public interface PropertiesUpdate {
             return Optional.empty();
         }
 
+        @Override
+        public Properties getOldProperties() {
+            return oldProperties;
+        }
+
         @Override
         public Properties getNewProperties() {
             return newProperties;
@@ -65,7 +115,67 @@ public interface PropertiesUpdate {
 
         @Override
         public Set<String> getUpdatedPropertyKeys() {
-            return updatedPropertyKeys;
+            return difference.get().updatedKeys;
+        }
+
+        @Override
+        public Set<String> getAddedKeys() {
+            return difference.get().addedKeys;
+        }
+
+        @Override
+        public Set<String> getRemovedKeys() {
+            return difference.get().removedKeys;
+        }
+
+        @Override
+        public Set<String> getChangedKeys() {
+            return difference.get().changedKeys;
+        }
+
+        /**
+         * Keys that differ between two sets of properties.
+         */
+        private static final class KeyDifference {
+            private final Set<String> addedKeys = new HashSet<>();
+            private final Set<String> removedKeys = new HashSet<>();
+            private final Set<String> changedKeys = new HashSet<>();
+            private final Set<String> updatedKeys = Sets.union(addedKeys, Sets.union(removedKeys, changedKeys));
+
+            /**
+             * Compares the properties in a single pass in which every key is visited once. Only keys that are defined
+             * in either of the properties themselves are compared, since both usually share the same defaults.
+             */
+            private static KeyDifference between(Properties oldProperties, Properties newProperties) {
+                final KeyDifference difference = new KeyDifference();
+
+                for (Object key : oldProperties.keySet()) {
+                    difference.classify((String) key, oldProperties, newProperties);
+                }
+
+                for (Object key : newProperties.keySet()) {
+                    if (!oldProperties.containsKey(key)) {
+                        difference.classify((String) key, oldProperties, newProperties);
+                    }
+                }
+
+                return difference;
+            }
+
+            private void classify(String key, Properties oldProperties, Properties newProperties) {
+                final String oldValue = oldProperties.getProperty(key);
+                final String newValue = newProperties.getProperty(key);
+
+                if (oldValue == null) {
+                    if (newValue != null) {
+                        addedKeys.add(key);
+                    }
+                } else if (newValue == null) {
+                    removedKeys.add(key);
+                } else if (!oldValue.equals(newValue)) {
+                    changedKeys.add(key);
+                }
+            }
         }
     }
 
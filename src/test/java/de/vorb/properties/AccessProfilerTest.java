@@ -0,0 +1,157 @@
+package de.vorb.properties;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.truth.Truth;
+
+public class AccessProfilerTest {
+
+    private static Properties properties(String... keysAndValues) {
+        final Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return properties;
+    }
+
+    @Test
+    public void testReadCounts() {
+        final AccessProfiler profiler = AccessProfiler.create();
+        final ConstantPropertyProvider provider = ConstantPropertyProvider.fromProperties(
+                properties("a", "1", "b", "2", "c", "3"), profiler);
+
+        for (int i = 0; i < 3; i++) {
+            provider.getInt("a", 0);
+        }
+        provider.getProperty("b", StandardValueTypes.STRING);
+        provider.getPropertyOrDefaultValue("missing", null, StandardValueTypes.INTEGER);
+
+        Truth.assertThat(profiler.getReadCount("a")).isEqualTo(3);
+        Truth.assertThat(profiler.getReadCount("b")).isEqualTo(1);
+        Truth.assertThat(profiler.getReadCount("c")).isEqualTo(0);
+        Truth.assertThat(profiler.getReadCount("missing")).isEqualTo(0);
+        Truth.assertThat(profiler.getHotKeys(10).keySet()).containsExactly("a", "b");
+    }
+
+    @Test
+    public void testHandleReadsAreCountedButUpdatesAreNot() {
+        final AccessProfiler profiler = AccessProfiler.create();
+        final MutablePropertyProvider layer = new MutablePropertyProvider();
+        layer.set("key", "1");
+
+        final CompositePropertyProvider composite = CompositePropertyProvider.builder()
+                .layer(layer)
+                .accessProfiler(profiler)
+                .build();
+
+        final PropertyHandle<Integer> handle = composite.handle("key", StandardValueTypes.INT, 0);
+        layer.set("key", "2");
+
+        Truth.assertThat(profiler.getReadCount("key")).isEqualTo(0);
+
+        Truth.assertThat(handle.get()).isEqualTo(2);
+        Truth.assertThat(handle.get()).isEqualTo(2);
+
+        Truth.assertThat(profiler.getReadCount("key")).isEqualTo(2);
+    }
+
+    @Test
+    public void testHotKeys() {
+        final AccessProfiler profiler = AccessProfiler.create();
+
+        for (int i = 0; i < 5; i++) {
+            profiler.recordRead("hot");
+        }
+        profiler.recordRead("warm");
+        profiler.recordRead("warm");
+        profiler.recordRead("cold.b");
+        profiler.recordRead("cold.a");
+
+        Truth.assertThat(profiler.getHotKeys(3)).isEqualTo(ImmutableMap.of("hot", 5L, "warm", 2L, "cold.a", 1L));
+        Truth.assertThat(profiler.getHotKeys(3).keySet()).containsExactly("hot", "warm", "cold.a").inOrder();
+        Truth.assertThat(profiler.getHotKeys(0)).isEmpty();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        AccessProfiler.create().getHotKeys(-1);
+    }
+
+    @Test
+    public void testUnreadKeys() {
+        final AccessProfiler profiler = AccessProfiler.create();
+        final ConstantPropertyProvider provider = ConstantPropertyProvider.fromProperties(
+                properties("b", "1", "a", "2", "c", "3"), profiler);
+
+        provider.getProperty("c", StandardValueTypes.STRING);
+
+        Truth.assertThat(profiler.getUnreadKeys(provider.snapshot())).isEqualTo(ImmutableSet.of("a", "b"));
+        Truth.assertThat(profiler.getUnreadKeys(provider.snapshot())).containsExactly("a", "b").inOrder();
+    }
+
+    @Test
+    public void testBoundKeysAreRead() {
+        final AccessProfiler profiler = AccessProfiler.create();
+        final ConstantPropertyProvider provider = ConstantPropertyProvider.fromProperties(
+                properties("pool.name", "main", "pool.size", "4", "unbound", "x"), profiler);
+
+        ConfigBinding.bind(ConfigBindingTest.PoolConfig.class, provider);
+
+        Truth.assertThat(profiler.getUnreadKeys(provider.snapshot())).containsExactly("unbound");
+        Truth.assertThat(profiler.getReadCount("pool.size")).isEqualTo(1);
+    }
+
+    @Test
+    public void testProfilerIsPassedToNextSnapshot() {
+        final AccessProfiler profiler = AccessProfiler.create();
+        final MutablePropertyProvider layer = new MutablePropertyProvider();
+        layer.set("key", "1");
+
+        final CompositePropertyProvider composite = CompositePropertyProvider.builder()
+                .layer(layer)
+                .accessProfiler(profiler)
+                .build();
+
+        composite.getInt("key", 0);
+        layer.set("key", "2");
+        composite.getInt("key", 0);
+
+        Truth.assertThat(composite.snapshot().getGeneration()).isEqualTo(1);
+        Truth.assertThat(profiler.getReadCount("key")).isEqualTo(2);
+    }
+
+    @Test
+    public void testSampling() {
+        final AccessProfiler profiler = AccessProfiler.sampled(4);
+
+        for (int i = 0; i < 100000; i++) {
+            profiler.recordRead("key");
+        }
+
+        final long readCount = profiler.getReadCount("key");
+        Truth.assertThat(readCount % 4).isEqualTo(0);
+        Truth.assertThat(readCount).isGreaterThan(90000L);
+        Truth.assertThat(readCount).isLessThan(110000L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSamplingInterval() {
+        AccessProfiler.sampled(0);
+    }
+
+    @Test
+    public void testReset() {
+        final AccessProfiler profiler = AccessProfiler.create();
+        profiler.recordRead("key");
+
+        profiler.reset();
+
+        Truth.assertThat(profiler.getReadCount("key")).isEqualTo(0);
+        Truth.assertThat(profiler.getHotKeys(10)).isEmpty();
+    }
+
+}
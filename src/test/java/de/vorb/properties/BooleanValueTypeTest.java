@@ -86,4 +86,16 @@ public class BooleanValueTypeTest {
         BOOLEAN.parseValue("true ");
     }
 
+    @Test
+    public void testParseMixedCase() {
+        Truth.assertThat(BOOLEAN.parseValue("TrUe").get()).isTrue();
+
+        Truth.assertThat(BOOLEAN.parseValue("fAlSe").get()).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseUnknownStringOfSameLength() {
+        BOOLEAN.parseValue("nope");
+    }
+
 }
@@ -0,0 +1,136 @@
+package de.vorb.properties;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+import de.vorb.properties.event.PropertiesUpdate;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.truth.Truth;
+
+public class CompositePropertyProviderTest {
+
+    @Test
+    public void testLayerWithHighestPriorityWins() {
+        final CompositePropertyProvider composite = CompositePropertyProvider.ofLayers(
+                new MutablePropertyProvider("key.base", "base", "key.overridden", "base"),
+                new MutablePropertyProvider("key.overridden", "override"));
+
+        Truth.assertThat(composite.getProperty("key.base", StandardValueTypes.STRING)).isEqualTo(Optional.of("base"));
+        Truth.assertThat(composite.getProperty("key.overridden", StandardValueTypes.STRING))
+                .isEqualTo(Optional.of("override"));
+        Truth.assertThat(composite.getProperties()).isEqualTo(properties(
+                "key.base", "base", "key.overridden", "override"));
+    }
+
+    @Test
+    public void testConstantLayers() {
+        final Properties defaults = properties("key.default", "default");
+        final Properties plain = properties("key.plain", "plain");
+
+        final CompositePropertyProvider composite = CompositePropertyProvider.builder()
+                .layer(ConstantPropertyProvider.fromProperties(defaults))
+                .layer(() -> plain)
+                .build();
+
+        Truth.assertThat(composite.getProperties()).isEqualTo(properties(
+                "key.default", "default", "key.plain", "plain"));
+    }
+
+    @Test
+    public void testUpdateReportsChangedEffectiveValues() {
+        final MutablePropertyProvider base = new MutablePropertyProvider("key.a", "base", "key.b", "base");
+        final MutablePropertyProvider override = new MutablePropertyProvider("key.b", "override");
+        final CompositePropertyProvider composite = CompositePropertyProvider.ofLayers(base, override);
+
+        final List<PropertiesUpdate> updates = Lists.newArrayList();
+        composite.addPropertiesUpdateListener(updates::add);
+
+        final Snapshot oldSnapshot = composite.snapshot();
+
+        // the removed override reveals the base value
+        override.set("key.c", "override");
+
+        Truth.assertThat(updates).hasSize(1);
+        Truth.assertThat(updates.get(0).getChangedKeys()).containsExactly("key.b");
+        Truth.assertThat(updates.get(0).getAddedKeys()).containsExactly("key.c");
+        Truth.assertThat(updates.get(0).getRemovedKeys()).isEmpty();
+
+        Truth.assertThat(composite.snapshot().getGeneration()).isEqualTo(oldSnapshot.getGeneration() + 1);
+        Truth.assertThat(composite.getProperties()).isEqualTo(properties(
+                "key.a", "base", "key.b", "base", "key.c", "override"));
+        Truth.assertThat(oldSnapshot.getUntypedValue("key.b")).isEqualTo("override");
+    }
+
+    @Test
+    public void testUpdateOfOverriddenKeyIsNotReported() {
+        final MutablePropertyProvider base = new MutablePropertyProvider("key.a", "base", "key.b", "base");
+        final MutablePropertyProvider override = new MutablePropertyProvider("key.b", "override");
+        final CompositePropertyProvider composite = CompositePropertyProvider.ofLayers(base, override);
+
+        final List<PropertiesUpdate> updates = Lists.newArrayList();
+        composite.addPropertiesUpdateListener(updates::add);
+
+        final Snapshot oldSnapshot = composite.snapshot();
+
+        base.set("key.a", "base", "key.b", "changed");
+
+        Truth.assertThat(updates).isEmpty();
+        Truth.assertThat(composite.snapshot()).isSameAs(oldSnapshot);
+    }
+
+    @Test
+    public void testRemovedKey() {
+        final MutablePropertyProvider base = new MutablePropertyProvider("key.a", "base", "key.b", "base");
+        final CompositePropertyProvider composite = CompositePropertyProvider.ofLayers(
+                base, new MutablePropertyProvider("key.c", "override"));
+
+        final List<PropertiesUpdate> updates = Lists.newArrayList();
+        composite.addPropertiesUpdateListenerForKey("key.b", updates::add);
+
+        base.set("key.a", "base");
+
+        Truth.assertThat(updates).hasSize(1);
+        Truth.assertThat(updates.get(0).getRemovedKeys()).containsExactly("key.b");
+        Truth.assertThat(composite.getProperty("key.b", StandardValueTypes.STRING)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void testNestedComposites() {
+        final MutablePropertyProvider base = new MutablePropertyProvider("key", "base");
+        final CompositePropertyProvider inner = CompositePropertyProvider.ofLayers(base, new MutablePropertyProvider());
+        final CompositePropertyProvider outer = CompositePropertyProvider.ofLayers(inner, new MutablePropertyProvider());
+
+        base.set("key", "changed");
+
+        Truth.assertThat(outer.getProperty("key", StandardValueTypes.STRING)).isEqualTo(Optional.of("changed"));
+    }
+
+    @Test
+    public void testCloseStopsUpdates() {
+        final MutablePropertyProvider base = new MutablePropertyProvider("key", "base");
+        final CompositePropertyProvider composite = CompositePropertyProvider.ofLayers(base);
+
+        composite.close();
+        base.set("key", "changed");
+
+        Truth.assertThat(composite.getProperty("key", StandardValueTypes.STRING)).isEqualTo(Optional.of("base"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoLayers() {
+        CompositePropertyProvider.ofLayers();
+    }
+
+    private static Properties properties(String... keysAndValues) {
+        final Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return properties;
+    }
+
+}
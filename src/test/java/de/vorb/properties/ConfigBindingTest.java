@@ -0,0 +1,166 @@
+package de.vorb.properties;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+public class ConfigBindingTest {
+
+    public interface PoolConfig {
+        @Key("pool.name")
+        String name();
+
+        @Key(value = "pool.size", defaultValue = "10")
+        int size();
+
+        @Key(value = "pool.timeout", defaultValue = "1000")
+        long timeout();
+
+        @Key(value = "pool.load.factor", defaultValue = "0.75")
+        double loadFactor();
+
+        @Key(value = "pool.enabled", defaultValue = "true")
+        boolean enabled();
+
+        @Key("pool.max.size")
+        Integer maxSize();
+
+        @Key("pool.capacity")
+        BigInteger capacity();
+
+        @Key("pool.weight")
+        BigDecimal weight();
+
+        default int doubleSize() {
+            return 2 * size();
+        }
+    }
+
+    public interface RequiredConfig {
+        @Key("required")
+        int required();
+    }
+
+    public interface UnannotatedConfig {
+        int unannotated();
+    }
+
+    interface NonPublicConfig {
+        @Key("key")
+        String key();
+    }
+
+    @Test
+    public void testValues() {
+        final PoolConfig config = ConfigBinding.bind(PoolConfig.class, ConstantPropertyProvider.fromProperties(
+                properties("pool.name", "main", "pool.size", "4", "pool.timeout", "5000", "pool.load.factor", "0.5",
+                        "pool.enabled", "no", "pool.max.size", "8", "pool.capacity", "123456789012345678901234567890",
+                        "pool.weight", "1.5")))
+                .get();
+
+        Truth.assertThat(config.name()).isEqualTo("main");
+        Truth.assertThat(config.size()).isEqualTo(4);
+        Truth.assertThat(config.timeout()).isEqualTo(5000L);
+        Truth.assertThat(config.loadFactor()).isWithin(1e-9).of(0.5);
+        Truth.assertThat(config.enabled()).isFalse();
+        Truth.assertThat(config.maxSize()).isEqualTo(8);
+        Truth.assertThat(config.capacity()).isEqualTo(new BigInteger("123456789012345678901234567890"));
+        Truth.assertThat(config.weight()).isEqualTo(new BigDecimal("1.5"));
+        Truth.assertThat(config.doubleSize()).isEqualTo(8);
+    }
+
+    @Test
+    public void testDefaultValues() {
+        final PoolConfig config = ConfigBinding.bind(PoolConfig.class, () -> new Properties()).get();
+
+        Truth.assertThat(config.name()).isNull();
+        Truth.assertThat(config.size()).isEqualTo(10);
+        Truth.assertThat(config.timeout()).isEqualTo(1000L);
+        Truth.assertThat(config.loadFactor()).isWithin(1e-9).of(0.75);
+        Truth.assertThat(config.enabled()).isTrue();
+        Truth.assertThat(config.maxSize()).isNull();
+    }
+
+    @Test
+    public void testImplementationIsGenerated() {
+        final PoolConfig config = ConfigBinding.bind(PoolConfig.class, () -> new Properties()).get();
+
+        Truth.assertThat(Proxy.isProxyClass(config.getClass())).isFalse();
+        Truth.assertThat(config.getClass().getInterfaces()).asList().containsExactly(PoolConfig.class);
+        Truth.assertThat(config.getClass().getFields()).asList().isEmpty();
+    }
+
+    @Test
+    public void testImplementationIsGeneratedOnce() {
+        final PoolConfig first = ConfigBinding.bind(PoolConfig.class, new MutablePropertyProvider("pool.size", "1"))
+                .get();
+        final PoolConfig second = ConfigBinding.bind(PoolConfig.class, new MutablePropertyProvider("pool.size", "2"))
+                .get();
+
+        Truth.assertThat(second.getClass()).isSameAs(first.getClass());
+        Truth.assertThat(first.size()).isEqualTo(1);
+        Truth.assertThat(second.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRebindOnUpdate() {
+        final MutablePropertyProvider provider = new MutablePropertyProvider("pool.size", "4");
+        final ConfigBinding<PoolConfig> binding = ConfigBinding.bind(PoolConfig.class, provider);
+        final PoolConfig config = binding.get();
+
+        provider.set("pool.size", "6", "pool.name", "updated");
+
+        Truth.assertThat(config.size()).isEqualTo(6);
+        Truth.assertThat(config.name()).isEqualTo("updated");
+
+        binding.close();
+        provider.set("pool.size", "8");
+
+        Truth.assertThat(config.size()).isEqualTo(6);
+    }
+
+    @Test
+    public void testInvalidUpdateKeepsPreviousValues() {
+        final MutablePropertyProvider provider = new MutablePropertyProvider("pool.size", "4", "pool.name", "main");
+        final PoolConfig config = ConfigBinding.bind(PoolConfig.class, provider).get();
+
+        provider.set("pool.size", "many", "pool.name", "updated");
+
+        Truth.assertThat(config.size()).isEqualTo(4);
+        Truth.assertThat(config.name()).isEqualTo("main");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidValue() {
+        ConfigBinding.bind(PoolConfig.class, ConstantPropertyProvider.fromProperties(properties("pool.size", "x")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingPrimitiveValue() {
+        ConfigBinding.bind(RequiredConfig.class, () -> new Properties());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnannotatedMethod() {
+        ConfigBinding.bind(UnannotatedConfig.class, () -> new Properties());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPublicInterface() {
+        ConfigBinding.bind(NonPublicConfig.class, () -> new Properties());
+    }
+
+    private static Properties properties(String... keysAndValues) {
+        final Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return properties;
+    }
+
+}
@@ -12,6 +12,7 @@ public class ConstantPropertyProviderTest {
     private static final String UNTYPED_KEY = "key.untyped";
     private static final String TYPED_KEY = "key.typed";
     private static final String UNDEFINED_KEY = "key.undefined";
+    private static final String NUMERIC_KEY = "key.numeric";
 
     private final Properties testProperties = new Properties();
     private ConstantPropertyProvider constantPropertyProvider;
@@ -20,6 +21,7 @@ public class ConstantPropertyProviderTest {
     public void setUp() {
         testProperties.setProperty(UNTYPED_KEY, "Arbitrary value");
         testProperties.setProperty(TYPED_KEY, "true");
+        testProperties.setProperty(NUMERIC_KEY, "42");
 
         constantPropertyProvider = ConstantPropertyProvider.fromProperties(testProperties);
     }
@@ -30,6 +32,17 @@ public class ConstantPropertyProviderTest {
                 .isEqualTo(testProperties.getProperty(UNTYPED_KEY));
     }
 
+    @Test
+    public void testLaterChangesAreNotVisible() {
+        testProperties.setProperty(UNTYPED_KEY, "Changed value");
+
+        Truth.assertThat(constantPropertyProvider.getProperties()).isNotSameAs(testProperties);
+        Truth.assertThat(constantPropertyProvider.getProperties().getProperty(UNTYPED_KEY))
+                .isEqualTo("Arbitrary value");
+        Truth.assertThat(constantPropertyProvider.getProperty(UNTYPED_KEY, StandardValueTypes.STRING).get())
+                .isEqualTo("Arbitrary value");
+    }
+
     @Test
     public void testGetTypedProperty() {
         Truth.assertThat(constantPropertyProvider.getProperty(TYPED_KEY, StandardValueTypes.BOOLEAN))
@@ -47,4 +60,20 @@ public class ConstantPropertyProviderTest {
         Truth.assertThat(constantPropertyProvider.getPropertyOrDefaultValue(UNDEFINED_KEY, true,
                 StandardValueTypes.BOOLEAN)).isTrue();
     }
+
+    @Test
+    public void testGetPrimitiveWithDefinedProperty() {
+        Truth.assertThat(constantPropertyProvider.getInt(NUMERIC_KEY, 0)).isEqualTo(42);
+        Truth.assertThat(constantPropertyProvider.getLong(NUMERIC_KEY, 0L)).isEqualTo(42L);
+        Truth.assertThat(constantPropertyProvider.getDouble(NUMERIC_KEY, 0.0)).isWithin(1e-9).of(42.0);
+        Truth.assertThat(constantPropertyProvider.getBoolean(TYPED_KEY, false)).isTrue();
+    }
+
+    @Test
+    public void testGetPrimitiveWithUndefinedProperty() {
+        Truth.assertThat(constantPropertyProvider.getInt(UNDEFINED_KEY, 7)).isEqualTo(7);
+        Truth.assertThat(constantPropertyProvider.getLong(UNDEFINED_KEY, 7L)).isEqualTo(7L);
+        Truth.assertThat(constantPropertyProvider.getDouble(UNDEFINED_KEY, 0.5)).isWithin(1e-9).of(0.5);
+        Truth.assertThat(constantPropertyProvider.getBoolean(UNDEFINED_KEY, true)).isTrue();
+    }
 }
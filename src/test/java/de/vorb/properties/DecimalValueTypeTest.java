@@ -95,4 +95,21 @@ public class DecimalValueTypeTest {
         DECIMAL.parseValue("10CEFF");
     }
 
+    @Test
+    public void testScaleMatchesBigDecimal() {
+        for (String value : new String[] { "-0.50", "+1.25", "0.000", "999999999999999.999", "1234567890.1234567890",
+                "-.5" }) {
+            final BigDecimal expected = new BigDecimal(value);
+            final BigDecimal actual = DECIMAL.parseValue(value).get();
+
+            Truth.assertThat(actual).isEqualTo(expected);
+            Truth.assertThat(actual.scale()).isEqualTo(expected.scale());
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testUnsupportedDotOnly() {
+        DECIMAL.parseValue(".");
+    }
+
 }
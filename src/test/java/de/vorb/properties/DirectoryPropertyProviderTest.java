@@ -0,0 +1,196 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.jimfs.Jimfs;
+import com.google.common.truth.Truth;
+
+public class DirectoryPropertyProviderTest {
+
+    private FileSystem fileSystem;
+    private Path directory;
+    private DirectoryPropertyProvider provider;
+
+    @Before
+    public void setUp() throws IOException {
+        fileSystem = Jimfs.newFileSystem();
+        directory = fileSystem.getPath("conf.d");
+        Files.createDirectory(directory);
+
+        writeFragment("10-base.properties", "pool.size = 10", "name = base");
+        writeFragment("20-local.properties", "pool.size = 20");
+        writeFragment("README.txt", "pool.size = 30");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (provider != null) {
+            provider.close();
+        }
+        fileSystem.close();
+    }
+
+    private DirectoryPropertyProvider createProvider(DirectoryPropertyProvider.Builder builder) {
+        return new DirectoryPropertyProvider(builder) {
+            @Override
+            protected WatchService createWatchService(Path path) throws IOException {
+                return WatchServiceMultiplexerTest.createFastWatchService(path);
+            }
+        };
+    }
+
+    private void writeFragment(String fileName, String... lines) throws IOException {
+        Files.write(directory.resolve(fileName), ImmutableList.copyOf(lines), StandardCharsets.UTF_8);
+    }
+
+    private Set<String> awaitUpdate(Runnable change) throws InterruptedException {
+        final AtomicReference<Set<String>> updatedKeys = new AtomicReference<>();
+        final CountDownLatch updateCountDownLatch = new CountDownLatch(1);
+        provider.addPropertiesUpdateListener(update -> {
+            updatedKeys.set(update.getUpdatedPropertyKeys());
+            updateCountDownLatch.countDown();
+        });
+
+        change.run();
+
+        Truth.assertThat(updateCountDownLatch.await(1, TimeUnit.SECONDS)).named("updateCountDownLatch").isTrue();
+        return updatedKeys.get();
+    }
+
+    @Test
+    public void testFragmentsAreMergedInOrderOfTheirFileNames() {
+        provider = createProvider(DirectoryPropertyProvider.builder(directory));
+
+        Truth.assertThat(provider.getFragments()).containsExactly(directory.resolve("10-base.properties"),
+                directory.resolve("20-local.properties")).inOrder();
+        Truth.assertThat(provider.getPropertyOrDefaultValue("pool.size", 0, StandardValueTypes.INT)).isEqualTo(20);
+        Truth.assertThat(provider.getProperties().getProperty("name")).isEqualTo("base");
+        Truth.assertThat(provider.snapshot().getGeneration()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGlob() {
+        provider = createProvider(DirectoryPropertyProvider.builder(directory).glob("*.{properties,txt}"));
+
+        Truth.assertThat(provider.getFragments()).hasSize(3);
+        Truth.assertThat(provider.getProperties().getProperty("pool.size")).isEqualTo("30");
+    }
+
+    @Test
+    public void testDefaults() {
+        final Properties defaults = new Properties();
+        defaults.setProperty("timeout", "5");
+
+        provider = createProvider(DirectoryPropertyProvider.builder(directory).defaults(defaults));
+
+        Truth.assertThat(provider.getProperties().getProperty("timeout")).isEqualTo("5");
+    }
+
+    @Test
+    public void testModifiedFragment() throws InterruptedException {
+        provider = createProvider(DirectoryPropertyProvider.builder(directory));
+
+        final Set<String> updatedKeys = awaitUpdate(() -> write("10-base.properties", "pool.size = 15",
+                "name = changed"));
+
+        // pool.size is still overridden by the local fragment
+        Truth.assertThat(updatedKeys).isEqualTo(ImmutableSet.of("name"));
+        Truth.assertThat(provider.getProperties().getProperty("name")).isEqualTo("changed");
+        Truth.assertThat(provider.getProperties().getProperty("pool.size")).isEqualTo("20");
+    }
+
+    @Test
+    public void testAddedFragment() throws InterruptedException {
+        provider = createProvider(DirectoryPropertyProvider.builder(directory));
+
+        final Set<String> updatedKeys = awaitUpdate(() -> write("30-override.properties", "pool.size = 40"));
+
+        Truth.assertThat(updatedKeys).isEqualTo(ImmutableSet.of("pool.size"));
+        Truth.assertThat(provider.getProperties().getProperty("pool.size")).isEqualTo("40");
+        Truth.assertThat(provider.getFragments()).hasSize(3);
+    }
+
+    @Test
+    public void testDeletedFragment() throws InterruptedException {
+        provider = createProvider(DirectoryPropertyProvider.builder(directory));
+
+        final Set<String> updatedKeys = awaitUpdate(() -> {
+            try {
+                Files.delete(directory.resolve("20-local.properties"));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Truth.assertThat(updatedKeys).isEqualTo(ImmutableSet.of("pool.size"));
+        Truth.assertThat(provider.getProperties().getProperty("pool.size")).isEqualTo("10");
+        Truth.assertThat(provider.getFragments()).containsExactly(directory.resolve("10-base.properties"));
+    }
+
+    @Test
+    public void testHandle() throws InterruptedException {
+        provider = createProvider(DirectoryPropertyProvider.builder(directory));
+
+        final PropertyHandle<Integer> handle = provider.handle("pool.size", StandardValueTypes.INT, 0);
+        Truth.assertThat(handle.get()).isEqualTo(20);
+
+        awaitUpdate(() -> write("20-local.properties", "pool.size = 25"));
+
+        Truth.assertThat(handle.get()).isEqualTo(25);
+    }
+
+    @Test
+    public void testMalformedFragmentIsSkipped() throws IOException {
+        writeFragment("15-malformed.properties", "name = \\u00zz");
+
+        provider = createProvider(DirectoryPropertyProvider.builder(directory));
+
+        Truth.assertThat(provider.getFragments()).containsExactly(directory.resolve("10-base.properties"),
+                directory.resolve("20-local.properties")).inOrder();
+        Truth.assertThat(provider.getProperties().getProperty("name")).isEqualTo("base");
+    }
+
+    @Test
+    public void testMalformedFragmentKeepsItsPreviousProperties() throws InterruptedException {
+        provider = createProvider(DirectoryPropertyProvider.builder(directory));
+
+        final Set<String> updatedKeys = awaitUpdate(() -> {
+            write("10-base.properties", "pool.size = 10", "name = \\u00zz");
+            write("30-extra.properties", "timeout = 5");
+        });
+
+        Truth.assertThat(updatedKeys).isEqualTo(ImmutableSet.of("timeout"));
+        Truth.assertThat(provider.getProperties().getProperty("name")).isEqualTo("base");
+        Truth.assertThat(provider.getProperties().getProperty("timeout")).isEqualTo("5");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingDirectory() {
+        DirectoryPropertyProvider.fromDirectory(directory.resolve("missing"));
+    }
+
+    private void write(String fileName, String... lines) {
+        try {
+            writeFragment(fileName, lines);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package de.vorb.properties;
+
+import static de.vorb.properties.StandardValueTypes.DOUBLE;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+public class DoubleValueTypeTest {
+
+    @Test
+    public void testParseInteger() {
+        Truth.assertThat(DOUBLE.parseDouble("1")).isWithin(1e-9).of(1.0);
+    }
+
+    @Test
+    public void testParseFraction() {
+        Truth.assertThat(DOUBLE.parseDouble("-0.25")).isWithin(1e-9).of(-0.25);
+    }
+
+    @Test
+    public void testParseExponent() {
+        Truth.assertThat(DOUBLE.parseDouble("1e2")).isWithin(1e-9).of(100.0);
+    }
+
+    @Test
+    public void testParseValue() {
+        Truth.assertThat(DOUBLE.parseValue("0.5")).isEqualTo(Optional.of(0.5));
+    }
+
+    @Test
+    public void testNull() {
+        Truth.assertThat(DOUBLE.parseValue(null)).isEqualTo(Optional.empty());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testUnsupportedGroupingSeparator() {
+        DOUBLE.parseDouble("1,000.0");
+    }
+
+}
@@ -9,6 +9,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
@@ -16,6 +17,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.vorb.properties.event.PropertiesUpdate;
 import de.vorb.properties.event.PropertiesUpdateListener;
@@ -59,6 +61,8 @@ public class FileWatchingPropertyProviderTest {
     @After
     public void tearDown() throws IOException {
 
+        watchingFilePropertyProvider.close();
+
         final Path parentDir = propertyFile.getParent();
         Files.newDirectoryStream(parentDir).forEach(file -> {
             try {
@@ -155,6 +159,136 @@ public class FileWatchingPropertyProviderTest {
 
     }
 
+    @Test
+    public void testStatistics() throws IOException, InterruptedException {
+
+        final ProviderStatistics statistics = watchingFilePropertyProvider.getStatistics();
+
+        Truth.assertThat(statistics.getReloadCount()).isEqualTo(1);
+        Truth.assertThat(statistics.getGeneration()).isEqualTo(1);
+        Truth.assertThat(statistics.getParseTimeMaxMillis()).isGreaterThan(0.0);
+
+        final CountDownLatch updateCountDownLatch = new CountDownLatch(1);
+        watchingFilePropertyProvider.addPropertiesUpdateListener(update -> updateCountDownLatch.countDown());
+
+        updatePropertyFile("1", "3");
+
+        Truth.assertThat(updateCountDownLatch.await(1, TimeUnit.SECONDS)).named("updateCountDownLatch").isTrue();
+
+        Truth.assertThat(statistics.getReloadCount()).isEqualTo(2);
+        Truth.assertThat(statistics.getGeneration()).isEqualTo(2);
+        Truth.assertThat(statistics.getFailedReloadCount()).isEqualTo(0);
+        Truth.assertThat(statistics.getLastDiffSize()).isEqualTo(1);
+        Truth.assertThat(statistics.getEventToPublishLatencyMaxMillis()).isGreaterThan(0.0);
+
+    }
+
+    @Test
+    public void testDiffSizeIsRecordedWithoutListeners() throws IOException, InterruptedException {
+
+        final ProviderStatistics statistics = watchingFilePropertyProvider.getStatistics();
+
+        updatePropertyFile("10", "20");
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (statistics.getTotalDiffSize() == 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+
+        Truth.assertThat(statistics.getLastDiffSize()).isEqualTo(2);
+
+    }
+
+    @Test
+    public void testMalformedFileKeepsThePreviousProperties() throws IOException, InterruptedException {
+
+        final ProviderStatistics statistics = watchingFilePropertyProvider.getStatistics();
+
+        updatePropertyFile("\\u00zz", "3");
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (statistics.getFailedReloadCount() == 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+
+        Truth.assertThat(statistics.getFailedReloadCount()).isEqualTo(1);
+        Truth.assertThat(statistics.getGeneration()).isEqualTo(1);
+        assertThatPropertiesMatch(watchingFilePropertyProvider.getProperties(), "1", "2");
+
+    }
+
+    @Test
+    public void testHandleIsUpdatedBeforeListeners() throws IOException, InterruptedException {
+
+        final PropertyHandle<Integer> handle = watchingFilePropertyProvider.handle("test.second",
+                StandardValueTypes.INT, 0);
+
+        Truth.assertThat(handle.get()).isEqualTo(2);
+
+        final AtomicInteger valueSeenByListener = new AtomicInteger();
+        final CountDownLatch updateCountDownLatch = new CountDownLatch(1);
+        watchingFilePropertyProvider.addPropertiesUpdateListener(update -> {
+            valueSeenByListener.set(handle.get());
+            updateCountDownLatch.countDown();
+        });
+
+        updatePropertyFile("1", "3");
+
+        Truth.assertThat(updateCountDownLatch.await(1, TimeUnit.SECONDS)).named("updateCountDownLatch").isTrue();
+        Truth.assertThat(valueSeenByListener.get()).isEqualTo(3);
+        Truth.assertThat(handle.get()).isEqualTo(3);
+
+    }
+
+    @Test
+    public void testPollingWatch() throws IOException, InterruptedException {
+
+        final FileWatchingPropertyProvider pollingProvider = FileWatchingPropertyProvider.builder(propertyFile)
+                .pollingWatch(10, 50, TimeUnit.MILLISECONDS)
+                .build();
+
+        try {
+            final CountDownLatch updateCountDownLatch = new CountDownLatch(1);
+            pollingProvider.addPropertiesUpdateListener(update -> updateCountDownLatch.countDown());
+
+            updatePropertyFile("1", "30");
+
+            Truth.assertThat(updateCountDownLatch.await(1, TimeUnit.SECONDS)).named("updateCountDownLatch").isTrue();
+            assertThatPropertiesMatch(pollingProvider.getProperties(), "1", "30");
+        } finally {
+            pollingProvider.close();
+        }
+
+    }
+
+    @Test
+    public void testFallbackToPollingIfTheFileCannotBeWatched() throws IOException, InterruptedException {
+
+        // the watch service of the file system has been created by the provider of setUp()
+        watchingFilePropertyProvider.close();
+
+        final FileWatchingPropertyProvider fallbackProvider = new FileWatchingPropertyProvider(
+                FileWatchingPropertyProvider.builder(propertyFile)) {
+            @Override
+            protected WatchService createWatchService(Path path) throws IOException {
+                throw new IOException("Watch services are not supported");
+            }
+        };
+
+        try {
+            final CountDownLatch updateCountDownLatch = new CountDownLatch(1);
+            fallbackProvider.addPropertiesUpdateListener(update -> updateCountDownLatch.countDown());
+
+            updatePropertyFile("1", "30");
+
+            // the file is polled with the default intervals
+            Truth.assertThat(updateCountDownLatch.await(3, TimeUnit.SECONDS)).named("updateCountDownLatch").isTrue();
+        } finally {
+            fallbackProvider.close();
+        }
+
+    }
+
     private void updatePropertyFile(String first, String second) throws IOException {
         final List<String> lines = Lists.newArrayList();
 
@@ -195,6 +329,42 @@ public class FileWatchingPropertyProviderTest {
                 .isEqualTo(Optional.of("default"));
     }
 
+    @Test
+    public void testIso88591Charset() throws IOException {
+        Files.write(propertyFile, "test.umlaut=\u00e4\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        try (final FileWatchingPropertyProvider isoProvider = FileWatchingPropertyProvider.builder(propertyFile)
+                .charset(StandardCharsets.ISO_8859_1)
+                .build()) {
+            Truth.assertThat(isoProvider.getProperties().getProperty("test.umlaut")).isEqualTo("\u00e4");
+        }
+    }
+
+    @Test
+    public void testParallelParsing() throws IOException {
+        try (final FileWatchingPropertyProvider parallelProvider = FileWatchingPropertyProvider.builder(propertyFile)
+                .parallelParsingThreshold(0)
+                .build()) {
+            assertThatPropertiesMatch(parallelProvider.getProperties(), "1", "2");
+        }
+    }
+
+    @Test
+    public void testLargeFile() throws IOException {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; content.length() < 2 * PropertiesParser.MEMORY_MAPPING_THRESHOLD; i++) {
+            content.append("route.").append(i).append(" = target.").append(i).append('\n');
+        }
+        Files.write(propertyFile, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        try (final FileWatchingPropertyProvider largeProvider = FileWatchingPropertyProvider.fromFile(propertyFile)) {
+            Truth.assertThat(largeProvider.getProperty("route.0", StandardValueTypes.STRING))
+                    .isEqualTo(Optional.of("target.0"));
+            Truth.assertThat(largeProvider.getProperty("route.10000", StandardValueTypes.STRING))
+                    .isEqualTo(Optional.of("target.10000"));
+        }
+    }
+
     @Test
     public void testGetPropertyOrDefaultValueWithDefinedProperty() {
         final BigInteger definedValue = watchingFilePropertyProvider.getPropertyOrDefaultValue("test.first",
@@ -222,4 +392,77 @@ public class FileWatchingPropertyProviderTest {
 
         Truth.assertThat(watchingFilePropertyProvider.getProperties()).isSameAs(initialInstance);
     }
+
+    @Test
+    public void testSnapshotIsConsistentAcrossUpdates() throws IOException, InterruptedException {
+        final Snapshot initialSnapshot = watchingFilePropertyProvider.snapshot();
+
+        final CountDownLatch updateCountDownLatch = new CountDownLatch(1);
+        watchingFilePropertyProvider.addPropertiesUpdateListener(update -> updateCountDownLatch.countDown());
+
+        updatePropertyFile("3", "4");
+
+        Truth.assertThat(updateCountDownLatch.await(1, TimeUnit.SECONDS)).named("updateCountDownLatch").isTrue();
+
+        final Snapshot updatedSnapshot = watchingFilePropertyProvider.snapshot();
+
+        Truth.assertThat(updatedSnapshot.getGeneration()).isGreaterThan(initialSnapshot.getGeneration());
+        Truth.assertThat(updatedSnapshot.getInt("test.first", 0)).isEqualTo(3);
+        Truth.assertThat(updatedSnapshot.getInt("test.second", 0)).isEqualTo(4);
+
+        Truth.assertThat(initialSnapshot.getInt("test.first", 0)).isEqualTo(1);
+        Truth.assertThat(initialSnapshot.getInt("test.second", 0)).isEqualTo(2);
+    }
+
+    @Test
+    public void testBurstOfModificationsCausesSingleUpdate() throws IOException, InterruptedException {
+        final FileWatchingPropertyProvider debouncingProvider = new FileWatchingPropertyProvider(
+                FileWatchingPropertyProvider.builder(propertyFile).debounce(300, 2000, TimeUnit.MILLISECONDS)) {
+            @Override
+            protected WatchService createWatchService(Path path) throws IOException {
+                return WatchServiceMultiplexerTest.createFastWatchService(path);
+            }
+        };
+
+        try {
+            final AtomicInteger updateCount = new AtomicInteger();
+            final CountDownLatch updateCountDownLatch = new CountDownLatch(1);
+
+            debouncingProvider.addPropertiesUpdateListener(update -> {
+                updateCount.incrementAndGet();
+                updateCountDownLatch.countDown();
+            });
+
+            for (int i = 3; i < 7; i++) {
+                updatePropertyFile(String.valueOf(i), String.valueOf(i));
+                Thread.sleep(80);
+            }
+
+            Truth.assertThat(updateCountDownLatch.await(2, TimeUnit.SECONDS)).named("updateCountDownLatch").isTrue();
+
+            // give a second reload the chance to happen
+            Thread.sleep(500);
+
+            Truth.assertThat(updateCount.get()).isEqualTo(1);
+            assertThatPropertiesMatch(debouncingProvider.getProperties(), "6", "6");
+        } finally {
+            debouncingProvider.close();
+        }
+    }
+
+    @Test
+    public void testUnchangedContentDoesNotCauseUpdate() throws IOException, InterruptedException {
+        final Snapshot initialSnapshot = watchingFilePropertyProvider.snapshot();
+
+        final AtomicInteger updateCount = new AtomicInteger();
+        watchingFilePropertyProvider.addPropertiesUpdateListener(update -> updateCount.incrementAndGet());
+
+        Files.setLastModifiedTime(propertyFile, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+        updatePropertyFile("1", "2");
+
+        Thread.sleep(500);
+
+        Truth.assertThat(updateCount.get()).isEqualTo(0);
+        Truth.assertThat(watchingFilePropertyProvider.snapshot()).isSameAs(initialSnapshot);
+    }
 }
@@ -52,4 +52,24 @@ public class HexadecimalValueTypeTest {
         HEXADECIMAL.parseValue(hexCodeWithTrailingWhitespace);
     }
 
+    @Test
+    public void testLowerCase() {
+        Truth.assertThat(HEXADECIMAL.parseValue("0xcafe").get()).isEqualTo(correspondingBytes);
+    }
+
+    @Test
+    public void testPrefixOnly() {
+        Truth.assertThat(HEXADECIMAL.parseValue("0x").get()).isEqualTo(new byte[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddNumberOfDigits() {
+        HEXADECIMAL.parseValue("CAF");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDigit() {
+        HEXADECIMAL.parseValue("CAFG");
+    }
+
 }
@@ -0,0 +1,59 @@
+package de.vorb.properties;
+
+import static de.vorb.properties.StandardValueTypes.INT;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+public class IntValueTypeTest {
+
+    @Test
+    public void testParseZero() {
+        Truth.assertThat(INT.parseInt("0")).isEqualTo(0);
+    }
+
+    @Test
+    public void testParseMinusOne() {
+        Truth.assertThat(INT.parseInt("-1")).isEqualTo(-1);
+    }
+
+    @Test
+    public void testParseZeroPrefix() {
+        Truth.assertThat(INT.parseInt("010")).isEqualTo(10);
+    }
+
+    @Test
+    public void testParseBounds() {
+        Truth.assertThat(INT.parseInt(String.valueOf(Integer.MAX_VALUE))).isEqualTo(Integer.MAX_VALUE);
+        Truth.assertThat(INT.parseInt(String.valueOf(Integer.MIN_VALUE))).isEqualTo(Integer.MIN_VALUE);
+    }
+
+    @Test
+    public void testParseValue() {
+        Truth.assertThat(INT.parseValue("42")).isEqualTo(Optional.of(42));
+    }
+
+    @Test
+    public void testNull() {
+        Truth.assertThat(INT.parseValue(null)).isEqualTo(Optional.empty());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testOverflow() {
+        INT.parseInt(String.valueOf(Integer.MAX_VALUE + 1L));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testUnsupportedFraction() {
+        INT.parseInt("1.0");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testUnsupportedHexadecimal() {
+        INT.parseInt("10CEFF");
+    }
+
+}
@@ -69,4 +69,17 @@ public class IntegerValueTypeTest {
         INTEGER.parseValue("10CEFF");
     }
 
+    @Test
+    public void testLongRangeBoundary() {
+        for (String value : new String[] { "999999999999999999", "-999999999999999999", "1000000000000000000",
+                "+42", "-0" }) {
+            Truth.assertThat(INTEGER.parseValue(value).get()).isEqualTo(new BigInteger(value));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testUnsupportedSignOnly() {
+        INTEGER.parseValue("-");
+    }
+
 }
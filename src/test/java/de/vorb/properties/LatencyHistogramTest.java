@@ -0,0 +1,61 @@
+package de.vorb.properties;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void testEmpty() {
+        Truth.assertThat(histogram.getCount()).isEqualTo(0);
+        Truth.assertThat(histogram.getMeanMillis()).isWithin(1e-9).of(0);
+        Truth.assertThat(histogram.getPercentileMillis(99)).isWithin(1e-9).of(0);
+    }
+
+    @Test
+    public void testBuckets() {
+        histogram.record(0);
+        histogram.record(1023);
+        histogram.record(1024);
+        histogram.record(2047);
+        histogram.record(2048);
+        histogram.record(Long.MAX_VALUE);
+
+        final long[] counts = histogram.getBucketCounts();
+
+        Truth.assertThat(counts[0]).isEqualTo(2);
+        Truth.assertThat(counts[1]).isEqualTo(2);
+        Truth.assertThat(counts[2]).isEqualTo(1);
+        Truth.assertThat(counts[LatencyHistogram.BUCKET_COUNT - 1]).isEqualTo(1);
+        Truth.assertThat(histogram.getCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+        // 100 us fall into the bucket below 2^17 ns
+        Truth.assertThat(histogram.getPercentileMillis(50)).isWithin(1e-9).of(131072 / 1e6);
+        Truth.assertThat(histogram.getPercentileMillis(99)).isWithin(1e-9).of(131072 / 1e6);
+        Truth.assertThat(histogram.getPercentileMillis(100)).isWithin(1e-9).of(50);
+        Truth.assertThat(histogram.getMaxMillis()).isWithin(1e-9).of(50);
+        Truth.assertThat(histogram.getMeanMillis()).isWithin(1e-9).of((99 * 0.1 + 50) / 100);
+    }
+
+    @Test
+    public void testNegativeDuration() {
+        histogram.record(-1);
+
+        Truth.assertThat(histogram.getBucketCounts()[0]).isEqualTo(1);
+        Truth.assertThat(histogram.getMaxMillis()).isWithin(1e-9).of(0);
+    }
+
+}
@@ -0,0 +1,273 @@
+package de.vorb.properties;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.vorb.properties.event.PropertiesUpdate;
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.truth.Truth;
+
+public class ListenerDispatcherTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFailingListenerDoesNotAffectOtherListeners() {
+        final ListenerDispatcher dispatcher = new ListenerDispatcher(null, 1, TimeUnit.SECONDS);
+        final List<PropertiesUpdate> receivedUpdates = Lists.newArrayList();
+
+        final PropertiesUpdateListener failingListener = update -> {
+            throw new IllegalStateException("failing listener");
+        };
+
+        final PropertiesUpdate update = update(version(1), version(2));
+        dispatcher.dispatch(update, subscribedToAllKeys(failingListener, receivedUpdates::add));
+
+        Truth.assertThat(receivedUpdates).containsExactly(update);
+    }
+
+    @Test
+    public void testQueuedUpdatesAreCoalesced() throws InterruptedException {
+        final ListenerDispatcher dispatcher = new ListenerDispatcher(executor, 1, TimeUnit.SECONDS);
+        final List<PropertiesUpdate> receivedUpdates = Lists.newCopyOnWriteArrayList();
+
+        final CountDownLatch firstUpdateStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstUpdate = new CountDownLatch(1);
+        final CountDownLatch allUpdatesReceived = new CountDownLatch(2);
+
+        final PropertiesUpdateListener slowListener = update -> {
+            firstUpdateStarted.countDown();
+
+            try {
+                releaseFirstUpdate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            receivedUpdates.add(update);
+            allUpdatesReceived.countDown();
+        };
+
+        final ListenerTrie subscriptions = subscribedToAllKeys(slowListener);
+
+        dispatcher.dispatch(update(version(1), version(2)), subscriptions);
+        Truth.assertThat(firstUpdateStarted.await(1, TimeUnit.SECONDS)).named("firstUpdateStarted").isTrue();
+
+        dispatcher.dispatch(update(version(2), version(3)), subscriptions);
+        dispatcher.dispatch(update(version(3), version(4)), subscriptions);
+
+        releaseFirstUpdate.countDown();
+        Truth.assertThat(allUpdatesReceived.await(1, TimeUnit.SECONDS)).named("allUpdatesReceived").isTrue();
+
+        Thread.sleep(100);
+
+        Truth.assertThat(receivedUpdates).hasSize(2);
+        Truth.assertThat(receivedUpdates.get(0).getNewProperties().getProperty("version")).isEqualTo("2");
+        Truth.assertThat(receivedUpdates.get(1).getOldProperties().getProperty("version")).isEqualTo("2");
+        Truth.assertThat(receivedUpdates.get(1).getNewProperties().getProperty("version")).isEqualTo("4");
+    }
+
+    @Test
+    public void testListenersAreCalledOnTheExecutor() throws InterruptedException {
+        final ListenerDispatcher dispatcher = new ListenerDispatcher(executor, 1, TimeUnit.SECONDS);
+
+        final Thread callingThread = Thread.currentThread();
+        final CountDownLatch calledOnOtherThread = new CountDownLatch(1);
+
+        dispatcher.dispatch(update(version(1), version(2)), subscribedToAllKeys(update -> {
+            if (Thread.currentThread() != callingThread) {
+                calledOnOtherThread.countDown();
+            }
+        }));
+
+        Truth.assertThat(calledOnOtherThread.await(1, TimeUnit.SECONDS)).named("calledOnOtherThread").isTrue();
+    }
+
+    @Test
+    public void testQueuedSnapshotUpdatesAreCoalescedStructurally() throws InterruptedException {
+        final ListenerDispatcher dispatcher = new ListenerDispatcher(executor, 1, TimeUnit.SECONDS);
+        final List<PropertiesUpdate> receivedUpdates = Lists.newCopyOnWriteArrayList();
+
+        final CountDownLatch firstUpdateStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstUpdate = new CountDownLatch(1);
+        final CountDownLatch allUpdatesReceived = new CountDownLatch(2);
+
+        final ListenerTrie subscriptions = subscribedToAllKeys(blockingListener(firstUpdateStarted, releaseFirstUpdate,
+                receivedUpdates, allUpdatesReceived));
+
+        final Snapshot first = new Snapshot(1, entries("key.changed", "1", "key.reverted", "1"), new Properties());
+        final Snapshot second = first.next(entries("key.changed", "2", "key.reverted", "1"));
+        final Snapshot third = second.next(entries("key.changed", "3", "key.reverted", "2"));
+        final Snapshot fourth = third.next(entries("key.changed", "4", "key.reverted", "1"));
+
+        dispatcher.dispatch(new SnapshotUpdate(first, second), subscriptions);
+        Truth.assertThat(firstUpdateStarted.await(1, TimeUnit.SECONDS)).named("firstUpdateStarted").isTrue();
+
+        dispatcher.dispatch(new SnapshotUpdate(second, third), subscriptions);
+        dispatcher.dispatch(new SnapshotUpdate(third, fourth), subscriptions);
+
+        releaseFirstUpdate.countDown();
+        Truth.assertThat(allUpdatesReceived.await(1, TimeUnit.SECONDS)).named("allUpdatesReceived").isTrue();
+
+        final SnapshotUpdate coalescedUpdate = (SnapshotUpdate) receivedUpdates.get(1);
+        Truth.assertThat(coalescedUpdate.getOldSnapshot()).isSameAs(second);
+        Truth.assertThat(coalescedUpdate.getNewSnapshot()).isSameAs(fourth);
+        Truth.assertThat(coalescedUpdate.getUpdatedPropertyKeys()).containsExactly("key.changed");
+    }
+
+    @Test
+    public void testCoalescedUpdateIsDroppedIfNoSubscribedKeyChanged() throws InterruptedException {
+        final ListenerDispatcher dispatcher = new ListenerDispatcher(executor, 1, TimeUnit.SECONDS);
+        final List<PropertiesUpdate> receivedUpdates = Lists.newCopyOnWriteArrayList();
+
+        final CountDownLatch firstUpdateStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstUpdate = new CountDownLatch(1);
+        final CountDownLatch allUpdatesReceived = new CountDownLatch(2);
+
+        final ListenerTrie subscriptions = new ListenerTrie();
+        subscriptions.addKeyListener("key.subscribed",
+                blockingListener(firstUpdateStarted, releaseFirstUpdate, receivedUpdates, allUpdatesReceived));
+
+        final Properties first = properties("key.subscribed", "1", "key.other", "1");
+        final Properties second = properties("key.subscribed", "2", "key.other", "1");
+        final Properties third = properties("key.subscribed", "3", "key.other", "1");
+        final Properties fourth = properties("key.subscribed", "2", "key.other", "2");
+
+        dispatcher.dispatch(update(first, second), subscriptions);
+        Truth.assertThat(firstUpdateStarted.await(1, TimeUnit.SECONDS)).named("firstUpdateStarted").isTrue();
+
+        dispatcher.dispatch(update(second, third), subscriptions);
+        dispatcher.dispatch(update(third, fourth), subscriptions);
+
+        releaseFirstUpdate.countDown();
+        Truth.assertThat(allUpdatesReceived.await(200, TimeUnit.MILLISECONDS)).named("allUpdatesReceived").isFalse();
+
+        Truth.assertThat(receivedUpdates).hasSize(1);
+    }
+
+    @Test
+    public void testQueueIsNotBlockedByAnError() throws InterruptedException {
+        final ListenerDispatcher dispatcher = new ListenerDispatcher(executor, 1, TimeUnit.SECONDS);
+
+        final CountDownLatch firstUpdateStarted = new CountDownLatch(1);
+        final CountDownLatch secondUpdateReceived = new CountDownLatch(1);
+
+        final ListenerTrie subscriptions = subscribedToAllKeys(update -> {
+            if (firstUpdateStarted.getCount() > 0) {
+                firstUpdateStarted.countDown();
+                throw new Error("failing listener");
+            }
+
+            secondUpdateReceived.countDown();
+        });
+
+        dispatcher.dispatch(update(version(1), version(2)), subscriptions);
+        Truth.assertThat(firstUpdateStarted.await(1, TimeUnit.SECONDS)).named("firstUpdateStarted").isTrue();
+
+        dispatcher.dispatch(update(version(2), version(3)), subscriptions);
+        Truth.assertThat(secondUpdateReceived.await(1, TimeUnit.SECONDS)).named("secondUpdateReceived").isTrue();
+    }
+
+    @Test
+    public void testReaddedListenerKeepsItsQueue() throws InterruptedException {
+        final ListenerDispatcher dispatcher = new ListenerDispatcher(executor, 1, TimeUnit.SECONDS);
+        final List<PropertiesUpdate> receivedUpdates = Lists.newCopyOnWriteArrayList();
+
+        final CountDownLatch firstUpdateStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstUpdate = new CountDownLatch(1);
+        final CountDownLatch allUpdatesReceived = new CountDownLatch(2);
+        final AtomicInteger activeCallCount = new AtomicInteger();
+        final AtomicInteger maxActiveCallCount = new AtomicInteger();
+
+        final PropertiesUpdateListener blockingListener = blockingListener(firstUpdateStarted, releaseFirstUpdate,
+                receivedUpdates, allUpdatesReceived);
+        final PropertiesUpdateListener listener = update -> {
+            maxActiveCallCount.accumulateAndGet(activeCallCount.incrementAndGet(), Math::max);
+            try {
+                blockingListener.handlePropertiesUpdate(update);
+            } finally {
+                activeCallCount.decrementAndGet();
+            }
+        };
+
+        final ListenerTrie subscriptions = subscribedToAllKeys(listener);
+
+        dispatcher.dispatch(update(version(1), version(2)), subscriptions);
+        Truth.assertThat(firstUpdateStarted.await(1, TimeUnit.SECONDS)).named("firstUpdateStarted").isTrue();
+
+        // the listener is removed and added again while it handles its first update
+        dispatcher.remove(listener);
+        dispatcher.dispatch(update(version(2), version(3)), subscriptions);
+        Thread.sleep(100);
+
+        releaseFirstUpdate.countDown();
+        Truth.assertThat(allUpdatesReceived.await(1, TimeUnit.SECONDS)).named("allUpdatesReceived").isTrue();
+
+        Truth.assertThat(maxActiveCallCount.get()).isEqualTo(1);
+        Truth.assertThat(receivedUpdates.get(0).getNewProperties().getProperty("version")).isEqualTo("2");
+        Truth.assertThat(receivedUpdates.get(1).getNewProperties().getProperty("version")).isEqualTo("3");
+    }
+
+    private static PropertiesUpdateListener blockingListener(CountDownLatch firstUpdateStarted,
+            CountDownLatch releaseFirstUpdate, List<PropertiesUpdate> receivedUpdates,
+            CountDownLatch updatesReceived) {
+        return update -> {
+            firstUpdateStarted.countDown();
+
+            try {
+                releaseFirstUpdate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            receivedUpdates.add(update);
+            updatesReceived.countDown();
+        };
+    }
+
+    private static ListenerTrie subscribedToAllKeys(PropertiesUpdateListener... listeners) {
+        final ListenerTrie subscriptions = new ListenerTrie();
+        for (PropertiesUpdateListener listener : listeners) {
+            subscriptions.addPrefixListener("", listener);
+        }
+        return subscriptions;
+    }
+
+    private static PersistentPropertyMap entries(String... keysAndValues) {
+        return PersistentPropertyMap.EMPTY.withEntriesOf(PropertyTable.fromProperties(properties(keysAndValues)));
+    }
+
+    private static Properties properties(String... keysAndValues) {
+        final Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return properties;
+    }
+
+    private static Properties version(int version) {
+        final Properties properties = new Properties();
+        properties.setProperty("version", String.valueOf(version));
+        return properties;
+    }
+
+    private static PropertiesUpdate update(Properties oldProperties, Properties newProperties) {
+        return PropertiesUpdate.replacedProperties(oldProperties, newProperties);
+    }
+
+}
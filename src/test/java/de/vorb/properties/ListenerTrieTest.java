@@ -0,0 +1,73 @@
+package de.vorb.properties;
+
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.truth.Truth;
+
+public class ListenerTrieTest {
+
+    private final ListenerTrie listenerTrie = new ListenerTrie();
+
+    private final PropertiesUpdateListener allKeysListener = update -> {
+    };
+    private final PropertiesUpdateListener databaseListener = update -> {
+    };
+    private final PropertiesUpdateListener databaseUrlListener = update -> {
+    };
+
+    @Test
+    public void testEmpty() {
+        Truth.assertThat(listenerTrie.isEmpty()).isTrue();
+        Truth.assertThat(listenerTrie.getListeners(ImmutableList.of("db.url"))).isEmpty();
+    }
+
+    @Test
+    public void testPrefixSubscriptions() {
+        listenerTrie.addPrefixListener("", allKeysListener);
+        listenerTrie.addPrefixListener("db.", databaseListener);
+
+        Truth.assertThat(listenerTrie.getListeners(ImmutableList.of("db.url")))
+                .containsExactly(allKeysListener, databaseListener);
+        Truth.assertThat(listenerTrie.getListeners(ImmutableList.of("http.port")))
+                .containsExactly(allKeysListener);
+        Truth.assertThat(listenerTrie.getListeners(ImmutableList.of("db")))
+                .containsExactly(allKeysListener);
+    }
+
+    @Test
+    public void testKeySubscriptions() {
+        listenerTrie.addKeyListener("db.url", databaseUrlListener);
+
+        Truth.assertThat(listenerTrie.getListeners(ImmutableList.of("db.url"))).containsExactly(databaseUrlListener);
+        Truth.assertThat(listenerTrie.getListeners(ImmutableList.of("db.url.suffix"))).isEmpty();
+        Truth.assertThat(listenerTrie.getListeners(ImmutableList.of("db.user"))).isEmpty();
+    }
+
+    @Test
+    public void testListenersAreReturnedOnce() {
+        listenerTrie.addPrefixListener("db.", databaseListener);
+        listenerTrie.addKeyListener("db.url", databaseListener);
+
+        Truth.assertThat(listenerTrie.getListeners(ImmutableList.of("db.url", "db.user")))
+                .containsExactly(databaseListener);
+    }
+
+    @Test
+    public void testRemove() {
+        listenerTrie.addPrefixListener("db.", databaseListener);
+        listenerTrie.addKeyListener("db.url", databaseListener);
+        listenerTrie.addKeyListener("db.url", databaseUrlListener);
+
+        listenerTrie.remove(databaseListener);
+
+        Truth.assertThat(listenerTrie.getListeners(ImmutableList.of("db.url"))).containsExactly(databaseUrlListener);
+
+        listenerTrie.remove(databaseUrlListener);
+
+        Truth.assertThat(listenerTrie.isEmpty()).isTrue();
+    }
+
+}
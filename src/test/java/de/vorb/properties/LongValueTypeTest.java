@@ -0,0 +1,44 @@
+package de.vorb.properties;
+
+import static de.vorb.properties.StandardValueTypes.LONG;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+public class LongValueTypeTest {
+
+    @Test
+    public void testParseZero() {
+        Truth.assertThat(LONG.parseLong("0")).isEqualTo(0L);
+    }
+
+    @Test
+    public void testParseBounds() {
+        Truth.assertThat(LONG.parseLong(String.valueOf(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+        Truth.assertThat(LONG.parseLong(String.valueOf(Long.MIN_VALUE))).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    public void testParseValue() {
+        Truth.assertThat(LONG.parseValue("30000")).isEqualTo(Optional.of(30000L));
+    }
+
+    @Test
+    public void testNull() {
+        Truth.assertThat(LONG.parseValue(null)).isEqualTo(Optional.empty());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testOverflow() {
+        LONG.parseLong("9223372036854775808");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testUnsupportedExponent() {
+        LONG.parseLong("1e2");
+    }
+
+}
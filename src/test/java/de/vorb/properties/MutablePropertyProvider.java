@@ -0,0 +1,88 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+import java.util.Properties;
+
+import de.vorb.properties.event.PropertiesUpdate;
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+/**
+ * Observable provider whose properties are replaced by the tests.
+ */
+final class MutablePropertyProvider implements ObservablePropertyProvider {
+
+    private final ListenerTrie listeners = new ListenerTrie();
+    private final PropertyHandleRegistry handles = new PropertyHandleRegistry();
+    private volatile Snapshot snapshot = new Snapshot(0, new Properties());
+
+    MutablePropertyProvider(String... keysAndValues) {
+        set(keysAndValues);
+    }
+
+    /**
+     * Replaces all properties and informs the listeners synchronously.
+     */
+    void set(String... keysAndValues) {
+        final Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+
+        final Snapshot oldSnapshot = snapshot;
+        final Snapshot newSnapshot = new Snapshot(oldSnapshot.getGeneration() + 1, properties);
+        snapshot = newSnapshot;
+
+        final PropertiesUpdate update = PropertiesUpdate.replacedProperties(oldSnapshot.getProperties(),
+                newSnapshot.getProperties());
+        handles.update(newSnapshot, update.getUpdatedPropertyKeys());
+        for (PropertiesUpdateListener listener : listeners.getListeners(update.getUpdatedPropertyKeys())) {
+            listener.handlePropertiesUpdate(update);
+        }
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public Properties getProperties() {
+        return snapshot.getProperties();
+    }
+
+    @Override
+    public <T> Optional<T> getProperty(String key, ValueType<T> type) {
+        return snapshot.getProperty(key, type);
+    }
+
+    @Override
+    public <T> T getPropertyOrDefaultValue(String key, T defaultValue, ValueType<T> type) {
+        return snapshot.getPropertyOrDefaultValue(key, defaultValue, type);
+    }
+
+    @Override
+    public <T> PropertyHandle<T> handle(String key, ValueType<T> type, T defaultValue) {
+        return handles.register(this::snapshot, key, type, defaultValue);
+    }
+
+    @Override
+    public void addPropertiesUpdateListener(PropertiesUpdateListener listener) {
+        listeners.addPrefixListener("", listener);
+    }
+
+    @Override
+    public void addPropertiesUpdateListener(String keyPrefix, PropertiesUpdateListener listener) {
+        listeners.addPrefixListener(keyPrefix, listener);
+    }
+
+    @Override
+    public void addPropertiesUpdateListenerForKey(String key, PropertiesUpdateListener listener) {
+        listeners.addKeyListener(key, listener);
+    }
+
+    @Override
+    public void removePropertiesUpdateListener(PropertiesUpdateListener listener) {
+        listeners.remove(listener);
+    }
+
+}
@@ -0,0 +1,140 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.truth.Truth;
+
+public class ParallelPropertiesParserTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFindChunkStart() {
+        final ByteBuffer content = encode("a=1\\\nb=2\\\\\nc=3");
+
+        // the line feed after "a=1\" continues the line, the one after "b=2\\" does not
+        Truth.assertThat(ParallelPropertiesParser.findChunkStart(content, 0, 0, content.limit()))
+                .isEqualTo("a=1\\\nb=2\\\\\n".length());
+    }
+
+    @Test
+    public void testFindChunkStartWithCarriageReturn() {
+        final ByteBuffer content = encode("a=1\\\r\nb=2\r\nc=3");
+
+        Truth.assertThat(ParallelPropertiesParser.findChunkStart(content, 0, 0, content.limit()))
+                .isEqualTo("a=1\\\r\nb=2\r\n".length());
+    }
+
+    @Test
+    public void testFindChunkStartWithoutBoundary() {
+        final ByteBuffer content = encode("a=1\\\nb=2");
+
+        Truth.assertThat(ParallelPropertiesParser.findChunkStart(content, 0, 0, content.limit()))
+                .isEqualTo(content.limit());
+    }
+
+    @Test
+    public void testMatchesSequentialParsing() throws IOException {
+        final Random random = new Random(42);
+        final StringBuilder input = new StringBuilder();
+
+        for (int i = 0; i < 20000; i++) {
+            switch (random.nextInt(5)) {
+            case 0:
+                input.append("# comment ").append(i).append(" \\\n");
+                break;
+            case 1:
+                input.append("key.").append(random.nextInt(1000)).append(" = continued \\\n    value ").append(i)
+                        .append('\n');
+                break;
+            case 2:
+                input.append("key.").append(random.nextInt(1000)).append(" : backslashes \\\\\r\n");
+                break;
+            case 3:
+                input.append("\n   \n");
+                break;
+            default:
+                input.append("key.").append(random.nextInt(1000)).append('=').append(i).append('\n');
+                break;
+            }
+        }
+
+        final Map<String, String> expected = Maps.newHashMap();
+        new PropertiesParser(StandardCharsets.UTF_8).parse(encode(input.toString()), expected::put);
+
+        Truth.assertThat(parse(encode(input.toString()), 1024)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testLastDefinitionWins() throws IOException {
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            input.append("key = ").append(i).append('\n');
+        }
+
+        final List<String> values = Lists.newArrayList();
+        new ParallelPropertiesParser(StandardCharsets.UTF_8, pool, 1024).parse(encode(input.toString()),
+                (key, value) -> values.add(value));
+
+        Truth.assertThat(values).hasSize(10000);
+        Truth.assertThat(values.get(values.size() - 1)).isEqualTo("9999");
+        Truth.assertThat(parse(encode(input.toString()), 1024)).containsEntry("key", "9999");
+    }
+
+    @Test
+    public void testPositionIsRespected() throws IOException {
+        final ByteBuffer content = encode("skipped=1\nkey=value");
+        content.position("skipped=1\n".length());
+
+        Truth.assertThat(parse(content, 1)).isEqualTo(ImmutableMap.of("key", "value"));
+    }
+
+    @Test(expected = MalformedInputException.class)
+    public void testMalformedInput() throws IOException {
+        final byte[] validLines = "key=value\n".getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer content = ByteBuffer.allocate(validLines.length * 1000 + 2);
+        for (int i = 0; i < 1000; i++) {
+            content.put(validLines);
+        }
+        content.put((byte) 'k').put((byte) 0xC3);
+        content.flip();
+
+        parse(content, 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedUnicodeEscape() throws IOException {
+        parse(encode("key=\\u00zz"), 1);
+    }
+
+    private Map<String, String> parse(ByteBuffer content, int minChunkSize) throws MalformedInputException {
+        final Map<String, String> entries = Maps.newHashMap();
+
+        new ParallelPropertiesParser(StandardCharsets.UTF_8, pool, minChunkSize).parse(content, entries::put);
+
+        return entries;
+    }
+
+    private static ByteBuffer encode(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
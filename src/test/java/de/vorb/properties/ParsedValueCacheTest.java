@@ -0,0 +1,111 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+public class ParsedValueCacheTest {
+
+    private final Properties properties = new Properties();
+    private ParsedValueCache parsedValueCache;
+
+    @Before
+    public void setUp() {
+        properties.setProperty("key.integer", "42");
+        properties.setProperty("key.invalid", "invalid");
+        properties.setProperty("key.hexadecimal", "0x0102");
+
+        parsedValueCache = new ParsedValueCache(PropertyTable.fromProperties(properties)::get);
+    }
+
+    @Test
+    public void testRepeatedLookupReturnsSameInstance() {
+        final Optional<?> first = parsedValueCache.getProperty("key.integer", StandardValueTypes.INTEGER);
+        final Optional<?> second = parsedValueCache.getProperty("key.integer", StandardValueTypes.INTEGER);
+
+        Truth.assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void testValueIsParsedOncePerType() {
+        final AtomicInteger parseCount = new AtomicInteger();
+        final ValueType<String> countingType = value -> {
+            parseCount.incrementAndGet();
+            return Optional.ofNullable(value);
+        };
+
+        parsedValueCache.getProperty("key.integer", countingType);
+        parsedValueCache.getProperty("key.integer", countingType);
+
+        Truth.assertThat(parseCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUndefinedKeysAreNotCached() {
+        final AtomicInteger parseCount = new AtomicInteger();
+        final ValueType<String> countingType = value -> {
+            parseCount.incrementAndGet();
+            return Optional.ofNullable(value);
+        };
+
+        Truth.assertThat(parsedValueCache.getProperty("key.undefined", countingType).isPresent()).isFalse();
+        Truth.assertThat(parsedValueCache.getProperty("key.undefined", countingType).isPresent()).isFalse();
+
+        Truth.assertThat(parseCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDifferentTypesAreCachedSeparately() {
+        Truth.assertThat(parsedValueCache.getProperty("key.integer", StandardValueTypes.STRING))
+                .isEqualTo(Optional.of("42"));
+        Truth.assertThat(parsedValueCache.getProperty("key.integer", StandardValueTypes.DECIMAL).isPresent())
+                .isTrue();
+    }
+
+    @Test
+    public void testParseFailureIsCached() {
+        final AtomicInteger parseCount = new AtomicInteger();
+        final ValueType<Boolean> failingType = value -> {
+            parseCount.incrementAndGet();
+            return StandardValueTypes.BOOLEAN.parseValue(value);
+        };
+
+        IllegalArgumentException first = null;
+        IllegalArgumentException second = null;
+
+        try {
+            parsedValueCache.getProperty("key.invalid", failingType);
+        } catch (IllegalArgumentException e) {
+            first = e;
+        }
+
+        try {
+            parsedValueCache.getProperty("key.invalid", failingType);
+        } catch (IllegalArgumentException e) {
+            second = e;
+        }
+
+        Truth.assertThat(parseCount.get()).isEqualTo(1);
+        Truth.assertThat(first).isNotNull();
+        Truth.assertThat(second).isNotSameAs(first);
+        Truth.assertThat(second.getMessage()).isEqualTo(first.getMessage());
+        Truth.assertThat(second.getCause()).isSameAs(first.getCause());
+    }
+
+    @Test
+    public void testModifyingReturnedByteArrayDoesNotAffectCache() {
+        final byte[] first = parsedValueCache.getProperty("key.hexadecimal", StandardValueTypes.HEXADECIMAL).get();
+        first[0] = 42;
+
+        final byte[] second = parsedValueCache.getProperty("key.hexadecimal", StandardValueTypes.HEXADECIMAL).get();
+
+        Truth.assertThat(second).isEqualTo(new byte[] { 1, 2 });
+        Truth.assertThat(second).isNotSameAs(first);
+    }
+
+}
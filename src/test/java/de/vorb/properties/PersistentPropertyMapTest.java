@@ -0,0 +1,178 @@
+package de.vorb.properties;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.truth.Truth;
+
+public class PersistentPropertyMapTest {
+
+    // "Aa" and "BB" have the same hash code, so all of these keys collide
+    private static final String[] COLLIDING_KEYS = { "AaAa", "AaBB", "BBAa", "BBBB" };
+
+    @Test
+    public void testEmpty() {
+        Truth.assertThat(PersistentPropertyMap.EMPTY.size()).isEqualTo(0);
+        Truth.assertThat(PersistentPropertyMap.EMPTY.get("key")).isNull();
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        final Random random = new Random(42);
+        final Map<String, String> expected = Maps.newHashMap();
+
+        PersistentPropertyMap map = PersistentPropertyMap.EMPTY;
+
+        for (int round = 0; round < 50; round++) {
+            final PersistentPropertyMap.Builder builder = map.toBuilder();
+
+            for (int i = 0; i < 500; i++) {
+                final String key = randomKey(random);
+
+                if (random.nextInt(3) == 0) {
+                    builder.remove(key);
+                    expected.remove(key);
+                } else {
+                    final String value = String.valueOf(random.nextInt(10));
+                    builder.put(key, value);
+                    expected.put(key, value);
+                }
+            }
+
+            final PersistentPropertyMap previous = map;
+            final Map<String, String> previousEntries = toMap(previous);
+
+            map = builder.build();
+
+            Truth.assertThat(map.size()).isEqualTo(expected.size());
+            Truth.assertThat(toMap(map)).isEqualTo(expected);
+            for (String key : expected.keySet()) {
+                Truth.assertThat(map.get(key)).isEqualTo(expected.get(key));
+            }
+
+            // previous versions are not affected by the builder
+            Truth.assertThat(toMap(previous)).isEqualTo(previousEntries);
+            Truth.assertThat(differentKeys(previous, map)).isEqualTo(expectedDifference(previousEntries, expected));
+        }
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        final PersistentPropertyMap.Builder builder = PersistentPropertyMap.EMPTY.toBuilder();
+        for (String key : COLLIDING_KEYS) {
+            builder.put(key, key);
+        }
+        final PersistentPropertyMap map = builder.build();
+
+        for (String key : COLLIDING_KEYS) {
+            Truth.assertThat(map.get(key)).isEqualTo(key);
+        }
+        Truth.assertThat(map.get("AaCC")).isNull();
+
+        final PersistentPropertyMap.Builder removingBuilder = map.toBuilder();
+        removingBuilder.remove("AaAa");
+        removingBuilder.remove("BBBB");
+        removingBuilder.remove("AaBB");
+        final PersistentPropertyMap remaining = removingBuilder.build();
+
+        Truth.assertThat(remaining.size()).isEqualTo(1);
+        Truth.assertThat(remaining.get("BBAa")).isEqualTo("BBAa");
+        Truth.assertThat(differentKeys(map, remaining)).containsExactly("AaAa", "AaBB", "BBBB");
+    }
+
+    @Test
+    public void testUnchangedEntriesReturnSameMap() {
+        final PropertyTable table = table(10000);
+        final PersistentPropertyMap map = PersistentPropertyMap.EMPTY.withEntriesOf(table);
+
+        Truth.assertThat(map.withEntriesOf(table(10000))).isSameAs(map);
+    }
+
+    @Test
+    public void testValuesOfUnchangedEntriesAreShared() {
+        final PersistentPropertyMap map = PersistentPropertyMap.EMPTY.withEntriesOf(table(100));
+
+        final PropertyTable.Builder builder = PropertyTable.builder();
+        table(100).forEach(builder::put);
+        builder.put("key.50", "changed");
+
+        final PersistentPropertyMap changedMap = map.withEntriesOf(builder.build());
+
+        Truth.assertThat(changedMap.get("key.50")).isEqualTo("changed");
+        Truth.assertThat(changedMap.get("key.10")).isSameAs(map.get("key.10"));
+        Truth.assertThat(differentKeys(map, changedMap)).containsExactly("key.50");
+    }
+
+    @Test
+    public void testWithEntriesOfRemovesMissingKeys() {
+        final PersistentPropertyMap map = PersistentPropertyMap.EMPTY.withEntriesOf(table(100));
+        final PersistentPropertyMap smallerMap = map.withEntriesOf(table(90));
+
+        Truth.assertThat(smallerMap.size()).isEqualTo(90);
+        Truth.assertThat(smallerMap.get("key.95")).isNull();
+        Truth.assertThat(differentKeys(map, smallerMap)).hasSize(10);
+        Truth.assertThat(differentKeys(smallerMap, map)).hasSize(10);
+    }
+
+    @Test
+    public void testEqualMapsWithDifferentHistoryHaveNoDifference() {
+        final PersistentPropertyMap.Builder builder = PersistentPropertyMap.EMPTY.toBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.put("key." + i, "value." + i);
+        }
+        for (int i = 100; i < 1000; i++) {
+            builder.remove("key." + i);
+        }
+
+        final PersistentPropertyMap shrunkMap = builder.build();
+        final PersistentPropertyMap directMap = PersistentPropertyMap.EMPTY.withEntriesOf(table(100));
+
+        Truth.assertThat(toMap(shrunkMap)).isEqualTo(toMap(directMap));
+        Truth.assertThat(differentKeys(shrunkMap, directMap)).isEmpty();
+    }
+
+    private static String randomKey(Random random) {
+        if (random.nextInt(10) == 0) {
+            return COLLIDING_KEYS[random.nextInt(COLLIDING_KEYS.length)];
+        }
+
+        return "key." + random.nextInt(2000);
+    }
+
+    private static PropertyTable table(int size) {
+        final PropertyTable.Builder builder = PropertyTable.builder();
+        for (int i = 0; i < size; i++) {
+            builder.put("key." + i, "value." + i);
+        }
+        return builder.build();
+    }
+
+    private static Map<String, String> toMap(PersistentPropertyMap map) {
+        final Map<String, String> entries = Maps.newHashMap();
+        map.forEach(entries::put);
+        return entries;
+    }
+
+    private static Set<String> differentKeys(PersistentPropertyMap map, PersistentPropertyMap otherMap) {
+        final Set<String> keys = Sets.newHashSet();
+        map.forEachDifferentKey(otherMap, keys::add);
+        return keys;
+    }
+
+    private static Set<String> expectedDifference(Map<String, String> entries, Map<String, String> otherEntries) {
+        final Set<String> keys = Sets.newHashSet();
+        for (String key : Sets.union(entries.keySet(), otherEntries.keySet())) {
+            if (!Objects.equals(entries.get(key), otherEntries.get(key))) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+}
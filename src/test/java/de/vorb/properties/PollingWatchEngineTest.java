@@ -0,0 +1,165 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.jimfs.Jimfs;
+import com.google.common.truth.Truth;
+
+public class PollingWatchEngineTest {
+
+    private final WatchEngine engine = new PollingWatchEngine().withIntervals(10, 40, TimeUnit.MILLISECONDS);
+    private final List<WatchEngine.Registration> registrations = Lists.newArrayList();
+
+    private FileSystem fileSystem;
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        fileSystem = Jimfs.newFileSystem();
+        directory = fileSystem.getPath("test-directory");
+        Files.createDirectory(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        registrations.forEach(WatchEngine.Registration::cancel);
+        fileSystem.close();
+    }
+
+    @Test
+    public void testModifiedFile() throws Exception {
+        final Path file = directory.resolve("test.properties");
+        Files.write(file, ImmutableList.of("key = value"));
+
+        final CountDownLatch changed = new CountDownLatch(1);
+        registrations.add(engine.register(file, changedFile -> changed.countDown()));
+
+        Files.write(file, ImmutableList.of("key = other value"));
+
+        Truth.assertThat(changed.await(1, TimeUnit.SECONDS)).named("changed").isTrue();
+    }
+
+    @Test
+    public void testSameSizeRewriteWithinTimestampResolution() throws Exception {
+        final Path file = directory.resolve("test.properties");
+        Files.write(file, ImmutableList.of("key = value"));
+        final FileTime lastModifiedTime = Files.getLastModifiedTime(file);
+
+        final CountDownLatch changed = new CountDownLatch(1);
+        registrations.add(engine.register(file, changedFile -> changed.countDown()));
+
+        // a file system with coarse timestamps keeps the modification time of a rewrite
+        Files.write(file, ImmutableList.of("key = other"));
+        Files.setLastModifiedTime(file, lastModifiedTime);
+
+        Truth.assertThat(changed.await(1, TimeUnit.SECONDS)).named("changed").isTrue();
+    }
+
+    @Test
+    public void testSameSizeRewriteInDirectoryWithinTimestampResolution() throws Exception {
+        final Path file = directory.resolve("test.properties");
+        Files.write(file, ImmutableList.of("key = value"));
+        final FileTime lastModifiedTime = Files.getLastModifiedTime(file);
+
+        final CountDownLatch changed = new CountDownLatch(1);
+        registrations.add(engine.registerDirectory(directory, changedFiles -> changed.countDown()));
+
+        Files.write(file, ImmutableList.of("key = other"));
+        Files.setLastModifiedTime(file, lastModifiedTime);
+
+        Truth.assertThat(changed.await(1, TimeUnit.SECONDS)).named("changed").isTrue();
+    }
+
+    @Test
+    public void testCreatedAndDeletedFile() throws Exception {
+        final Path file = directory.resolve("test.properties");
+
+        final CountDownLatch created = new CountDownLatch(1);
+        final CountDownLatch deleted = new CountDownLatch(2);
+        registrations.add(engine.register(file, changedFile -> {
+            created.countDown();
+            deleted.countDown();
+        }));
+
+        Files.write(file, ImmutableList.of("key = value"));
+        Truth.assertThat(created.await(1, TimeUnit.SECONDS)).named("created").isTrue();
+
+        Files.delete(file);
+        Truth.assertThat(deleted.await(1, TimeUnit.SECONDS)).named("deleted").isTrue();
+    }
+
+    @Test
+    public void testUnchangedFileIsNotReported() throws Exception {
+        final Path file = directory.resolve("test.properties");
+        Files.write(file, ImmutableList.of("key = value"));
+
+        final AtomicInteger changeCount = new AtomicInteger();
+        registrations.add(engine.register(file, changedFile -> changeCount.incrementAndGet()));
+
+        Thread.sleep(200);
+
+        Truth.assertThat(changeCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDirectory() throws Exception {
+        final Path first = directory.resolve("first.properties");
+        final Path second = directory.resolve("second.properties");
+        Files.write(first, ImmutableList.of("key = value"));
+
+        final Set<Path> changedFiles = ConcurrentHashMap.newKeySet();
+        final CountDownLatch changed = new CountDownLatch(1);
+        registrations.add(engine.registerDirectory(directory, files -> {
+            changedFiles.addAll(files);
+            if (changedFiles.size() == 2) {
+                changed.countDown();
+            }
+        }));
+
+        Files.delete(first);
+        Files.write(second, ImmutableList.of("key = value"));
+
+        Truth.assertThat(changed.await(1, TimeUnit.SECONDS)).named("changed").isTrue();
+        Truth.assertThat(changedFiles).containsExactly(first.toAbsolutePath(), second.toAbsolutePath());
+    }
+
+    @Test
+    public void testCancelledRegistrationIsNotInformed() throws Exception {
+        final Path file = directory.resolve("test.properties");
+        final Path otherFile = directory.resolve("other.properties");
+
+        final AtomicInteger cancelledChangeCount = new AtomicInteger();
+        final CountDownLatch otherChanged = new CountDownLatch(1);
+
+        engine.register(file, changedFile -> cancelledChangeCount.incrementAndGet()).cancel();
+        registrations.add(engine.register(otherFile, changedFile -> otherChanged.countDown()));
+
+        Files.write(file, ImmutableList.of("key = value"));
+        Files.write(otherFile, ImmutableList.of("key = value"));
+
+        Truth.assertThat(otherChanged.await(1, TimeUnit.SECONDS)).named("otherChanged").isTrue();
+        Truth.assertThat(cancelledChangeCount.get()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIntervals() {
+        new PollingWatchEngine().withIntervals(20, 10, TimeUnit.MILLISECONDS);
+    }
+
+}
@@ -0,0 +1,193 @@
+package de.vorb.properties;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.truth.Truth;
+
+/**
+ * Conformance tests of {@link PropertiesParser} against {@link Properties#load(java.io.Reader)}.
+ */
+public class PropertiesParserTest {
+
+    private static final String[] CONFORMANCE_CASES = {
+            "",
+            "key=value",
+            "key = value",
+            "key:value",
+            "key value",
+            "key\tvalue",
+            "key\fvalue",
+            "   key   =   value   ",
+            "key==value",
+            "key=:value",
+            "key :=value",
+            "key",
+            "key=",
+            "=value",
+            ":value",
+            "key\\=with\\:separators=value",
+            "key\\ with\\ spaces = value",
+            "key = value with trailing backslash \\\\",
+            "key = \\t\\n\\r\\f\\\\\\\"\\'\\x",
+            "key = \\u0041\\u00e4\\u20AC\\uD83D\\uDE00",
+            "# comment\nkey=value",
+            "! comment\nkey=value",
+            "   # indented comment\nkey=value",
+            "key=value # not a comment",
+            "# comment with continuation \\\nkey=value",
+            "key = first \\\n    second \\\n\tthird",
+            "key = first \\\r\n    second",
+            "key = first \\\r    second",
+            "key = first \\\n",
+            "key = first \\",
+            "key = first \\\n\nsecond=2",
+            "key = first \\\n# not a comment",
+            "first=1\r\nsecond=2\rthird=3\n",
+            "\n\n\r\n  \t\n",
+            "key=1\nkey=2",
+            "\u00E4\u00F6\u00FC=\u00DF\u20AC\uD83D\uDE00",
+            "\uFEFFkey=value",
+            "\\\\=backslash",
+            "key=value\\\\\\\\\nnext=1",
+            "key=value\\\\\\\nnext=1",
+    };
+
+    private static final Pattern COMMENT_ENDING_WITH_BACKSLASH = Pattern.compile("(?m)^[ \t\f]*[#!].*\\\\\r?$");
+    private static final Pattern ONLY_BACKSLASHES = Pattern.compile("(?m)^[ \t\f]*\\\\+\r?$");
+
+    @Test
+    public void testConformanceCases() throws IOException {
+        for (String input : CONFORMANCE_CASES) {
+            assertConformance(input);
+        }
+    }
+
+    @Test
+    public void testRandomConformance() throws IOException {
+        final Random random = new Random(42);
+        final char[] alphabet = { 'a', 'b', 'k', ' ', '\t', '\f', '=', ':', '\\', '\\', '\n', '\n', '\r', '#', '!',
+                't', 'n', '\u00E4', '\u20AC' };
+
+        int comparedCases = 0;
+        while (comparedCases < 5000) {
+            final StringBuilder input = new StringBuilder();
+            final int length = random.nextInt(60);
+
+            for (int i = 0; i < length; i++) {
+                input.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+
+            // Properties.load() behaves differently between Java versions for these inputs
+            if (COMMENT_ENDING_WITH_BACKSLASH.matcher(input).find() || ONLY_BACKSLASHES.matcher(input).find()) {
+                continue;
+            }
+
+            assertConformance(input.toString());
+            comparedCases++;
+        }
+    }
+
+    @Test
+    public void testLargeInput() throws IOException {
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            input.append("key.").append(i).append(" = value \\\n   ").append(i).append('\n');
+        }
+
+        assertConformance(input.toString());
+    }
+
+    @Test
+    public void testIso88591() throws IOException {
+        final byte[] content = "\u00E4=\u00FC\\u20AC\n".getBytes(StandardCharsets.ISO_8859_1);
+
+        final Properties expected = new Properties();
+        expected.load(new ByteArrayInputStream(content));
+
+        Truth.assertThat(parse(content, StandardCharsets.ISO_8859_1)).isEqualTo(Maps.fromProperties(expected));
+    }
+
+    @Test
+    public void testPositionIsRespected() throws IOException {
+        final ByteBuffer content = ByteBuffer.wrap("skipped=1\nkey=value".getBytes(StandardCharsets.UTF_8));
+        content.position("skipped=1\n".length());
+
+        final Map<String, String> entries = Maps.newLinkedHashMap();
+        new PropertiesParser(StandardCharsets.UTF_8).parse(content, entries::put);
+
+        Truth.assertThat(entries).isEqualTo(ImmutableMap.of("key", "value"));
+    }
+
+    @Test(expected = MalformedInputException.class)
+    public void testMalformedUtf8() throws IOException {
+        parse(new byte[] { 'k', '=', (byte) 0xC3, '(' }, StandardCharsets.UTF_8);
+    }
+
+    @Test(expected = MalformedInputException.class)
+    public void testTruncatedUtf8() throws IOException {
+        parse(new byte[] { 'k', '=', (byte) 0xE2, (byte) 0x82 }, StandardCharsets.UTF_8);
+    }
+
+    @Test(expected = MalformedInputException.class)
+    public void testUtf8EncodedSurrogate() throws IOException {
+        parse(new byte[] { 'k', '=', (byte) 0xED, (byte) 0xA0, (byte) 0x80 }, StandardCharsets.UTF_8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedUnicodeEscape() throws IOException {
+        parse("key=\\u00zz".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedCharset() {
+        new PropertiesParser(StandardCharsets.UTF_16);
+    }
+
+    @Test
+    public void testWatchedFilesAreNotMapped() throws IOException {
+        final Path file = Files.createTempFile("properties-parser-test", ".properties");
+        // a mapped file can only be deleted once the mapping has been collected on some platforms
+        file.toFile().deleteOnExit();
+
+        Files.write(file, new byte[2 * PropertiesParser.MEMORY_MAPPING_THRESHOLD]);
+
+        Truth.assertThat(PropertiesParser.readFile(file).isDirect()).named("read file is direct").isFalse();
+        Truth.assertThat(PropertiesParser.readFile(file).remaining())
+                .isEqualTo(2 * PropertiesParser.MEMORY_MAPPING_THRESHOLD);
+        Truth.assertThat(PropertiesParser.mapFile(file).isDirect()).named("mapped file is direct").isTrue();
+    }
+
+    private static void assertConformance(String input) throws IOException {
+        final Properties expected = new Properties();
+        expected.load(new StringReader(input));
+
+        Truth.assertThat(parse(input.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8))
+                .named("parsed '" + input + "'")
+                .isEqualTo(Maps.fromProperties(expected));
+    }
+
+    private static Map<String, String> parse(byte[] content, Charset charset) throws IOException {
+        final Map<String, String> entries = Maps.newHashMap();
+
+        new PropertiesParser(charset).parse(ByteBuffer.wrap(content), entries::put);
+
+        return entries;
+    }
+
+}
@@ -0,0 +1,117 @@
+package de.vorb.properties;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.truth.Truth;
+
+public class PropertyHandleTest {
+
+    private final MutablePropertyProvider provider = new MutablePropertyProvider("pool.size", "10", "name", "a");
+
+    @Test
+    public void testInitialValue() {
+        Truth.assertThat(provider.handle("pool.size", StandardValueTypes.INT, 1).get()).isEqualTo(10);
+        Truth.assertThat(provider.handle("undefined", StandardValueTypes.INT, 1).get()).isEqualTo(1);
+        Truth.assertThat(provider.handle("undefined", StandardValueTypes.INT, null).get()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInitialValue() {
+        provider.handle("name", StandardValueTypes.INT, 1);
+    }
+
+    @Test
+    public void testUpdate() {
+        final PropertyHandle<Integer> handle = provider.handle("pool.size", StandardValueTypes.INT, 1);
+
+        provider.set("pool.size", "20");
+        Truth.assertThat(handle.get()).isEqualTo(20);
+
+        provider.set();
+        Truth.assertThat(handle.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testChangeListenerIsOnlyCalledOnChangedValue() {
+        final List<List<Integer>> changes = Lists.newArrayList();
+        final PropertyHandle<Integer> handle = provider.handle("pool.size", StandardValueTypes.INT, 1)
+                .onChange((oldValue, newValue) -> changes.add(ImmutableList.of(oldValue, newValue)));
+
+        provider.set("pool.size", "10", "name", "b");
+        provider.set("pool.size", "010", "name", "b");
+        provider.set("pool.size", "20", "name", "b");
+
+        Truth.assertThat(changes).containsExactly(ImmutableList.of(10, 20));
+        Truth.assertThat(handle.get()).isEqualTo(20);
+    }
+
+    @Test
+    public void testChangeListenerComparesByteArraysByContent() {
+        final MutablePropertyProvider provider = new MutablePropertyProvider("key", "0102");
+        final List<byte[]> newValues = Lists.newArrayList();
+        provider.handle("key", StandardValueTypes.HEXADECIMAL, new byte[0])
+                .onChange((oldValue, newValue) -> newValues.add(newValue));
+
+        provider.set("key", "0x0102");
+        provider.set("key", "0103");
+
+        Truth.assertThat(newValues).hasSize(1);
+        Truth.assertThat(newValues.get(0)).isEqualTo(new byte[] { 1, 3 });
+    }
+
+    @Test
+    public void testInvalidUpdateKeepsPreviousValue() {
+        final PropertyHandle<Integer> handle = provider.handle("pool.size", StandardValueTypes.INT, 1);
+
+        provider.set("pool.size", "many");
+        Truth.assertThat(handle.get()).isEqualTo(10);
+
+        provider.set("pool.size", "30");
+        Truth.assertThat(handle.get()).isEqualTo(30);
+    }
+
+    @Test
+    public void testFailingChangeListener() {
+        final List<Integer> newValues = Lists.newArrayList();
+        final PropertyHandle<Integer> handle = provider.handle("pool.size", StandardValueTypes.INT, 1)
+                .onChange((oldValue, newValue) -> {
+                    throw new IllegalStateException("failing change listener");
+                })
+                .onChange((oldValue, newValue) -> newValues.add(newValue));
+
+        provider.set("pool.size", "20");
+
+        Truth.assertThat(handle.get()).isEqualTo(20);
+        Truth.assertThat(newValues).containsExactly(20);
+    }
+
+    @Test
+    public void testClose() {
+        final PropertyHandle<Integer> handle = provider.handle("pool.size", StandardValueTypes.INT, 1);
+
+        handle.close();
+        provider.set("pool.size", "20");
+
+        Truth.assertThat(handle.get()).isEqualTo(10);
+    }
+
+    @Test
+    public void testCompositeProvider() {
+        final MutablePropertyProvider override = new MutablePropertyProvider();
+
+        try (final CompositePropertyProvider composite = CompositePropertyProvider.ofLayers(provider, override)) {
+            final PropertyHandle<Integer> handle = composite.handle("pool.size", StandardValueTypes.INT, 1);
+
+            override.set("pool.size", "40");
+            Truth.assertThat(handle.get()).isEqualTo(40);
+
+            override.set();
+            Truth.assertThat(handle.get()).isEqualTo(10);
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package de.vorb.properties;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+public class PropertyTableTest {
+
+    @Test
+    public void testEmpty() {
+        final PropertyTable table = PropertyTable.fromProperties(new Properties());
+
+        Truth.assertThat(table.size()).isEqualTo(0);
+        Truth.assertThat(table.get("key")).isNull();
+    }
+
+    @Test
+    public void testGet() {
+        final Properties properties = new Properties();
+        properties.setProperty("key.1", "1");
+        properties.setProperty("key.2", "2");
+
+        final PropertyTable table = PropertyTable.fromProperties(properties);
+
+        Truth.assertThat(table.size()).isEqualTo(2);
+        Truth.assertThat(table.get("key.1")).isEqualTo("1");
+        Truth.assertThat(table.get("key.2")).isEqualTo("2");
+        Truth.assertThat(table.get("key.3")).isNull();
+    }
+
+    @Test
+    public void testDefaultsAreFlattened() {
+        final Properties defaults = new Properties();
+        defaults.setProperty("key.default", "default");
+        defaults.setProperty("key.overridden", "default");
+
+        final Properties properties = new Properties(defaults);
+        properties.setProperty("key.overridden", "overridden");
+
+        final PropertyTable table = PropertyTable.fromProperties(properties);
+
+        Truth.assertThat(table.size()).isEqualTo(2);
+        Truth.assertThat(table.get("key.default")).isEqualTo("default");
+        Truth.assertThat(table.get("key.overridden")).isEqualTo("overridden");
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        // "Aa" and "BB" have the same hash code
+        final Properties properties = new Properties();
+        properties.setProperty("Aa", "1");
+        properties.setProperty("BB", "2");
+
+        final PropertyTable table = PropertyTable.fromProperties(properties);
+
+        Truth.assertThat(table.get("Aa")).isEqualTo("1");
+        Truth.assertThat(table.get("BB")).isEqualTo("2");
+        Truth.assertThat(table.get("C#")).isNull();
+    }
+
+    @Test
+    public void testManyKeys() {
+        final Properties properties = new Properties();
+        for (int i = 0; i < 10000; i++) {
+            properties.setProperty("key." + i, String.valueOf(i));
+        }
+
+        final PropertyTable table = PropertyTable.fromProperties(properties);
+
+        Truth.assertThat(table.size()).isEqualTo(10000);
+        for (int i = 0; i < 10000; i++) {
+            Truth.assertThat(table.get("key." + i)).isEqualTo(String.valueOf(i));
+        }
+    }
+
+    @Test
+    public void testBuilder() {
+        final PropertyTable.Builder builder = PropertyTable.builder();
+        builder.put("key.overridden", "first");
+        builder.put("key.overridden", "overridden");
+        for (int i = 0; i < 1000; i++) {
+            builder.put("key." + i, String.valueOf(i));
+        }
+
+        final PropertyTable table = builder.build();
+
+        Truth.assertThat(table.size()).isEqualTo(1001);
+        Truth.assertThat(table.get("key.overridden")).isEqualTo("overridden");
+        for (int i = 0; i < 1000; i++) {
+            Truth.assertThat(table.get("key." + i)).isEqualTo(String.valueOf(i));
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.vorb.properties.event.PropertiesUpdate;
+import de.vorb.properties.event.PropertiesUpdateListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.jimfs.Jimfs;
+import com.google.common.truth.Truth;
+
+public class ProviderStatisticsTest {
+
+    private FileSystem fileSystem;
+    private Path propertyFile;
+
+    @Before
+    public void setUp() throws IOException {
+        fileSystem = Jimfs.newFileSystem();
+
+        final Path directory = fileSystem.getPath("test-directory");
+        Files.createDirectory(directory);
+
+        propertyFile = directory.resolve("test.properties");
+        Files.write(propertyFile, "key=value".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        fileSystem.close();
+    }
+
+    @Test
+    public void testRecordedValues() {
+        final ProviderStatistics statistics = new ProviderStatistics();
+
+        statistics.recordReload(1, TimeUnit.MILLISECONDS.toNanos(2));
+        statistics.recordReload(2, 0);
+        statistics.recordFailedReload();
+        statistics.recordDiffSize(3);
+        statistics.recordDiffSize(4);
+        statistics.recordEventToPublishLatency(TimeUnit.MILLISECONDS.toNanos(30));
+
+        Truth.assertThat(statistics.getReloadCount()).isEqualTo(2);
+        Truth.assertThat(statistics.getGeneration()).isEqualTo(2);
+        Truth.assertThat(statistics.getFailedReloadCount()).isEqualTo(1);
+        Truth.assertThat(statistics.getLastDiffSize()).isEqualTo(4);
+        Truth.assertThat(statistics.getTotalDiffSize()).isEqualTo(7);
+
+        // reloads from a cache have no parse time
+        Truth.assertThat(statistics.getParseTimeMeanMillis()).isWithin(1e-9).of(2);
+        Truth.assertThat(statistics.getEventToPublishLatencyMaxMillis()).isWithin(1e-9).of(30);
+    }
+
+    @Test
+    public void testListenerDispatch() {
+        final ProviderStatistics statistics = new ProviderStatistics();
+        final ListenerDispatcher dispatcher = new ListenerDispatcher(null, 1, TimeUnit.SECONDS, statistics.asSink());
+
+        final PropertiesUpdateListener listener = update -> {
+        };
+        final PropertiesUpdate update = PropertiesUpdate.replacedProperties(new Properties(), new Properties());
+
+        final ListenerTrie subscriptions = new ListenerTrie();
+        subscriptions.addPrefixListener("", listener);
+
+        dispatcher.dispatch(update, subscriptions);
+        dispatcher.dispatch(update, subscriptions);
+
+        Truth.assertThat(statistics.getListenerDispatchCounts())
+                .isEqualTo(Collections.singletonMap(listener.toString(), 2L));
+        Truth.assertThat(statistics.getListenerDispatchTimeMillis()).containsKey(listener.toString());
+    }
+
+    @Test
+    public void testMetricsSink() {
+        final AtomicLong reloadedGeneration = new AtomicLong();
+
+        try (final FileWatchingPropertyProvider provider = FileWatchingPropertyProvider.builder(propertyFile)
+                .metricsSink(new MetricsSink() {
+                    @Override
+                    public void recordReload(long generation, long parseNanos) {
+                        reloadedGeneration.set(generation);
+                    }
+                })
+                .build()) {
+            Truth.assertThat(reloadedGeneration.get()).isEqualTo(1);
+            Truth.assertThat(provider.getStatistics().getReloadCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testStringPoolStatistics() throws IOException {
+        Files.write(propertyFile, "a.enabled=true\nb.enabled=true".getBytes(StandardCharsets.UTF_8));
+
+        try (final FileWatchingPropertyProvider provider = FileWatchingPropertyProvider.builder(propertyFile).build()) {
+            final ProviderStatistics statistics = provider.getStatistics();
+
+            // the pool is shared by all providers, so only the lookups of this provider are certain
+            Truth.assertThat(statistics.getStringPoolHitCount()).isAtLeast(1L);
+            Truth.assertThat(statistics.getStringPoolHitCount() + statistics.getStringPoolMissCount()).isAtLeast(4L);
+            Truth.assertThat(statistics.getStringPoolHitRate()).isGreaterThan(0.0);
+        }
+    }
+
+    @Test
+    public void testMBean() throws JMException {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("de.vorb.properties:type=FileWatchingPropertyProvider,file="
+                + ObjectName.quote(propertyFile.toString()));
+
+        try (final FileWatchingPropertyProvider provider = FileWatchingPropertyProvider.builder(propertyFile)
+                .registerMBean()
+                .build()) {
+            Truth.assertThat(mBeanServer.getAttribute(name, "ReloadCount")).isEqualTo(1L);
+            Truth.assertThat(mBeanServer.getAttribute(name, "Generation"))
+                    .isEqualTo(provider.snapshot().getGeneration());
+        }
+
+        Truth.assertThat(mBeanServer.isRegistered(name)).isFalse();
+    }
+
+}
@@ -0,0 +1,129 @@
+package de.vorb.properties;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+public class ReloadDebouncerTest {
+
+    @Test
+    public void testBurstOfTriggersRunsActionOnce() throws InterruptedException {
+        final AtomicInteger runCount = new AtomicInteger();
+        final CountDownLatch actionRun = new CountDownLatch(1);
+
+        final ReloadDebouncer debouncer = new ReloadDebouncer(() -> {
+            runCount.incrementAndGet();
+            actionRun.countDown();
+        }, 50, 1000, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 10; i++) {
+            debouncer.trigger();
+        }
+
+        Truth.assertThat(actionRun.await(1, TimeUnit.SECONDS)).named("actionRun").isTrue();
+        Thread.sleep(100);
+
+        Truth.assertThat(runCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSlowActionDoesNotDelayOtherDebouncers() throws InterruptedException {
+        final CountDownLatch slowActionStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSlowAction = new CountDownLatch(1);
+        final CountDownLatch fastActionRun = new CountDownLatch(1);
+
+        final ReloadDebouncer slowDebouncer = new ReloadDebouncer(() -> {
+            slowActionStarted.countDown();
+
+            try {
+                releaseSlowAction.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 0, 0, TimeUnit.MILLISECONDS);
+        final ReloadDebouncer fastDebouncer = new ReloadDebouncer(fastActionRun::countDown, 0, 0,
+                TimeUnit.MILLISECONDS);
+
+        try {
+            slowDebouncer.trigger();
+            Truth.assertThat(slowActionStarted.await(1, TimeUnit.SECONDS)).named("slowActionStarted").isTrue();
+
+            fastDebouncer.trigger();
+            Truth.assertThat(fastActionRun.await(1, TimeUnit.SECONDS)).named("fastActionRun").isTrue();
+        } finally {
+            releaseSlowAction.countDown();
+        }
+    }
+
+    @Test
+    public void testErrorDoesNotStopLaterRuns() throws InterruptedException {
+        final AtomicInteger runCount = new AtomicInteger();
+        final CountDownLatch secondRun = new CountDownLatch(2);
+
+        final ReloadDebouncer debouncer = new ReloadDebouncer(() -> {
+            runCount.incrementAndGet();
+            secondRun.countDown();
+            throw new InternalError("truncated file");
+        }, 0, 0, TimeUnit.MILLISECONDS);
+
+        debouncer.trigger();
+        Thread.sleep(100);
+        debouncer.trigger();
+
+        Truth.assertThat(secondRun.await(1, TimeUnit.SECONDS)).named("secondRun").isTrue();
+        Truth.assertThat(runCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCancelDiscardsPendingRun() throws InterruptedException {
+        final AtomicInteger runCount = new AtomicInteger();
+
+        final ReloadDebouncer debouncer = new ReloadDebouncer(runCount::incrementAndGet, 50, 50,
+                TimeUnit.MILLISECONDS);
+
+        debouncer.trigger();
+        debouncer.cancel();
+        debouncer.trigger();
+        Thread.sleep(150);
+
+        Truth.assertThat(runCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testTriggerDuringRunRunsActionAgain() throws InterruptedException {
+        final CountDownLatch firstRunStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstRun = new CountDownLatch(1);
+        final CountDownLatch secondRun = new CountDownLatch(2);
+        final AtomicInteger concurrentRuns = new AtomicInteger();
+        final AtomicInteger maxConcurrentRuns = new AtomicInteger();
+
+        final ReloadDebouncer debouncer = new ReloadDebouncer(() -> {
+            maxConcurrentRuns.accumulateAndGet(concurrentRuns.incrementAndGet(), Math::max);
+            firstRunStarted.countDown();
+
+            try {
+                releaseFirstRun.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            concurrentRuns.decrementAndGet();
+            secondRun.countDown();
+        }, 0, 0, TimeUnit.MILLISECONDS);
+
+        debouncer.trigger();
+        Truth.assertThat(firstRunStarted.await(1, TimeUnit.SECONDS)).named("firstRunStarted").isTrue();
+
+        debouncer.trigger();
+        Thread.sleep(50);
+        releaseFirstRun.countDown();
+
+        Truth.assertThat(secondRun.await(1, TimeUnit.SECONDS)).named("secondRun").isTrue();
+        Truth.assertThat(maxConcurrentRuns.get()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,249 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.jimfs.Jimfs;
+import com.google.common.truth.Truth;
+
+public class SnapshotCacheTest {
+
+    private FileSystem fileSystem;
+    private Path propertyFile;
+    private Path cacheFile;
+    private SnapshotCache snapshotCache;
+
+    @Before
+    public void setUp() throws IOException {
+        fileSystem = Jimfs.newFileSystem();
+
+        final Path directory = fileSystem.getPath("test-directory");
+        Files.createDirectory(directory);
+
+        propertyFile = directory.resolve("test.properties");
+        snapshotCache = SnapshotCache.forPropertyFile(directory, propertyFile, StandardCharsets.UTF_8,
+                new StringPool(1024));
+        cacheFile = snapshotCache.getCacheFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        fileSystem.close();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final FileFingerprint fingerprint = writePropertyFile("key=value");
+        final PersistentPropertyMap entries = entries("key", "value", "empty", "", "unicode", "\u00e4\u20ac\uD83D\uDE00");
+
+        snapshotCache.write(fingerprint, entries);
+
+        Truth.assertThat(toMap(snapshotCache.read(fingerprint))).isEqualTo(toMap(entries));
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(cacheFile.getParent(), "*.tmp")) {
+            Truth.assertThat(files.iterator().hasNext()).named("temporary file exists").isFalse();
+        }
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        final FileFingerprint fingerprint = writePropertyFile("key=value");
+
+        // "Aa" and "BB" have the same hash code
+        snapshotCache.write(fingerprint, entries("Aa", "first", "BB", "second", "key", "value", "empty", ""));
+
+        final CachedEntries cachedEntries = snapshotCache.read(fingerprint);
+
+        Truth.assertThat(cachedEntries.size()).isEqualTo(4);
+        Truth.assertThat(cachedEntries.get("Aa")).isEqualTo("first");
+        Truth.assertThat(cachedEntries.get("BB")).isEqualTo("second");
+        Truth.assertThat(cachedEntries.get("key")).isEqualTo("value");
+        Truth.assertThat(cachedEntries.get("empty")).isEqualTo("");
+        Truth.assertThat(cachedEntries.get("C#")).isNull();
+        Truth.assertThat(cachedEntries.get("missing")).isNull();
+    }
+
+    @Test
+    public void testCacheFileNameDependsOnTheAbsolutePath() throws IOException {
+        final Path otherDirectory = fileSystem.getPath("other-directory");
+        Files.createDirectory(otherDirectory);
+
+        final SnapshotCache otherCache = SnapshotCache.forPropertyFile(propertyFile.getParent(),
+                otherDirectory.resolve("test.properties"), StandardCharsets.UTF_8, new StringPool(1024));
+
+        Truth.assertThat(cacheFile.getFileName().toString()).startsWith("test.properties-");
+        Truth.assertThat(otherCache.getCacheFile().getFileName().toString())
+                .isNotEqualTo(cacheFile.getFileName().toString());
+    }
+
+    @Test
+    public void testScheduledWriteOnlyWritesTheLatestVersion() throws IOException, InterruptedException {
+        final FileFingerprint oldFingerprint = writePropertyFile("key=old");
+        snapshotCache.scheduleWrite(oldFingerprint, entries("key", "old"));
+
+        final FileFingerprint newFingerprint = writePropertyFile("key=new");
+        snapshotCache.scheduleWrite(newFingerprint, entries("key", "new"));
+
+        Truth.assertThat(toMap(awaitCacheFile(newFingerprint))).isEqualTo(ImmutableMap.of("key", "new"));
+        Truth.assertThat(snapshotCache.read(oldFingerprint)).isNull();
+    }
+
+    @Test
+    public void testMissingCacheFile() throws IOException {
+        Truth.assertThat(snapshotCache.read(writePropertyFile("key=value"))).isNull();
+    }
+
+    @Test
+    public void testStaleCacheFile() throws IOException {
+        snapshotCache.write(writePropertyFile("key=value"), entries("key", "value"));
+
+        Truth.assertThat(snapshotCache.read(writePropertyFile("key=other"))).isNull();
+    }
+
+    @Test
+    public void testOtherCharset() throws IOException {
+        final FileFingerprint fingerprint = writePropertyFile("key=value");
+        snapshotCache.write(fingerprint, entries("key", "value"));
+
+        final SnapshotCache isoCache = new SnapshotCache(cacheFile, StandardCharsets.ISO_8859_1, new StringPool(1024));
+
+        Truth.assertThat(isoCache.read(fingerprint)).isNull();
+    }
+
+    @Test
+    public void testCorruptCacheFile() throws IOException {
+        final FileFingerprint fingerprint = writePropertyFile("key=value");
+        snapshotCache.write(fingerprint, entries("key", "value"));
+
+        final byte[] content = Files.readAllBytes(cacheFile);
+        content[content.length - 1] ^= 1;
+        Files.write(cacheFile, content);
+
+        Truth.assertThat(snapshotCache.read(fingerprint)).isNull();
+    }
+
+    @Test
+    public void testTruncatedCacheFile() throws IOException {
+        final FileFingerprint fingerprint = writePropertyFile("key=value");
+        snapshotCache.write(fingerprint, entries("key", "value"));
+
+        final byte[] content = Files.readAllBytes(cacheFile);
+        Files.write(cacheFile, Arrays.copyOf(content, content.length - 3));
+
+        Truth.assertThat(snapshotCache.read(fingerprint)).isNull();
+    }
+
+    @Test
+    public void testUnknownVersion() throws IOException {
+        final FileFingerprint fingerprint = writePropertyFile("key=value");
+        snapshotCache.write(fingerprint, entries("key", "value"));
+
+        final byte[] content = Files.readAllBytes(cacheFile);
+        ByteBuffer.wrap(content).putInt(4, SnapshotCache.VERSION + 1);
+        Files.write(cacheFile, content);
+
+        Truth.assertThat(snapshotCache.read(fingerprint)).isNull();
+    }
+
+    @Test
+    public void testProviderUsesValidCacheFile() throws IOException {
+        final FileFingerprint fingerprint = writePropertyFile("key=value");
+
+        // a cache file that does not match the property file shows whether the cache has been used
+        snapshotCache.write(fingerprint, entries("key", "cached"));
+
+        try (final FileWatchingPropertyProvider provider = FileWatchingPropertyProvider.builder(propertyFile)
+                .snapshotCache(propertyFile.getParent())
+                .build()) {
+            Truth.assertThat(provider.getProperties().getProperty("key")).isEqualTo("cached");
+        }
+    }
+
+    @Test
+    public void testProviderReloadsAfterStartingFromCacheFile() throws IOException {
+        final FileFingerprint fingerprint = writePropertyFile("key=value\nother=value");
+        snapshotCache.write(fingerprint, entries("key", "cached", "other", "value"));
+
+        try (final FileWatchingPropertyProvider provider = FileWatchingPropertyProvider.builder(propertyFile)
+                .snapshotCache(propertyFile.getParent())
+                .pollingWatch(1, 1, TimeUnit.DAYS)
+                .build()) {
+            final Snapshot cachedSnapshot = provider.snapshot();
+            Truth.assertThat(cachedSnapshot.getUntypedValue("key")).isEqualTo("cached");
+
+            writePropertyFile("key=new\nother=value");
+            provider.reload();
+
+            Truth.assertThat(provider.getProperties().getProperty("key")).isEqualTo("new");
+            Truth.assertThat(cachedSnapshot.differenceTo(provider.snapshot()).getChangedKeys()).containsExactly("key");
+        }
+    }
+
+    @Test
+    public void testProviderWritesCacheFile() throws IOException, InterruptedException {
+        final FileFingerprint fingerprint = writePropertyFile("key=value");
+
+        try (final FileWatchingPropertyProvider provider = FileWatchingPropertyProvider.builder(propertyFile)
+                .snapshotCache(propertyFile.getParent())
+                .build()) {
+            Truth.assertThat(provider.getProperties().getProperty("key")).isEqualTo("value");
+        }
+
+        Truth.assertThat(toMap(awaitCacheFile(fingerprint))).isEqualTo(ImmutableMap.of("key", "value"));
+    }
+
+    private CachedEntries awaitCacheFile(FileFingerprint fingerprint) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+
+        CachedEntries entries = snapshotCache.read(fingerprint);
+        while (entries == null && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+            entries = snapshotCache.read(fingerprint);
+        }
+
+        return entries;
+    }
+
+    private FileFingerprint writePropertyFile(String content) throws IOException {
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Files.write(propertyFile, bytes);
+
+        final BasicFileAttributes attributes = Files.readAttributes(propertyFile, BasicFileAttributes.class);
+        return FileFingerprint.of(attributes, ByteBuffer.wrap(bytes), System.currentTimeMillis());
+    }
+
+    private static PersistentPropertyMap entries(String... keysAndValues) {
+        final PersistentPropertyMap.Builder builder = PersistentPropertyMap.EMPTY.toBuilder();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            builder.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return builder.build();
+    }
+
+    private static Map<String, String> toMap(PersistentPropertyMap map) {
+        final Map<String, String> entries = Maps.newHashMap();
+        map.forEach(entries::put);
+        return entries;
+    }
+
+    private static Map<String, String> toMap(CachedEntries cachedEntries) {
+        final Map<String, String> entries = Maps.newHashMap();
+        cachedEntries.forEach(entries::put);
+        return entries;
+    }
+
+}
@@ -0,0 +1,97 @@
+package de.vorb.properties;
+
+import java.util.Optional;
+import java.util.Properties;
+
+import de.vorb.properties.event.PropertiesUpdate;
+
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+public class SnapshotTest {
+
+    @Test
+    public void testDefaults() {
+        final Properties defaults = new Properties();
+        defaults.setProperty("key.default", "default");
+        defaults.setProperty("key.overridden", "default");
+
+        final Snapshot snapshot = new Snapshot(1, entries("key.overridden", "overridden"), defaults);
+
+        Truth.assertThat(snapshot.getProperty("key.default", StandardValueTypes.STRING))
+                .isEqualTo(Optional.of("default"));
+        Truth.assertThat(snapshot.getProperty("key.overridden", StandardValueTypes.STRING))
+                .isEqualTo(Optional.of("overridden"));
+        Truth.assertThat(snapshot.getProperties().keySet()).containsExactly("key.overridden");
+        Truth.assertThat(snapshot.getProperties().getProperty("key.default")).isEqualTo("default");
+    }
+
+    @Test
+    public void testDifference() {
+        final Snapshot oldSnapshot = new Snapshot(1,
+                entries("key.removed", "1", "key.changed", "1", "key.unchanged", "1"), new Properties());
+        final Snapshot newSnapshot = oldSnapshot.next(
+                entries("key.added", "2", "key.changed", "2", "key.unchanged", "1"));
+
+        final PropertiesUpdate update = new SnapshotUpdate(oldSnapshot, newSnapshot);
+
+        Truth.assertThat(update.getAddedKeys()).containsExactly("key.added");
+        Truth.assertThat(update.getRemovedKeys()).containsExactly("key.removed");
+        Truth.assertThat(update.getChangedKeys()).containsExactly("key.changed");
+    }
+
+    @Test
+    public void testDifferenceConsidersDefaults() {
+        final Properties defaults = new Properties();
+        defaults.setProperty("key.default", "default");
+        defaults.setProperty("key.same", "same");
+
+        final Snapshot oldSnapshot = new Snapshot(1, entries("key.default", "own", "key.same", "same"), defaults);
+        final Snapshot newSnapshot = oldSnapshot.next(PersistentPropertyMap.EMPTY);
+
+        final PropertiesUpdate update = new SnapshotUpdate(oldSnapshot, newSnapshot);
+
+        // the own value has been replaced by the default value, which is not a removal
+        Truth.assertThat(update.getUpdatedPropertyKeys()).containsExactly("key.default");
+        Truth.assertThat(update.getChangedKeys()).containsExactly("key.default");
+    }
+
+    @Test
+    public void testNextSharesDefaults() {
+        final Properties defaults = new Properties();
+        defaults.setProperty("key.default", "default");
+
+        final Snapshot oldSnapshot = new Snapshot(1, entries("key", "1"), defaults);
+        final Snapshot newSnapshot = oldSnapshot.next(entries("key", "2"));
+
+        Truth.assertThat(newSnapshot.getGeneration()).isEqualTo(2);
+        Truth.assertThat(newSnapshot.getProperties().getProperty("key.default")).isEqualTo("default");
+        Truth.assertThat(oldSnapshot.differenceTo(newSnapshot).getUpdatedKeys()).containsExactly("key");
+    }
+
+    @Test
+    public void testLaterChangesOfDefaultsAreNotVisible() {
+        final Properties defaults = new Properties();
+        defaults.setProperty("key.default", "default");
+
+        final Snapshot snapshot = new Snapshot(1, entries("key", "1"), defaults);
+        defaults.setProperty("key.default", "changed");
+        defaults.setProperty("key.added", "added");
+
+        Truth.assertThat(snapshot.getProperty("key.default", StandardValueTypes.STRING).get()).isEqualTo("default");
+        Truth.assertThat(snapshot.getProperties().getProperty("key.default")).isEqualTo("default");
+        Truth.assertThat(snapshot.getProperties().getProperty("key.added")).isNull();
+        Truth.assertThat(snapshot.next(entries("key", "2")).getProperties().getProperty("key.default"))
+                .isEqualTo("default");
+    }
+
+    private static PersistentPropertyMap entries(String... keysAndValues) {
+        final PersistentPropertyMap.Builder builder = PersistentPropertyMap.EMPTY.toBuilder();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            builder.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return builder.build();
+    }
+
+}
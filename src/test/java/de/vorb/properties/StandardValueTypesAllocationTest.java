@@ -0,0 +1,83 @@
+package de.vorb.properties;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.truth.Truth;
+
+/**
+ * Verifies that the hot paths of the standard value types do not allocate, using the allocation counter of the current
+ * thread.
+ */
+public class StandardValueTypesAllocationTest {
+
+    private static final int ITERATIONS = 100_000;
+
+    private static final String[] BOOLEAN_VALUES = { "true", "FALSE", "Yes", "no", "y", "N", "1", "0" };
+    private static final String[] INT_VALUES = { "0", "-1", "42", "2147483647" };
+    private static final String[] LONG_VALUES = { "0", "-1", "42", "9223372036854775807" };
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    private long sink;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+        threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void testParseBooleanDoesNotAllocate() {
+        assertNoAllocation(
+                i -> StandardValueTypes.PRIMITIVE_BOOLEAN.parseBoolean(BOOLEAN_VALUES[i % BOOLEAN_VALUES.length])
+                        ? 1 : 0);
+    }
+
+    @Test
+    public void testParseBooleanValueDoesNotAllocate() {
+        assertNoAllocation(i -> StandardValueTypes.BOOLEAN.parseValue(BOOLEAN_VALUES[i % BOOLEAN_VALUES.length])
+                .get() ? 1 : 0);
+    }
+
+    @Test
+    public void testParseIntDoesNotAllocate() {
+        assertNoAllocation(i -> StandardValueTypes.INT.parseInt(INT_VALUES[i % INT_VALUES.length]));
+    }
+
+    @Test
+    public void testParseLongDoesNotAllocate() {
+        assertNoAllocation(i -> StandardValueTypes.LONG.parseLong(LONG_VALUES[i % LONG_VALUES.length]));
+    }
+
+    private interface Parse {
+        long parse(int i);
+    }
+
+    private void assertNoAllocation(Parse parse) {
+        // warm up, so that class loading and the measurement itself are not counted
+        run(parse);
+
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        run(parse);
+        final long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytesBefore;
+
+        // the counter itself may allocate a few bytes, but never one byte per parse
+        Truth.assertThat(allocatedBytes).isLessThan((long) ITERATIONS);
+    }
+
+    private void run(Parse parse) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += parse.parse(i);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package de.vorb.properties;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.common.truth.Truth;
+
+public class StringPoolTest {
+
+    private final StringPool stringPool = new StringPool(1024);
+
+    @Test
+    public void testRepeatedStringIsShared() {
+        final String first = stringPool.get("xtimeoutx".toCharArray(), 1, 7);
+        final String second = stringPool.get("timeout".toCharArray(), 0, 7);
+
+        Truth.assertThat(first).isEqualTo("timeout");
+        Truth.assertThat(second).isSameAs(first);
+        Truth.assertThat(stringPool.getHitCount()).isEqualTo(1);
+        Truth.assertThat(stringPool.getMissCount()).isEqualTo(1);
+        Truth.assertThat(stringPool.getHitRate()).isWithin(1e-9).of(0.5);
+    }
+
+    @Test
+    public void testDifferentStringsAreNotConfused() {
+        // "Aa" and "BB" have the same hash code and therefore the same slot
+        final String first = stringPool.get("Aa".toCharArray(), 0, 2);
+        final String second = stringPool.get("BB".toCharArray(), 0, 2);
+
+        Truth.assertThat(first).isEqualTo("Aa");
+        Truth.assertThat(second).isEqualTo("BB");
+        Truth.assertThat(stringPool.get("BB".toCharArray(), 0, 2)).isSameAs(second);
+    }
+
+    @Test
+    public void testLongStringsAreNotPooled() {
+        final char[] chars = Strings.repeat("x", StringPool.MAX_POOLED_LENGTH + 1).toCharArray();
+
+        final String first = stringPool.get(chars, 0, chars.length);
+        final String second = stringPool.get(chars, 0, chars.length);
+
+        Truth.assertThat(second).isEqualTo(first);
+        Truth.assertThat(second).isNotSameAs(first);
+        Truth.assertThat(stringPool.getHitCount() + stringPool.getMissCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testEmptyPool() {
+        Truth.assertThat(stringPool.getHitRate()).isWithin(1e-9).of(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityMustBePowerOfTwo() {
+        new StringPool(1000);
+    }
+
+    @Test
+    public void testParsersShareKeysAndValues() throws MalformedInputException {
+        final Map<String, String> first = parse("a.enabled = true\nb.enabled = true\n");
+        final Map<String, String> second = parse("b.enabled = true\n");
+
+        Truth.assertThat(first.get("a.enabled")).isSameAs(first.get("b.enabled"));
+        Truth.assertThat(second.keySet().iterator().next()).isSameAs(
+                first.keySet().stream().filter("b.enabled"::equals).findFirst().get());
+        Truth.assertThat(second.get("b.enabled")).isSameAs(first.get("a.enabled"));
+    }
+
+    private Map<String, String> parse(String content) throws MalformedInputException {
+        final Map<String, String> entries = Maps.newHashMap();
+
+        new PropertiesParser(StandardCharsets.UTF_8, stringPool)
+                .parse(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)), entries::put);
+
+        return entries;
+    }
+
+}
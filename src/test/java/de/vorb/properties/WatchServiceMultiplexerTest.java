@@ -0,0 +1,188 @@
+package de.vorb.properties;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.jimfs.Jimfs;
+import com.google.common.truth.Truth;
+
+public class WatchServiceMultiplexerTest {
+
+    private final WatchServiceMultiplexer multiplexer = new WatchServiceMultiplexer();
+    private final List<WatchServiceMultiplexer.Registration> registrations = Lists.newArrayList();
+
+    private FileSystem fileSystem;
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        fileSystem = Jimfs.newFileSystem();
+        directory = fileSystem.getPath("test-directory");
+        Files.createDirectory(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        registrations.forEach(WatchServiceMultiplexer.Registration::cancel);
+        fileSystem.close();
+    }
+
+    @Test
+    public void testEventsAreRoutedByFileName() throws Exception {
+        final Path first = directory.resolve("first.properties");
+        final Path second = directory.resolve("second.properties");
+
+        final CountDownLatch firstChanged = new CountDownLatch(1);
+        final AtomicInteger secondChangeCount = new AtomicInteger();
+
+        register(first, file -> firstChanged.countDown());
+        register(second, file -> secondChangeCount.incrementAndGet());
+
+        Files.write(first, ImmutableList.of("key = value"));
+
+        Truth.assertThat(firstChanged.await(1, TimeUnit.SECONDS)).named("firstChanged").isTrue();
+        Truth.assertThat(secondChangeCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSeveralListenersOfTheSameFile() throws Exception {
+        final Path file = directory.resolve("test.properties");
+
+        final CountDownLatch changed = new CountDownLatch(2);
+
+        register(file, changedFile -> changed.countDown());
+        register(file, changedFile -> changed.countDown());
+
+        Files.write(file, ImmutableList.of("key = value"));
+
+        Truth.assertThat(changed.await(1, TimeUnit.SECONDS)).named("changed").isTrue();
+    }
+
+    @Test
+    public void testThreadCountDoesNotGrowWithRegistrations() throws Exception {
+        final int threadCountBefore = countWatchThreads();
+
+        for (int i = 0; i < 50; i++) {
+            register(directory.resolve("file-" + i + ".properties"), file -> {
+            });
+        }
+
+        Truth.assertThat(countWatchThreads() - threadCountBefore).isAtMost(1);
+    }
+
+    @Test
+    public void testCancelledRegistrationIsNotInformed() throws Exception {
+        final Path file = directory.resolve("test.properties");
+        final Path otherFile = directory.resolve("other.properties");
+
+        final AtomicInteger cancelledChangeCount = new AtomicInteger();
+        final CountDownLatch otherChanged = new CountDownLatch(1);
+
+        final WatchServiceMultiplexer.Registration cancelled =
+                register(file, changedFile -> cancelledChangeCount.incrementAndGet());
+        register(otherFile, changedFile -> otherChanged.countDown());
+
+        cancelled.cancel();
+
+        Files.write(file, ImmutableList.of("key = value"));
+        Files.write(otherFile, ImmutableList.of("key = value"));
+
+        Truth.assertThat(otherChanged.await(1, TimeUnit.SECONDS)).named("otherChanged").isTrue();
+        Truth.assertThat(cancelledChangeCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDirectoryRegistrationReceivesAllFiles() throws Exception {
+        final Path first = directory.resolve("first.properties");
+        final Path second = directory.resolve("second.properties");
+
+        final Set<Path> changedFiles = ConcurrentHashMap.newKeySet();
+        final CountDownLatch changed = new CountDownLatch(1);
+
+        registrations.add(multiplexer.registerDirectory(directory,
+                WatchServiceMultiplexerTest::createFastWatchService, files -> {
+                    changedFiles.addAll(files);
+                    if (changedFiles.size() == 2) {
+                        changed.countDown();
+                    }
+                }));
+
+        Files.write(first, ImmutableList.of("key = value"));
+        Files.write(second, ImmutableList.of("key = value"));
+
+        Truth.assertThat(changed.await(1, TimeUnit.SECONDS)).named("changed").isTrue();
+        Truth.assertThat(changedFiles).containsExactly(first.toAbsolutePath(), second.toAbsolutePath());
+    }
+
+    @Test
+    public void testFileAndDirectoryRegistrationsShareTheDirectoryWatch() throws Exception {
+        final Path file = directory.resolve("test.properties");
+
+        final CountDownLatch fileChanged = new CountDownLatch(1);
+        final CountDownLatch directoryChanged = new CountDownLatch(1);
+
+        register(file, changedFile -> fileChanged.countDown());
+        final WatchServiceMultiplexer.Registration directoryRegistration = multiplexer.registerDirectory(directory,
+                WatchServiceMultiplexerTest::createFastWatchService, files -> directoryChanged.countDown());
+
+        directoryRegistration.cancel();
+
+        Files.write(file, ImmutableList.of("key = value"));
+
+        Truth.assertThat(fileChanged.await(1, TimeUnit.SECONDS)).named("fileChanged").isTrue();
+        Truth.assertThat(directoryChanged.getCount()).isEqualTo(1);
+    }
+
+    private WatchServiceMultiplexer.Registration register(Path file,
+            WatchEngine.FileChangeListener listener) throws IOException {
+
+        final WatchServiceMultiplexer.Registration registration =
+                multiplexer.register(file, WatchServiceMultiplexerTest::createFastWatchService, listener);
+        registrations.add(registration);
+
+        return registration;
+    }
+
+    private static int countWatchThreads() {
+        return (int) Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(WatchServiceMultiplexer.class.getName()))
+                .count();
+    }
+
+    static WatchService createFastWatchService(Path path) throws IOException {
+        final WatchService watchService = path.getFileSystem().newWatchService();
+
+        try {
+            final Class<?> pollingWatchServiceClass = Class.forName("com.google.common.jimfs.PollingWatchService");
+
+            final Field pollingTime = pollingWatchServiceClass.getDeclaredField("pollingTime");
+            pollingTime.setAccessible(true);
+            pollingTime.set(watchService, 50);
+
+            final Field timeUnit = pollingWatchServiceClass.getDeclaredField("timeUnit");
+            timeUnit.setAccessible(true);
+            timeUnit.set(watchService, TimeUnit.MILLISECONDS);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not reduce the polling time of the watch service", e);
+        }
+
+        return watchService;
+    }
+
+}
@@ -1,10 +1,14 @@
 package de.vorb.properties.event;
 
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.truth.Truth;
 
 public class SuccessfulPropertiesUpdateTest {
@@ -73,4 +77,87 @@ public class SuccessfulPropertiesUpdateTest {
         Truth.assertThat(PropertiesUpdate.replacedProperties(oldProps, newProps).getUpdatedPropertyKeys()).isEmpty();
     }
 
+    @Test
+    public void testStructuredDifference() {
+        oldProps.putAll(ImmutableMap.of(
+                "test.unchanged", "1",
+                "test.changed", "2",
+                "test.removed", "3"));
+
+        newProps.putAll(ImmutableMap.of(
+                "test.unchanged", "1",
+                "test.changed", "changed",
+                "test.added", "4"));
+
+        final PropertiesUpdate update = PropertiesUpdate.replacedProperties(oldProps, newProps);
+
+        Truth.assertThat(update.getAddedKeys()).containsExactly("test.added");
+        Truth.assertThat(update.getRemovedKeys()).containsExactly("test.removed");
+        Truth.assertThat(update.getChangedKeys()).containsExactly("test.changed");
+        Truth.assertThat(update.getUpdatedPropertyKeys())
+                .containsExactly("test.added", "test.removed", "test.changed");
+        Truth.assertThat(update.getOldProperties()).isSameAs(oldProps);
+        Truth.assertThat(update.getNewProperties()).isSameAs(newProps);
+    }
+
+    @Test
+    public void testDifferenceIsComputedLazilyAndOnce() {
+        final AtomicInteger lookupCount = new AtomicInteger();
+        final Properties countingProps = new Properties() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String getProperty(String key) {
+                lookupCount.incrementAndGet();
+                return super.getProperty(key);
+            }
+        };
+        countingProps.setProperty("test.1", "1");
+
+        final PropertiesUpdate update = PropertiesUpdate.replacedProperties(oldProps, countingProps);
+
+        Truth.assertThat(lookupCount.get()).isEqualTo(0);
+
+        Truth.assertThat(update.getAddedKeys()).containsExactly("test.1");
+        Truth.assertThat(update.getUpdatedPropertyKeys()).containsExactly("test.1");
+        Truth.assertThat(lookupCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDefaultDifferenceIsDerivedFromUpdatedKeys() {
+        oldProps.putAll(ImmutableMap.of(
+                "test.changed", "1",
+                "test.removed", "2"));
+
+        newProps.putAll(ImmutableMap.of(
+                "test.changed", "changed",
+                "test.added", "3"));
+
+        final PropertiesUpdate update = new PropertiesUpdate() {
+            @Override
+            public Optional<Throwable> getException() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Properties getOldProperties() {
+                return oldProps;
+            }
+
+            @Override
+            public Properties getNewProperties() {
+                return newProps;
+            }
+
+            @Override
+            public Set<String> getUpdatedPropertyKeys() {
+                return ImmutableSet.of("test.added", "test.removed", "test.changed");
+            }
+        };
+
+        Truth.assertThat(update.getAddedKeys()).containsExactly("test.added");
+        Truth.assertThat(update.getRemovedKeys()).containsExactly("test.removed");
+        Truth.assertThat(update.getChangedKeys()).containsExactly("test.changed");
+    }
+
 }